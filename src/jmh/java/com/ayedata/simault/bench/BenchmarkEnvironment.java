@@ -0,0 +1,83 @@
+package com.ayedata.simault.bench;
+
+import com.ayedata.simault.SimaultApplication;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Shared fixture for the benchmarks: a mongod (embedded, unless
+ * -Dsimault.bench.mongodb.uri points at one) and a Simault context, without the web layer
+ * unless a load test asks for it.
+ */
+final class BenchmarkEnvironment {
+
+    private static TransitionWalker.ReachedState<RunningMongodProcess> mongod;
+    private static String uri;
+
+    private BenchmarkEnvironment() {}
+
+    static synchronized String mongoUri() {
+        if (uri != null) return uri;
+
+        String external = System.getProperty("simault.bench.mongodb.uri");
+        if (external != null && !external.isBlank()) {
+            uri = external;
+        } else {
+            mongod = Mongod.instance().start(Version.Main.V7_0);
+            var address = mongod.current().getServerAddress();
+            uri = "mongodb://" + address.getHost() + ":" + address.getPort();
+            Runtime.getRuntime().addShutdownHook(new Thread(mongod::close));
+        }
+        return uri;
+    }
+
+    static ConfigurableApplicationContext start(Map<String, Object> overrides) {
+        return start(overrides, WebApplicationType.NONE);
+    }
+
+    static ConfigurableApplicationContext start(Map<String, Object> overrides, WebApplicationType webType) {
+        Map<String, Object> props = new HashMap<>();
+        props.put("vault.mongodb.uri", mongoUri());
+        props.put("vault.mongodb.database", "simault_bench");
+        props.put("vault.mongodb.collection", "secrets");
+        props.put("vault.security.kms-provider", "local");
+        props.put("vault.security.master-key-path", masterKeyFile().toString());
+        props.put("vault.security.key-alt-name", "simault-bench-key");
+        props.put("vault.admin.api-key", "bench");
+        // Keep background work from skewing the measurements
+        props.put("vault.rotation.proactive.enabled", "false");
+        props.put("spring.ai.mcp.server.enabled", "false");
+        props.putAll(overrides);
+
+        return new SpringApplicationBuilder(SimaultApplication.class)
+                .web(webType)
+                .properties(props)
+                .run();
+    }
+
+    private static Path masterKeyFile() {
+        try {
+            byte[] key = new byte[96];
+            new SecureRandom().nextBytes(key);
+            Path file = Files.createTempFile("simault-bench-master-key", ".bin");
+            Files.write(file, key);
+            file.toFile().deleteOnExit();
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
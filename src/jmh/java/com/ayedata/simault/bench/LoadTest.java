@@ -0,0 +1,187 @@
+package com.ayedata.simault.bench;
+
+import com.ayedata.simault.metrics.VaultMetrics;
+import com.ayedata.simault.repository.AppRegistryRepository;
+import com.ayedata.simault.service.SecretVaultService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop HTTP load test of GET /api/secrets/{appId}. Each simulated client runs on its
+ * own virtual thread and keeps exactly one request in flight for the whole run.
+ *
+ * The server is started once per mode (platform request threads, then virtual threads),
+ * against the same mongod, and throughput and latency percentiles are printed for both.
+ *
+ *   mvn -Pbenchmark test-compile exec:exec@load-test
+ *   mvn -Pbenchmark test-compile exec:exec@load-test -Dsimault.load.clients=10000 -Dsimault.load.modes=virtual
+ *
+ * 10k clients need 20k sockets on one machine; raise `ulimit -n` first.
+ * Results are also written to target/load-test-result.json.
+ */
+public final class LoadTest {
+
+    private static final String APP_PREFIX = "load-app-";
+
+    record Result(String mode, int clients, long requests, long errors, double throughputPerSecond,
+                  double p50Millis, double p99Millis, double p999Millis, double maxMillis) {}
+
+    private LoadTest() {}
+
+    public static void main(String[] args) throws Exception {
+        int clients = Integer.getInteger("simault.load.clients", 10_000);
+        int apps = Integer.getInteger("simault.load.apps", 100);
+        int warmupSeconds = Integer.getInteger("simault.load.warmup-seconds", 10);
+        int durationSeconds = Integer.getInteger("simault.load.duration-seconds", 30);
+        // Off by default so every request pays for the Mongo round trip and the decryption
+        boolean secretCache = Boolean.getBoolean("simault.load.secret-cache");
+        String[] modes = System.getProperty("simault.load.modes", "platform,virtual").split(",");
+
+        List<Result> results = new ArrayList<>();
+        for (String mode : modes) {
+            boolean virtual = "virtual".equals(mode.trim());
+            results.add(run(virtual, clients, apps, secretCache, warmupSeconds, durationSeconds));
+        }
+
+        System.out.printf("%n%-9s %8s %10s %8s %10s %9s %9s %9s %9s%n",
+                "mode", "clients", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Result r : results) {
+            System.out.printf("%-9s %8d %10d %8d %10.0f %9.2f %9.2f %9.2f %9.2f%n",
+                    r.mode(), r.clients(), r.requests(), r.errors(), r.throughputPerSecond(),
+                    r.p50Millis(), r.p99Millis(), r.p999Millis(), r.maxMillis());
+        }
+
+        Path out = Path.of(System.getProperty("simault.load.result", "target/load-test-result.json"));
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(out.toFile(), results);
+        System.out.println("Results written to " + out.toAbsolutePath());
+        System.exit(0);
+    }
+
+    private static Result run(boolean virtual, int clients, int apps, boolean secretCache,
+                              int warmupSeconds, int durationSeconds) throws InterruptedException {
+        String mode = virtual ? "virtual" : "platform";
+        System.out.println("▶ Starting " + mode + "-thread server for " + clients + " clients...");
+
+        ConfigurableApplicationContext context = BenchmarkEnvironment.start(Map.of(
+                "server.port", "0",
+                "spring.threads.virtual.enabled", String.valueOf(virtual),
+                "server.tomcat.max-connections", String.valueOf(clients + 1_000),
+                "server.tomcat.accept-count", "1000",
+                "vault.cache.secrets.enabled", String.valueOf(secretCache),
+                // Request logging would measure the appender instead of the vault
+                "logging.level.com.ayedata.simault", "WARN"
+        ), WebApplicationType.SERVLET);
+
+        try {
+            AppRegistryRepository registry = context.getBean(AppRegistryRepository.class);
+            SecretVaultService vault = context.getBean(SecretVaultService.class);
+            for (int i = 0; i < apps; i++) {
+                registry.registerApp(APP_PREFIX + i, "Load test app", null, null);
+                vault.getAppSecret(APP_PREFIX + i, VaultMetrics.REST);
+            }
+
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            return drive(mode, "http://localhost:" + port + "/api/secrets/", clients, apps, warmupSeconds, durationSeconds);
+        } finally {
+            context.close();
+        }
+    }
+
+    private static Result drive(String mode, String baseUrl, int clients, int apps,
+                                int warmupSeconds, int durationSeconds) throws InterruptedException {
+        HttpClient http = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+
+        long start = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+        LatencyRecorder[] recorders = new LatencyRecorder[clients];
+        LongAdder errors = new LongAdder();
+        CountDownLatch go = new CountDownLatch(1);
+
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                LatencyRecorder recorder = recorders[c] = new LatencyRecorder();
+                HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + APP_PREFIX + (c % apps)))
+                        .timeout(Duration.ofSeconds(60))
+                        .GET()
+                        .build();
+                pool.submit(() -> {
+                    go.await();
+                    while (System.nanoTime() < end) {
+                        long t0 = System.nanoTime();
+                        boolean ok;
+                        try {
+                            ok = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+                        } catch (IOException e) {
+                            ok = false;
+                        }
+                        if (t0 < measureFrom) continue;
+                        recorder.record(System.nanoTime() - t0);
+                        if (!ok) errors.increment();
+                    }
+                    return null;
+                });
+            }
+            while (System.nanoTime() < start) Thread.sleep(10);
+            go.countDown();
+        }
+
+        long[] all = LatencyRecorder.merge(recorders);
+        Arrays.sort(all);
+        return new Result(mode, clients, all.length, errors.sum(), (double) all.length / durationSeconds,
+                percentile(all, 0.50), percentile(all, 0.99), percentile(all, 0.999),
+                all.length == 0 ? 0 : all[all.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    /** Owned by one client thread; read only after that thread has finished. */
+    private static final class LatencyRecorder {
+        private long[] nanos = new long[256];
+        private int size;
+
+        void record(long latency) {
+            if (size == nanos.length) nanos = Arrays.copyOf(nanos, size * 2);
+            nanos[size++] = latency;
+        }
+
+        static long[] merge(LatencyRecorder[] recorders) {
+            int total = 0;
+            for (LatencyRecorder r : recorders) total += r.size;
+            long[] all = new long[total];
+            int offset = 0;
+            for (LatencyRecorder r : recorders) {
+                System.arraycopy(r.nanos, 0, all, offset, r.size);
+                offset += r.size;
+            }
+            return all;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.ayedata.simault.bench;
+
+import com.ayedata.simault.repository.AppRegistryRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * isAppAllowed with the allowlist snapshot and with a database round trip.
+ * The staleness bound is stretched so a standalone mongod (no change streams)
+ * still exercises the snapshot path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegistryBenchmarks {
+
+    private static final String APP_ID = "bench-service";
+
+    @Param({"true", "false"})
+    public boolean registryCache;
+
+    private ConfigurableApplicationContext context;
+    private AppRegistryRepository registry;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkEnvironment.start(Map.of(
+            "vault.registry.cache.enabled", String.valueOf(registryCache),
+            "vault.registry.cache.max-staleness-ms", "3600000"
+        ));
+        registry = context.getBean(AppRegistryRepository.class);
+        registry.registerApp(APP_ID, "JMH benchmark app", null, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public boolean isAppAllowed() {
+        return registry.isAppAllowed(APP_ID);
+    }
+}
@@ -0,0 +1,104 @@
+package com.ayedata.simault.bench;
+
+import com.ayedata.simault.metrics.VaultMetrics;
+import com.ayedata.simault.model.AppSecret;
+import com.ayedata.simault.repository.AppRegistryRepository;
+import com.ayedata.simault.service.SecretCache;
+import com.ayedata.simault.service.SecretVaultService;
+import com.ayedata.simault.util.SecretUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.model.vault.EncryptOptions;
+import com.mongodb.client.vault.ClientEncryption;
+import org.bson.BsonBinary;
+import org.bson.BsonString;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot paths of the vault, measured against a real mongod and the real Spring wiring.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VaultBenchmarks {
+
+    private static final String APP_ID = "bench-service";
+
+    private ConfigurableApplicationContext context;
+    private SecretVaultService vaultService;
+    private SecretCache secretCache;
+    private ClientEncryption clientEncryption;
+    private ObjectMapper objectMapper;
+    private EncryptOptions encryptOptions;
+
+    private String plaintext;
+    private BsonBinary ciphertext;
+    private AppSecret sample;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkEnvironment.start(Map.of());
+        vaultService = context.getBean(SecretVaultService.class);
+        secretCache = context.getBean(SecretCache.class);
+        clientEncryption = context.getBean(ClientEncryption.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        encryptOptions = new EncryptOptions("AEAD_AES_256_CBC_HMAC_SHA_512-Deterministic")
+                .keyId(new BsonBinary(context.getBean(UUID.class)));
+
+        context.getBean(AppRegistryRepository.class).registerApp(APP_ID, "JMH benchmark app", null, null);
+        sample = vaultService.getAppSecret(APP_ID, VaultMetrics.REST);
+
+        // A 44-character Base64 secret, the size every rotation produces
+        plaintext = SecretUtils.generateRandomString();
+        ciphertext = clientEncryption.encrypt(new BsonString(plaintext), encryptOptions);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public AppSecret getAppSecretCacheHit() {
+        return vaultService.getAppSecret(APP_ID, VaultMetrics.REST);
+    }
+
+    @Benchmark
+    public AppSecret getAppSecretCacheMiss() {
+        secretCache.invalidate(APP_ID);
+        return vaultService.getAppSecret(APP_ID, VaultMetrics.REST);
+    }
+
+    @Benchmark
+    public AppSecret rotateSecret() {
+        return vaultService.rotateSecret(APP_ID, VaultMetrics.REST);
+    }
+
+    @Benchmark
+    public BsonBinary clientEncryptionEncrypt() {
+        return clientEncryption.encrypt(new BsonString(plaintext), encryptOptions);
+    }
+
+    @Benchmark
+    public String clientEncryptionDecrypt() {
+        return clientEncryption.decrypt(ciphertext).asString().getValue();
+    }
+
+    @Benchmark
+    public String generateRandomString() {
+        return SecretUtils.generateRandomString();
+    }
+
+    @Benchmark
+    public String serializeAppSecret() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(sample);
+    }
+}
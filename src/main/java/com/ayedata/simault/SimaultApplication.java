@@ -2,10 +2,12 @@ package com.ayedata.simault;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class SimaultApplication {
     public static void main(String[] args) {
         SpringApplication.run(SimaultApplication.class, args);
     }
-}
\ No newline at end of file
+}
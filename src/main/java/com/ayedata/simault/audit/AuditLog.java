@@ -0,0 +1,232 @@
+package com.ayedata.simault.audit;
+
+import com.ayedata.simault.config.NodeIdentity;
+import com.ayedata.simault.model.AuditEvent;
+import com.ayedata.simault.model.BatchSecretResponse;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.model.InsertManyOptions;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Audit trail of secret access and admin actions, kept off the request path.
+ *
+ * record() only puts the event in a bounded ring buffer; a single background writer
+ * drains it and inserts batches into the audit_events collection, flushing when
+ * flush-size events are waiting or flush-interval-ms after the first one. While
+ * MongoDB is unreachable, batches are appended to a local JSON-lines file instead.
+ *
+ * When the buffer is full, overflow=drop (default) drops the new event and counts it;
+ * overflow=block makes the caller wait up to block-timeout-ms for room first.
+ */
+@Component
+public class AuditLog implements MeterBinder {
+
+    private static final Logger logger = LogManager.getLogger(AuditLog.class);
+
+    public static final String COLLECTION_NAME = "audit_events";
+
+    // --- Configuration ---
+    @Value("${vault.mongodb.database}") private String dbName;
+    @Value("${vault.audit.enabled:true}") private boolean enabled;
+    @Value("${vault.audit.buffer-size:8192}") private int bufferSize;
+    @Value("${vault.audit.flush-size:500}") private int flushSize;
+    @Value("${vault.audit.flush-interval-ms:1000}") private long flushIntervalMs;
+    @Value("${vault.audit.overflow:drop}") private String overflow;
+    @Value("${vault.audit.block-timeout-ms:50}") private long blockTimeoutMs;
+    @Value("${vault.audit.fallback-file:audit-fallback.jsonl}") private String fallbackFile;
+    @Value("${vault.audit.retry-interval-ms:30000}") private long retryIntervalMs;
+
+    // --- Dependencies ---
+    private final MongoClient mongoClient;
+    private final NodeIdentity node;
+
+    private BlockingQueue<AuditEvent> buffer;
+    private volatile boolean running = true;
+    private Thread writer;
+    // Until then, batches go straight to the fallback file
+    private long offlineUntil = 0L;
+
+    // --- Counters ---
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder lost = new LongAdder();
+
+    public AuditLog(MongoClient mongoClient, NodeIdentity node) {
+        this.mongoClient = mongoClient;
+        this.node = node;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) return;
+        buffer = new ArrayBlockingQueue<>(bufferSize);
+        writer = Thread.ofPlatform().daemon().name("audit-writer").start(this::drain);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (writer == null) return;
+        // The writer flushes what is left before it exits
+        writer.interrupt();
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void record(String action, String entryPoint, String appId, String outcome) {
+        record(action, entryPoint, appId, outcome, null);
+    }
+
+    /**
+     * Publishes an event. Never does I/O; with overflow=block it may wait up to
+     * block-timeout-ms for buffer space.
+     */
+    public void record(String action, String entryPoint, String appId, String outcome, String detail) {
+        if (!enabled) return;
+
+        AuditEvent event = new AuditEvent(Instant.now(), action, entryPoint, appId, outcome, detail);
+        boolean accepted;
+        if ("block".equals(overflow)) {
+            try {
+                accepted = buffer.offer(event, blockTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                accepted = false;
+            }
+        } else {
+            accepted = buffer.offer(event);
+        }
+
+        if (accepted) published.increment();
+        else dropped.increment();
+    }
+
+    /** One event per requested app: success, or error with the reason reported to the caller. */
+    public void recordBatch(String entryPoint, BatchSecretResponse response) {
+        response.secrets().keySet().forEach(appId ->
+                record(AuditEvent.SECRET_BATCH_READ, entryPoint, appId, AuditEvent.SUCCESS));
+        response.errors().forEach((appId, reason) ->
+                record(AuditEvent.SECRET_BATCH_READ, entryPoint, appId, AuditEvent.ERROR, reason));
+    }
+
+    private void drain() {
+        List<AuditEvent> batch = new ArrayList<>(flushSize);
+        try {
+            while (running) {
+                AuditEvent first = buffer.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+
+                // Collect until flush-size, or until flush-interval-ms after the first event
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < flushSize) {
+                    buffer.drainTo(batch, flushSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= flushSize || remaining <= 0) break;
+                    AuditEvent next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next != null) batch.add(next);
+                }
+                flush(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            // Shutting down
+        }
+
+        buffer.drainTo(batch);
+        if (!batch.isEmpty()) flush(batch);
+    }
+
+    private void flush(List<AuditEvent> batch) {
+        long now = System.currentTimeMillis();
+        if (now >= offlineUntil) {
+            try {
+                List<Document> docs = new ArrayList<>(batch.size());
+                for (AuditEvent event : batch) docs.add(toDocument(event));
+                mongoClient.getDatabase(dbName).getCollection(COLLECTION_NAME)
+                        .insertMany(docs, new InsertManyOptions().ordered(false));
+                written.add(batch.size());
+                return;
+            } catch (Exception e) {
+                offlineUntil = now + retryIntervalMs;
+                logger.warn("Audit store unreachable ({}); writing audit events to {} for the next {} ms.",
+                        e.getMessage(), fallbackFile, retryIntervalMs);
+            }
+        }
+        spill(batch);
+    }
+
+    private void spill(List<AuditEvent> batch) {
+        try (BufferedWriter out = Files.newBufferedWriter(Path.of(fallbackFile), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (AuditEvent event : batch) {
+                out.write(toDocument(event).toJson());
+                out.newLine();
+            }
+            spilled.add(batch.size());
+        } catch (IOException e) {
+            lost.add(batch.size());
+            logger.error("Could not write {} audit events to {}; they are lost.", batch.size(), fallbackFile, e);
+        }
+    }
+
+    private Document toDocument(AuditEvent event) {
+        Document doc = new Document()
+                .append("timestamp", Date.from(event.timestamp()))
+                .append("action", event.action())
+                .append("entryPoint", event.entryPoint())
+                .append("appId", event.appId())
+                .append("outcome", event.outcome())
+                .append("node", node.id());
+        if (event.detail() != null) doc.append("detail", event.detail());
+        return doc;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("simault.audit.buffer.size", this, log -> log.buffer == null ? 0 : log.buffer.size())
+                .description("Audit events waiting for the writer")
+                .register(registry);
+        bindCounter(registry, published, "published");
+        bindCounter(registry, dropped, "dropped");
+        bindCounter(registry, written, "written");
+        bindCounter(registry, spilled, "fallback");
+        bindCounter(registry, lost, "lost");
+    }
+
+    private static void bindCounter(MeterRegistry registry, LongAdder adder, String result) {
+        FunctionCounter.builder("simault.audit.events", adder, LongAdder::sum)
+                .tag("result", result)
+                .register(registry);
+    }
+}
@@ -1,32 +1,36 @@
 package com.ayedata.simault.config;
 
+import com.ayedata.simault.crypto.CircuitBreakingCryptoEngine;
+import com.ayedata.simault.crypto.ClientEncryptionCryptoEngine;
+import com.ayedata.simault.crypto.CryptoCircuitBreaker;
+import com.ayedata.simault.crypto.CryptoEngine;
+import com.ayedata.simault.crypto.LocalAeadCryptoEngine;
+import com.ayedata.simault.metrics.VaultMetrics;
+import com.ayedata.simault.repository.VaultSettingsRepository;
 import com.ayedata.simault.util.KeyUtils;
 import com.mongodb.ClientEncryptionSettings;
-import com.mongodb.ConnectionString;
 import com.mongodb.MongoClientSettings;
 import com.mongodb.client.MongoClient;
-import com.mongodb.client.model.Filters;
-import com.mongodb.client.model.IndexOptions;
-import com.mongodb.client.model.Indexes;
 import com.mongodb.client.model.vault.DataKeyOptions;
 import com.mongodb.client.vault.ClientEncryption;
 import com.mongodb.client.vault.ClientEncryptions;
 import org.bson.Document;
 import org.bson.types.Binary;
-import java.nio.ByteBuffer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 @Configuration
 public class EncryptionConfig {
 
-    @Value("${vault.mongodb.uri}")
-    private String uri;
     @Value("${vault.security.kms-provider}")
     private String kmsProviderName;
     @Value("${vault.security.master-key-path}")
@@ -34,13 +38,28 @@ public class EncryptionConfig {
     @Value("${vault.security.key-alt-name}")
     private String keyAltName;
 
-    @Bean
-    public ClientEncryption clientEncryption() {
+    // --- Crypto circuit breaker ---
+    @Value("${vault.crypto.breaker.window-size:20}")
+    private int breakerWindowSize;
+    @Value("${vault.crypto.breaker.min-calls:10}")
+    private int breakerMinCalls;
+    @Value("${vault.crypto.breaker.failure-rate-threshold:50}")
+    private int breakerFailureRate;
+    @Value("${vault.crypto.breaker.open-seconds:30}")
+    private long breakerOpenSeconds;
+    @Value("${vault.crypto.breaker.half-open-probes:3}")
+    private int breakerHalfOpenProbes;
+
+    /**
+     * The driver gives ClientEncryption its own key vault client, but it is built from the
+     * shared settings so it is sized and instrumented like everything else.
+     */
+    @Bean(destroyMethod = "close")
+    public ClientEncryption clientEncryption(MongoClientSettings vaultMongoClientSettings) {
         Map<String, Map<String, Object>> kmsProviders = KeyUtils.loadMasterKey(masterKeyPath, kmsProviderName);
 
         ClientEncryptionSettings encryptionSettings = ClientEncryptionSettings.builder()
-                .keyVaultMongoClientSettings(
-                        MongoClientSettings.builder().applyConnectionString(new ConnectionString(uri)).build())
+                .keyVaultMongoClientSettings(vaultMongoClientSettings)
                 .keyVaultNamespace("encryption.__keyVault")
                 .kmsProviders(kmsProviders)
                 .build();
@@ -49,11 +68,11 @@ public class EncryptionConfig {
     }
 
     @Bean
-    public UUID dataKeyId(MongoClient regularClient, ClientEncryption clientEncryption) {
-        // Ensure KeyVault Index
-        regularClient.getDatabase("encryption").getCollection("__keyVault")
-                .createIndex(Indexes.ascending("keyAltNames"),
-                        new IndexOptions().unique(true).partialFilterExpression(Filters.exists("keyAltNames")));
+    @DependsOn("mongoConfig") // the unique keyAltNames index must exist before a key is created
+    public UUID dataKeyId(MongoClient regularClient, ClientEncryption clientEncryption, VaultSettingsRepository settings) {
+        // A completed or running key rotation has chosen the key; it outranks the configured alias
+        Optional<UUID> rotated = settings.findActiveKeyId();
+        if (rotated.isPresent()) return rotated.get();
 
         // Find or Create Data Key
         Document query = new Document("keyAltNames", keyAltName);
@@ -61,13 +80,54 @@ public class EncryptionConfig {
 
         if (keyDoc != null) {
             // FIX: Get as Binary first, then convert to UUID
-            Binary bsonBinary = keyDoc.get("_id", Binary.class);
-            ByteBuffer buffer = ByteBuffer.wrap(bsonBinary.getData());
-            return new UUID(buffer.getLong(), buffer.getLong());
+            return KeyUtils.toUuid(keyDoc.get("_id", Binary.class));
         }
 
         System.out.println("⚠️ Creating new Data Key...");
         return clientEncryption.createDataKey(kmsProviderName,
                 new DataKeyOptions().keyAltNames(List.of(keyAltName))).asUuid();
     }
+
+    /**
+     * Shared by the crypto engine and the reactive stack's direct ClientEncryption calls,
+     * so both see the same key vault health.
+     */
+    @Bean
+    public CryptoCircuitBreaker cryptoCircuitBreaker(VaultMetrics metrics) {
+        CryptoCircuitBreaker breaker = new CryptoCircuitBreaker(breakerWindowSize, breakerMinCalls, breakerFailureRate,
+                breakerOpenSeconds * 1000, breakerHalfOpenProbes, System::currentTimeMillis);
+        metrics.bindCryptoBreaker(breaker);
+        return breaker;
+    }
+
+    // --- Crypto engine (vault.security.crypto-engine) ---
+
+    /**
+     * Default: every encrypt/decrypt goes through libmongocrypt.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "vault.security.crypto-engine", havingValue = "client-encryption", matchIfMissing = true)
+    public CryptoEngine clientEncryptionCryptoEngine(ClientEncryption clientEncryption, UUID dataKeyId,
+                                                     CryptoCircuitBreaker breaker) {
+        return new CircuitBreakingCryptoEngine(new ClientEncryptionCryptoEngine(clientEncryption, dataKeyId), breaker);
+    }
+
+    /**
+     * In-process AEAD with the data key unwrapped once. Only possible with the local KMS,
+     * because that is the only provider whose master key we hold.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "vault.security.crypto-engine", havingValue = "local")
+    public CryptoEngine localCryptoEngine(MongoClient regularClient, UUID dataKeyId, CryptoCircuitBreaker breaker) {
+        if (!"local".equals(kmsProviderName)) {
+            throw new IllegalStateException("vault.security.crypto-engine=local requires vault.security.kms-provider=local");
+        }
+        byte[] masterKey = (byte[]) KeyUtils.loadMasterKey(masterKeyPath, kmsProviderName).get(kmsProviderName).get("key");
+        try {
+            System.out.println("⚡ Using local AEAD crypto engine.");
+            return new CircuitBreakingCryptoEngine(new LocalAeadCryptoEngine(regularClient, masterKey, dataKeyId), breaker);
+        } finally {
+            Arrays.fill(masterKey, (byte) 0);
+        }
+    }
 }
\ No newline at end of file
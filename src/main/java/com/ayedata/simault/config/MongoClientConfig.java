@@ -0,0 +1,115 @@
+package com.ayedata.simault.config;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
+import com.mongodb.ReadConcern;
+import com.mongodb.ReadConcernLevel;
+import com.mongodb.WriteConcern;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.mongodb.MongoMetricsCommandListener;
+import io.micrometer.core.instrument.binder.mongodb.MongoMetricsConnectionPoolListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The one connection layer of the process. Every repository, service and the key vault
+ * client of ClientEncryption are built from these settings, so there is a single place
+ * to size the pool. Defining the MongoClient here also makes Spring Boot's own
+ * (spring.data.mongodb.*) client back off.
+ *
+ * The vault.mongodb.pool.* properties take precedence over pool options in the URI.
+ * Pool usage is published as mongodb.driver.pool.* (size, checkedout, waitqueuesize).
+ */
+@Configuration
+public class MongoClientConfig {
+
+    @Value("${vault.mongodb.uri}")
+    private String uri;
+
+    // --- Pool ---
+    @Value("${vault.mongodb.pool.max-size:100}")
+    private int maxPoolSize;
+    @Value("${vault.mongodb.pool.min-size:0}")
+    private int minPoolSize;
+    // How long a request waits for a free connection before failing (the wait-queue timeout)
+    @Value("${vault.mongodb.pool.max-wait-ms:2000}")
+    private long maxWaitMs;
+    @Value("${vault.mongodb.pool.max-idle-ms:60000}")
+    private long maxIdleMs;
+    @Value("${vault.mongodb.pool.max-connecting:2}")
+    private int maxConnecting;
+
+    // --- Wire & consistency ---
+    // Comma-separated, in order of preference: zstd, snappy, zlib. Empty = no compression.
+    @Value("${vault.mongodb.compressors:}")
+    private List<String> compressors;
+    @Value("${vault.mongodb.read-concern:majority}")
+    private String readConcern;
+    @Value("${vault.mongodb.write-concern:majority}")
+    private String writeConcern;
+
+    @Value("${vault.mongodb.metrics.commands:true}")
+    private boolean commandMetrics;
+
+    @Bean
+    public MongoClientSettings vaultMongoClientSettings(MeterRegistry meterRegistry) {
+        MongoClientSettings.Builder builder = MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString(uri))
+                .applicationName("simault")
+                .applyToConnectionPoolSettings(pool -> pool
+                        .maxSize(maxPoolSize)
+                        .minSize(minPoolSize)
+                        .maxWaitTime(maxWaitMs, TimeUnit.MILLISECONDS)
+                        .maxConnectionIdleTime(maxIdleMs, TimeUnit.MILLISECONDS)
+                        .maxConnecting(maxConnecting)
+                        .addConnectionPoolListener(new MongoMetricsConnectionPoolListener(meterRegistry)))
+                .readConcern(new ReadConcern(ReadConcernLevel.fromString(readConcern)))
+                .writeConcern(parseWriteConcern(writeConcern));
+
+        List<MongoCompressor> compressorList = parseCompressors(compressors);
+        if (!compressorList.isEmpty()) builder.compressorList(compressorList);
+        if (commandMetrics) builder.addCommandListener(new MongoMetricsCommandListener(meterRegistry));
+
+        System.out.println("🔌 MongoDB pool: max " + maxPoolSize + ", min " + minPoolSize + ", wait " + maxWaitMs + " ms, read concern "
+                + readConcern + ", write concern " + writeConcern);
+        return builder.build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public MongoClient mongoClient(MongoClientSettings vaultMongoClientSettings) {
+        return MongoClients.create(vaultMongoClientSettings);
+    }
+
+    private static WriteConcern parseWriteConcern(String value) {
+        if ("majority".equalsIgnoreCase(value)) return WriteConcern.MAJORITY;
+        try {
+            return new WriteConcern(Integer.parseInt(value));
+        } catch (NumberFormatException e) {
+            // Custom tag set name defined on the replica set
+            return new WriteConcern(value);
+        }
+    }
+
+    private static List<MongoCompressor> parseCompressors(List<String> names) {
+        List<MongoCompressor> result = new ArrayList<>();
+        for (String name : names) {
+            switch (name.trim().toLowerCase()) {
+                case "" -> { }
+                // zstd and snappy need com.github.luben:zstd-jni / org.xerial.snappy:snappy-java at runtime
+                case "zstd" -> result.add(MongoCompressor.createZstdCompressor());
+                case "snappy" -> result.add(MongoCompressor.createSnappyCompressor());
+                case "zlib" -> result.add(MongoCompressor.createZlibCompressor());
+                default -> throw new IllegalStateException("Unknown vault.mongodb.compressors entry: " + name);
+            }
+        }
+        return result;
+    }
+}
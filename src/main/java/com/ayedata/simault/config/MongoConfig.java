@@ -1,21 +1,33 @@
 package com.ayedata.simault.config;
 
+import com.ayedata.simault.audit.AuditLog;
+import com.ayedata.simault.repository.LeaseRepository;
+import com.ayedata.simault.service.SecretChangeNotifier;
+import com.mongodb.MongoCommandException;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.IndexOptions;
 import com.mongodb.client.model.Indexes;
+import com.mongodb.client.result.UpdateResult;
 import jakarta.annotation.PostConstruct;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class MongoConfig {
 
+    private static final int INDEX_OPTIONS_CONFLICT = 85;
+    private static final int INDEX_KEY_SPECS_CONFLICT = 86;
+    private static final int DUPLICATE_KEY = 11000;
+    private static final int INDEX_NOT_FOUND = 27;
+
     private final MongoClient mongoClient;
 
     @Value("${vault.mongodb.database}")
@@ -24,6 +36,18 @@ public class MongoConfig {
     @Value("${vault.mongodb.collection}")
     private String secretsCollName;
 
+    @Value("${vault.audit.retention-days:90}")
+    private long auditRetentionDays;
+
+    @Value("${vault.watch.checkpoint-retention-days:7}")
+    private long checkpointRetentionDays;
+
+    @Value("${vault.lease.ttl-index-grace-seconds:300}")
+    private long ttlIndexGraceSeconds;
+
+    @Value("${vault.secrets.default-ttl-seconds:3600}")
+    private long defaultTtlSeconds;
+
     public MongoConfig(MongoClient mongoClient) {
         this.mongoClient = mongoClient;
     }
@@ -50,17 +74,27 @@ public class MongoConfig {
         // =================================================================
         MongoCollection<Document> secretsColl = db.getCollection(secretsCollName);
 
-        // [TTL Index] Auto-expire secrets after 1 hour (3600 seconds)
-        secretsColl.createIndex(
-            Indexes.ascending("createdAt"),
-            new IndexOptions().expireAfter(3600L, TimeUnit.SECONDS)
-        );
+        // Secrets written before each one carried its own expiry get it from the default TTL
+        backfillExpireAt(secretsColl);
+
+        // [TTL Index] Each secret expires at its own expireAt (TTLs are per app). Backstop only:
+        // SecretExpiryScheduler removes secrets when they expire, this catches what it missed
+        // (e.g. no node running) a grace period later
+        ensureSecretTtlIndex(secretsColl, ttlIndexGraceSeconds);
+        // Earlier versions expired every secret a fixed time after createdAt
+        dropIndexIfPresent(secretsColl, "createdAt_1");
 
-        // [Performance Index] Fast lookup by App ID (Critical for getSecret)
+        // [Unique Index] Fast lookup by App ID (Critical for getSecret), and at most
+        // one secret per app so rotation can be a single atomic upsert
+        ensureUniqueAppIdIndex(secretsColl);
+
+        // [Covering Index] Lets conditional GETs and health checks read a secret's version
+        // (createdAt) and expiry from the index without fetching the document
         secretsColl.createIndex(
-            Indexes.ascending("appId"),
-            new IndexOptions().background(true)
+            Indexes.ascending("appId", "createdAt", "expireAt")
         );
+        // The previous covering index, a prefix of the one above
+        dropIndexIfPresent(secretsColl, "appId_1_createdAt_1");
 
         // =================================================================
         // 3. ALLOWED APPS COLLECTION (Registry)
@@ -73,16 +107,129 @@ public class MongoConfig {
             new IndexOptions().unique(true)
         );
 
-        // [Sort Index] Efficiently list apps by registration date (Admin Dashboard)
+        // [Sort Index] Keyset pages of apps, newest registration first; appId breaks ties
         appsColl.createIndex(
-            Indexes.descending("registeredAt")
+            Indexes.compoundIndex(Indexes.descending("registeredAt"), Indexes.ascending("appId"))
         );
+        // Earlier versions indexed registeredAt alone, a prefix of the index above
+        dropIndexIfPresent(appsColl, "registeredAt_-1");
 
         // [Text Index] Enable fuzzy search by description (for AI/MCP Search)
         appsColl.createIndex(
             Indexes.text("description")
         );
 
+        // =================================================================
+        // 4. LEASES COLLECTION (Background work coordination)
+        // =================================================================
+        MongoCollection<Document> leasesColl = db.getCollection(LeaseRepository.COLLECTION_NAME);
+
+        // [TTL Index] Clean up leases left behind by crashed nodes
+        leasesColl.createIndex(
+            Indexes.ascending("expiresAt"),
+            new IndexOptions().expireAfter(0L, TimeUnit.SECONDS)
+        );
+
+        // =================================================================
+        // 5. AUDIT EVENTS COLLECTION
+        // =================================================================
+        MongoCollection<Document> auditColl = db.getCollection(AuditLog.COLLECTION_NAME);
+
+        // [TTL Index] Keep the audit trail for vault.audit.retention-days
+        auditColl.createIndex(
+            Indexes.ascending("timestamp"),
+            new IndexOptions().expireAfter(TimeUnit.DAYS.toSeconds(auditRetentionDays), TimeUnit.SECONDS)
+        );
+
+        // [Query Index] "Who touched this app's secret, most recent first"
+        auditColl.createIndex(
+            Indexes.compoundIndex(Indexes.ascending("appId"), Indexes.descending("timestamp"))
+        );
+
+        // =================================================================
+        // 6. WATCH CHECKPOINTS COLLECTION
+        // =================================================================
+        MongoCollection<Document> checkpointsColl = db.getCollection(SecretChangeNotifier.CHECKPOINT_COLLECTION);
+
+        // [TTL Index] Drop resume tokens of nodes that stopped checkpointing (renamed or retired);
+        // a token that old has usually left the oplog anyway
+        checkpointsColl.createIndex(
+            Indexes.ascending("updatedAt"),
+            new IndexOptions().expireAfter(TimeUnit.DAYS.toSeconds(checkpointRetentionDays), TimeUnit.SECONDS)
+        );
+
         System.out.println("✅ All MongoDB Indexes Configured Successfully.");
     }
+
+    private void dropIndexIfPresent(MongoCollection<Document> coll, String indexName) {
+        try {
+            coll.dropIndex(indexName);
+            System.out.println("🧹 Dropped superseded index " + indexName + " on " + coll.getNamespace().getCollectionName());
+        } catch (MongoCommandException e) {
+            if (e.getErrorCode() != INDEX_NOT_FOUND) throw e;
+        }
+    }
+
+    /**
+     * vault.lease.ttl-index-grace-seconds may change between restarts.
+     * expireAfterSeconds is the one option collMod can change in place.
+     */
+    private void ensureSecretTtlIndex(MongoCollection<Document> secretsColl, long expireAfterSeconds) {
+        try {
+            secretsColl.createIndex(Indexes.ascending("expireAt"),
+                new IndexOptions().expireAfter(expireAfterSeconds, TimeUnit.SECONDS));
+        } catch (MongoCommandException e) {
+            if (e.getErrorCode() != INDEX_OPTIONS_CONFLICT) throw e;
+            System.out.println("⚠️ Changing TTL of the secrets expireAt index to " + expireAfterSeconds + " seconds...");
+            mongoClient.getDatabase(dbName).runCommand(new Document("collMod", secretsCollName)
+                .append("index", new Document("keyPattern", new Document("expireAt", 1))
+                    .append("expireAfterSeconds", expireAfterSeconds)));
+        }
+    }
+
+    /**
+     * One server-side pipeline update: expireAt = createdAt + default TTL, for documents
+     * written before secrets carried their own expiry. Nothing to do after the first run.
+     */
+    private void backfillExpireAt(MongoCollection<Document> secretsColl) {
+        UpdateResult result = secretsColl.updateMany(
+            Filters.exists("expireAt", false),
+            List.of(new Document("$set", new Document("expireAt",
+                new Document("$add", List.of("$createdAt", defaultTtlSeconds * 1000))))));
+        if (result.getModifiedCount() > 0) {
+            System.out.println("🕒 Gave " + result.getModifiedCount() + " secrets an expireAt from the default TTL.");
+        }
+    }
+
+    /**
+     * Earlier versions created a non-unique appId index on the secrets collection.
+     * MongoDB refuses to change index options in place, so swap it for the unique one.
+     * Startup fails if the unique index cannot be built: the single-secret-per-app
+     * guarantee of the rotation upserts rests on it.
+     */
+    private void ensureUniqueAppIdIndex(MongoCollection<Document> secretsColl) {
+        try {
+            createUniqueIndex(secretsColl, Indexes.ascending("appId"));
+        } catch (MongoCommandException e) {
+            if (e.getErrorCode() != INDEX_OPTIONS_CONFLICT && e.getErrorCode() != INDEX_KEY_SPECS_CONFLICT) throw e;
+            System.out.println("⚠️ Replacing non-unique appId index on secrets with a unique one...");
+            // Enforce uniqueness under the descending key (a distinct index to MongoDB) before
+            // dropping anything, so duplicates leave the old index in place
+            createUniqueIndex(secretsColl, Indexes.descending("appId"));
+            secretsColl.dropIndex(Indexes.ascending("appId"));
+            createUniqueIndex(secretsColl, Indexes.ascending("appId"));
+        }
+        // The stand-in, also left behind if a node died halfway through the swap
+        dropIndexIfPresent(secretsColl, "appId_-1");
+    }
+
+    private void createUniqueIndex(MongoCollection<Document> secretsColl, Bson keys) {
+        try {
+            secretsColl.createIndex(keys, new IndexOptions().unique(true));
+        } catch (MongoCommandException e) {
+            if (e.getErrorCode() != DUPLICATE_KEY) throw e;
+            throw new IllegalStateException("Several secrets share an appId in " + secretsCollName
+                + "; remove the duplicates and restart. The unique appId index is required.", e);
+        }
+    }
 }
\ No newline at end of file
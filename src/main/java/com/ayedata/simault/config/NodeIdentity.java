@@ -0,0 +1,35 @@
+package com.ayedata.simault.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Identifies this Simault process among the nodes sharing a database.
+ * Defaults to "pid@hostname" unless vault.node-id is set. The pid keeps two processes
+ * on one host apart (lease ownership), but changes on every restart; state that must
+ * survive a restart is keyed by stableId() instead.
+ */
+@Component
+public class NodeIdentity {
+
+    private final String nodeId;
+    private final String stableId;
+
+    public NodeIdentity(@Value("${vault.node-id:}") String configuredId) {
+        String processName = ManagementFactory.getRuntimeMXBean().getName();
+        this.nodeId = configuredId.isBlank() ? processName : configuredId;
+        // "pid@hostname" -> "hostname"
+        this.stableId = configuredId.isBlank() ? processName.substring(processName.indexOf('@') + 1) : configuredId;
+    }
+
+    public String id() {
+        return nodeId;
+    }
+
+    /** vault.node-id, or the hostname: the same across restarts of this node. */
+    public String stableId() {
+        return stableId;
+    }
+}
@@ -0,0 +1,213 @@
+package com.ayedata.simault.config;
+
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.ReadPreference;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.FindOneAndReplaceOptions;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import jakarta.annotation.PostConstruct;
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
+import org.bson.conversions.Bson;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Where secret and allowlist lookups are read from.
+ *
+ * vault.mongodb.read-routing=primary (default) keeps every read on the primary. With
+ * =secondary, lookups go to secondaryPreferred, skipping members more than
+ * read-max-staleness-seconds behind (MongoDB's floor is 90 s). Writes always go to the primary.
+ * The bound is on staleness, not zero: a rotation done by another node, or a revocation
+ * while the allowlist snapshot is stale, can take up to that long to show up.
+ *
+ * Read-your-writes comes from causally consistent sessions, opened only in secondary mode
+ * (on the primary they would buy nothing, so reads and writes run without one and the
+ * callbacks get a null session). A tracked write records its session's cluster and
+ * operation time under a key (an appId, or REGISTRY), and a later read of that key starts
+ * its session from there, so the secondary waits until it has replicated the write.
+ * Rotations by other nodes are marked the same way from their change stream event
+ * (observed()), so once this node has seen a rotation it never reads an older secret.
+ * That leaves one window: between another node's write and its event reaching this
+ * node's change stream (normally milliseconds), a read here may still see the old secret.
+ * Marks are dropped once they are older than the staleness bound, because every eligible
+ * secondary has the write by then.
+ */
+@Component
+public class ReadRouting {
+
+    // Key for writes to the allowlist
+    public static final String REGISTRY = "registry";
+    public static final ClientSessionOptions CAUSAL = ClientSessionOptions.builder().causallyConsistent(true).build();
+
+    @Value("${vault.mongodb.read-routing:primary}")
+    private String mode;
+    @Value("${vault.mongodb.read-max-staleness-seconds:90}")
+    private long maxStalenessSeconds;
+
+    private final MongoClient mongoClient;
+    private ReadPreference readPreference = ReadPreference.primary();
+    private boolean secondary;
+
+    // key -> point in time of this node's last tracked write for it
+    private final ConcurrentHashMap<String, WriteMark> lastWrites = new ConcurrentHashMap<>();
+
+    private record WriteMark(BsonDocument clusterTime, BsonTimestamp operationTime, long recordedAt) {}
+
+    public ReadRouting(MongoClient mongoClient) {
+        this.mongoClient = mongoClient;
+    }
+
+    @PostConstruct
+    public void init() {
+        switch (mode.trim().toLowerCase()) {
+            case "primary" -> secondary = false;
+            case "secondary" -> {
+                if (maxStalenessSeconds < 90) {
+                    throw new IllegalStateException("vault.mongodb.read-max-staleness-seconds must be at least 90, got "
+                            + maxStalenessSeconds);
+                }
+                secondary = true;
+                readPreference = ReadPreference.secondaryPreferred(maxStalenessSeconds, TimeUnit.SECONDS);
+            }
+            default -> throw new IllegalStateException("Unknown vault.mongodb.read-routing: " + mode);
+        }
+        System.out.println("📖 Read routing: " + (secondary
+                ? "secondaries (max staleness " + maxStalenessSeconds + " s)"
+                : "primary"));
+    }
+
+    public boolean isSecondary() {
+        return secondary;
+    }
+
+    public ReadPreference readPreference() {
+        return readPreference;
+    }
+
+    /** The collection with this node's read preference applied. */
+    public <T> MongoCollection<T> forReads(MongoCollection<T> collection) {
+        return collection.withReadPreference(readPreference);
+    }
+
+    public <T> T read(String key, Function<ClientSession, T> query) {
+        return read(List.of(key), query);
+    }
+
+    /**
+     * Runs the query in a session that will not see anything older than the writes marked
+     * for keys. On the primary there is nothing to wait for: the query gets a null session.
+     */
+    public <T> T read(Collection<String> keys, Function<ClientSession, T> query) {
+        if (!secondary) return query.apply(null);
+        try (ClientSession session = mongoClient.startSession(CAUSAL)) {
+            advance(session, keys);
+            return query.apply(session);
+        }
+    }
+
+    /**
+     * Runs a write in a session and records its point in time under key.
+     * On the primary nothing needs recording: the command gets a null session.
+     */
+    public <T> T write(String key, Function<ClientSession, T> command) {
+        if (!secondary) return command.apply(null);
+        try (ClientSession session = mongoClient.startSession(CAUSAL)) {
+            T result = command.apply(session);
+            remember(key, session);
+            return result;
+        }
+    }
+
+    /**
+     * Moves a session (sync or reactive) past the writes recorded for keys.
+     * No-op when reads stay on the primary.
+     */
+    public void advance(com.mongodb.session.ClientSession session, Collection<String> keys) {
+        if (!secondary) return;
+        long oldest = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(maxStalenessSeconds);
+        for (String key : keys) {
+            WriteMark mark = lastWrites.get(key);
+            if (mark == null) continue;
+            if (mark.recordedAt() < oldest) {
+                lastWrites.remove(key, mark);
+                continue;
+            }
+            if (mark.clusterTime() != null) session.advanceClusterTime(mark.clusterTime());
+            session.advanceOperationTime(mark.operationTime());
+        }
+    }
+
+    /** Records the point in time of a write done in session (sync or reactive). */
+    public void remember(String key, com.mongodb.session.ClientSession session) {
+        if (!secondary || session.getOperationTime() == null) return;
+        WriteMark mark = new WriteMark(session.getClusterTime(), session.getOperationTime(), System.currentTimeMillis());
+        // Concurrent writes for one key: keep the later one
+        lastWrites.merge(key, mark, (a, b) -> b.operationTime().compareTo(a.operationTime()) >= 0 ? b : a);
+    }
+
+    /**
+     * Records a write another node made to key, at the cluster time of its change stream
+     * event, so reads of key on this node wait for it as they do for local writes.
+     */
+    public void observed(String key, BsonTimestamp clusterTime) {
+        if (!secondary || clusterTime == null) return;
+        // The client gossips the signed $clusterTime it got with the event; the session needs only the operation time
+        WriteMark mark = new WriteMark(null, clusterTime, System.currentTimeMillis());
+        lastWrites.merge(key, mark, (a, b) -> b.operationTime().compareTo(a.operationTime()) >= 0 ? b : a);
+    }
+
+    // --- Operations with an optional session (null when reads stay on the primary) ---
+
+    public static <T> FindIterable<T> find(MongoCollection<T> collection, ClientSession session, Bson filter) {
+        return session == null ? collection.find(filter) : collection.find(session, filter);
+    }
+
+    public static long countDocuments(MongoCollection<?> collection, ClientSession session, Bson filter) {
+        return session == null ? collection.countDocuments(filter) : collection.countDocuments(session, filter);
+    }
+
+    public static <T> UpdateResult replaceOne(MongoCollection<T> collection, ClientSession session, Bson filter,
+                                              T replacement, ReplaceOptions options) {
+        return session == null
+                ? collection.replaceOne(filter, replacement, options)
+                : collection.replaceOne(session, filter, replacement, options);
+    }
+
+    public static DeleteResult deleteOne(MongoCollection<?> collection, ClientSession session, Bson filter) {
+        return session == null ? collection.deleteOne(filter) : collection.deleteOne(session, filter);
+    }
+
+    public static <T> T findOneAndReplace(MongoCollection<T> collection, ClientSession session, Bson filter,
+                                          T replacement, FindOneAndReplaceOptions options) {
+        return session == null
+                ? collection.findOneAndReplace(filter, replacement, options)
+                : collection.findOneAndReplace(session, filter, replacement, options);
+    }
+
+    public static <T> T findOneAndUpdate(MongoCollection<T> collection, ClientSession session, Bson filter,
+                                         Bson update, FindOneAndUpdateOptions options) {
+        return session == null
+                ? collection.findOneAndUpdate(filter, update, options)
+                : collection.findOneAndUpdate(session, filter, update, options);
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void expireMarks() {
+        long oldest = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(maxStalenessSeconds);
+        lastWrites.values().removeIf(mark -> mark.recordedAt() < oldest);
+    }
+}
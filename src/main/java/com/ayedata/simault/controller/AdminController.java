@@ -1,23 +1,45 @@
 package com.ayedata.simault.controller;
 
+import com.ayedata.simault.audit.AuditLog;
+import com.ayedata.simault.crypto.CryptoEngine;
 import com.ayedata.simault.model.AllowedApp;
+import com.ayedata.simault.model.AppPage;
+import com.ayedata.simault.model.AuditEvent;
+import com.ayedata.simault.model.BulkRotationRequest;
+import com.ayedata.simault.model.BulkRotationStatus;
+import com.ayedata.simault.model.FleetHealthReport;
+import com.ayedata.simault.model.KeyRotationRequest;
+import com.ayedata.simault.model.KeyRotationStatus;
 import com.ayedata.simault.model.VaultKey;
 import com.ayedata.simault.repository.AppRegistryRepository;
+import com.ayedata.simault.service.BulkRotationService;
+import com.ayedata.simault.service.KeyRotationService;
+import com.ayedata.simault.service.SecretCache;
+import com.ayedata.simault.service.SecretHealthService;
+import com.ayedata.simault.util.KeyUtils;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.bson.BsonBinary;
 import org.bson.Document;
 import org.bson.types.Binary;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
 
-import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/admin")
@@ -28,6 +50,12 @@ public class AdminController {
 
     private final AppRegistryRepository registry;
     private final MongoClient mongoClient;
+    private final SecretCache secretCache;
+    private final BulkRotationService bulkRotation;
+    private final KeyRotationService keyRotation;
+    private final CryptoEngine cryptoEngine;
+    private final SecretHealthService healthService;
+    private final AuditLog audit;
 
     @Value("${vault.admin.api-key}")
     private String adminApiKey;
@@ -35,20 +63,29 @@ public class AdminController {
     @Value("${vault.security.key-alt-name}")
     private String defaultKeyAltName;
 
-    public AdminController(AppRegistryRepository registry, MongoClient mongoClient) {
+    public AdminController(AppRegistryRepository registry, MongoClient mongoClient, SecretCache secretCache,
+                           BulkRotationService bulkRotation, KeyRotationService keyRotation,
+                           CryptoEngine cryptoEngine, SecretHealthService healthService, AuditLog audit) {
         this.registry = registry;
         this.mongoClient = mongoClient;
+        this.secretCache = secretCache;
+        this.bulkRotation = bulkRotation;
+        this.keyRotation = keyRotation;
+        this.cryptoEngine = cryptoEngine;
+        this.healthService = healthService;
+        this.audit = audit;
     }
 
     /**
      * Helper to check authorization and log failures.
      */
-    private boolean isUnauthorized(String requestKey) {
+    private boolean isUnauthorized(String requestKey, String action) {
         // Log the key with "token=" prefix so the Regex Replacement picks it up and redacts it.
         logger.debug("Validating admin access for token={}", requestKey);
 
         if (requestKey == null || !requestKey.equals(adminApiKey)) {
             logger.warn("Unauthorized access attempt. Invalid or missing API key.");
+            audit.record(action, AuditEvent.ADMIN, null, AuditEvent.DENIED, "invalid or missing API key");
             return true;
         }
         return false;
@@ -61,18 +98,22 @@ public class AdminController {
             @RequestHeader(value = "X-ADMIN-KEY", required = false) String apiKey,
             @RequestParam(required = false) String altName) {
 
-        if (isUnauthorized(apiKey)) {
+        if (isUnauthorized(apiKey, AuditEvent.KEY_READ)) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
-        // 1. Determine which key name to search for
-        String searchName = (altName != null && !altName.isBlank()) ? altName : defaultKeyAltName;
+        // 1. Determine which key to search for: the named alias, or else the active key
+        //    (after a key rotation that is no longer the one called vault.security.key-alt-name)
+        boolean byAlias = altName != null && !altName.isBlank();
+        String searchName = byAlias ? altName : defaultKeyAltName + " (active)";
         logger.info("Admin requesting key details for alias: '{}'", searchName);
 
         try {
             // 2. Query MongoDB
             MongoCollection<Document> keyVault = mongoClient.getDatabase("encryption").getCollection("__keyVault");
-            Document keyDoc = keyVault.find(new Document("keyAltNames", searchName)).first();
+            Document keyDoc = keyVault.find(byAlias
+                    ? Filters.eq("keyAltNames", altName)
+                    : Filters.eq("_id", new BsonBinary(cryptoEngine.activeKeyId()))).first();
 
             if (keyDoc == null) {
                 logger.warn("Key not found for alias: '{}'", searchName);
@@ -80,20 +121,21 @@ public class AdminController {
             }
 
             // 3. Map BSON to Java Model (VaultKey)
-            Binary bsonBinary = keyDoc.get("_id", Binary.class);
-            ByteBuffer buffer = ByteBuffer.wrap(bsonBinary.getData());
-            UUID keyId = new UUID(buffer.getLong(), buffer.getLong());
+            UUID keyId = KeyUtils.toUuid(keyDoc.get("_id", Binary.class));
+            List<String> aliases = keyDoc.getList("keyAltNames", String.class, List.of());
 
             String provider = keyDoc.get("masterKey", Document.class).getString("provider");
 
             VaultKey response = new VaultKey(
-                searchName,
+                byAlias || aliases.isEmpty() ? searchName : aliases.get(0),
                 keyId.toString(),
-                "Active",
+                // Retired keys still decrypt secrets written before the last key rotation
+                keyId.equals(cryptoEngine.activeKeyId()) ? "Active" : "Retired",
                 provider
             );
 
             logger.info("Key details retrieved successfully for alias: '{}'", searchName);
+            audit.record(AuditEvent.KEY_READ, AuditEvent.ADMIN, null, AuditEvent.SUCCESS, keyId.toString());
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
@@ -102,17 +144,110 @@ public class AdminController {
         }
     }
 
+    @PostMapping("/keys/rotate")
+    public ResponseEntity<KeyRotationStatus> rotateDataKey(
+            @RequestHeader(value = "X-ADMIN-KEY", required = false) String apiKey,
+            @RequestBody(required = false) KeyRotationRequest request) {
+
+        if (isUnauthorized(apiKey, AuditEvent.KEY_ROTATE)) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+
+        String mode = request != null && request.mode() != null ? request.mode() : KeyRotationStatus.NEW_KEY;
+        logger.warn("Data key rotation requested (mode: {})", mode);
+
+        try {
+            Document masterKey = request != null && request.masterKey() != null ? new Document(request.masterKey()) : null;
+            KeyRotationStatus status = keyRotation.start(mode, masterKey);
+            audit.record(AuditEvent.KEY_ROTATE, AuditEvent.ADMIN, null, AuditEvent.SUCCESS, mode);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(status);
+        } catch (IllegalStateException e) {
+            logger.warn("Data key rotation refused: {}", e.getMessage());
+            audit.record(AuditEvent.KEY_ROTATE, AuditEvent.ADMIN, null, AuditEvent.ERROR, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IllegalArgumentException e) {
+            logger.warn("Data key rotation rejected: {}", e.getMessage());
+            audit.record(AuditEvent.KEY_ROTATE, AuditEvent.ADMIN, null, AuditEvent.ERROR, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            logger.error("Data key rotation failed to start", e);
+            audit.record(AuditEvent.KEY_ROTATE, AuditEvent.ADMIN, null, AuditEvent.ERROR);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @GetMapping("/keys/rotation")
+    public ResponseEntity<KeyRotationStatus> dataKeyRotationStatus(
+            @RequestHeader(value = "X-ADMIN-KEY", required = false) String apiKey) {
+        if (isUnauthorized(apiKey, AuditEvent.KEY_ROTATE)) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+
+        return ResponseEntity.of(keyRotation.status());
+    }
+
     // --- APP ENDPOINTS ---
 
+    /**
+     * One page of allowed apps, newest registration first. The body stays a JSON array;
+     * the cursor for the next page comes back in X-Next-Cursor (absent on the last page).
+     * q searches the descriptions (text index), fields restricts the returned fields.
+     */
     @GetMapping("/apps")
-    public ResponseEntity<List<AllowedApp>> listApps(@RequestHeader(value = "X-ADMIN-KEY", required = false) String apiKey) {
-        if (isUnauthorized(apiKey)) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-        
-        logger.info("Fetching list of all allowed apps.");
-        List<AllowedApp> apps = registry.findAll();
-        logger.debug("Found {} registered apps.", apps.size());
+    public ResponseEntity<List<AllowedApp>> listApps(
+            @RequestHeader(value = "X-ADMIN-KEY", required = false) String apiKey,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String fields) {
+        if (isUnauthorized(apiKey, AuditEvent.APP_LIST)) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         
-        return ResponseEntity.ok(apps);
+        logger.info("Fetching a page of allowed apps (cursor: {}, search: {}).", cursor, q);
+        AppPage page;
+        try {
+            page = registry.findPage(q, cursor, limit, parseFields(fields));
+        } catch (IllegalArgumentException e) {
+            // Not an authorization failure: keep it away from the 403 handler
+            logger.warn("Invalid app listing request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+        logger.debug("Returning {} registered apps.", page.apps().size());
+        audit.record(AuditEvent.APP_LIST, AuditEvent.ADMIN, null, AuditEvent.SUCCESS);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) response.header("X-Next-Cursor", page.nextCursor());
+        return response.body(page.apps());
+    }
+
+    /**
+     * Every allowed app (or every match of q) as newline-delimited JSON, written as the
+     * driver cursor advances, so the whole registry is never held in memory.
+     */
+    @GetMapping(value = "/apps/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<AllowedApp>> exportApps(
+            @RequestHeader(value = "X-ADMIN-KEY", required = false) String apiKey,
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String fields) {
+        if (isUnauthorized(apiKey, AuditEvent.APP_LIST)) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+
+        Set<String> projection;
+        try {
+            projection = parseFields(fields);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid app export request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+        logger.info("Streaming allowed apps (search: {}).", q);
+        audit.record(AuditEvent.APP_LIST, AuditEvent.ADMIN, null, AuditEvent.SUCCESS, "export");
+
+        // generate() pulls one document per request from the subscriber, so the cursor
+        // is only advanced as fast as the response is written
+        Flux<AllowedApp> apps = Flux.<AllowedApp, MongoCursor<AllowedApp>>generate(
+                () -> registry.openListingCursor(q, projection),
+                (appCursor, sink) -> {
+                    if (appCursor.hasNext()) sink.next(appCursor.next());
+                    else sink.complete();
+                    return appCursor;
+                },
+                MongoCursor::close)
+            .subscribeOn(Schedulers.boundedElastic());
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(apps);
     }
 
     @PostMapping("/apps")
@@ -120,7 +255,7 @@ public class AdminController {
             @RequestHeader(value = "X-ADMIN-KEY", required = false) String apiKey,
             @RequestBody Map<String, String> payload) {
         
-        if (isUnauthorized(apiKey)) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("⛔ Unauthorized");
+        if (isUnauthorized(apiKey, AuditEvent.APP_REGISTER)) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("⛔ Unauthorized");
         
         String appId = payload.get("appId");
         
@@ -134,11 +269,21 @@ public class AdminController {
         }
 
         try {
-            registry.registerApp(appId, payload.get("description"));
+            // Optional per-app settings; absent means the vault defaults
+            Long ttlSeconds = payload.get("ttlSeconds") != null ? Long.valueOf(payload.get("ttlSeconds")) : null;
+            Integer secretLength = payload.get("secretLength") != null ? Integer.valueOf(payload.get("secretLength")) : null;
+            registry.registerApp(appId, payload.get("description"), ttlSeconds, secretLength);
             logger.info("✅ App registered successfully: {}", appId);
+            audit.record(AuditEvent.APP_REGISTER, AuditEvent.ADMIN, appId, AuditEvent.SUCCESS);
             return ResponseEntity.ok("✅ App registered: " + appId);
+        } catch (IllegalArgumentException e) {
+            // Includes NumberFormatException for a non-numeric ttlSeconds or secretLength
+            logger.warn("Registration rejected for {}: {}", appId, e.getMessage());
+            audit.record(AuditEvent.APP_REGISTER, AuditEvent.ADMIN, appId, AuditEvent.ERROR, e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
             logger.error("Failed to register app: {}", appId, e);
+            audit.record(AuditEvent.APP_REGISTER, AuditEvent.ADMIN, appId, AuditEvent.ERROR);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Registration failed");
         }
     }
@@ -148,17 +293,116 @@ public class AdminController {
             @RequestHeader(value = "X-ADMIN-KEY", required = false) String apiKey,
             @PathVariable String appId) {
         
-        if (isUnauthorized(apiKey)) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("⛔ Unauthorized");
+        if (isUnauthorized(apiKey, AuditEvent.APP_REMOVE)) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("⛔ Unauthorized");
 
         logger.info("Attempting to revoke access for app: {}", appId);
 
         try {
             registry.removeApp(appId);
             logger.info("🚫 Access revoked successfully for: {}", appId);
+            audit.record(AuditEvent.APP_REMOVE, AuditEvent.ADMIN, appId, AuditEvent.SUCCESS);
             return ResponseEntity.ok("🚫 Access revoked for: " + appId);
         } catch (Exception e) {
             logger.error("Failed to revoke app: {}", appId, e);
+            audit.record(AuditEvent.APP_REMOVE, AuditEvent.ADMIN, appId, AuditEvent.ERROR);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Revocation failed");
         }
     }
-}
\ No newline at end of file
+
+    // --- CACHE ENDPOINT ---
+
+    @GetMapping("/cache")
+    public ResponseEntity<Map<String, Object>> cacheStats(@RequestHeader(value = "X-ADMIN-KEY", required = false) String apiKey) {
+        if (isUnauthorized(apiKey, AuditEvent.CACHE_READ)) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+
+        logger.info("Fetching secret cache statistics.");
+        audit.record(AuditEvent.CACHE_READ, AuditEvent.ADMIN, null, AuditEvent.SUCCESS);
+        return ResponseEntity.ok(secretCache.stats());
+    }
+
+    // --- HEALTH ENDPOINT ---
+
+    @GetMapping("/health/secrets")
+    public ResponseEntity<FleetHealthReport> fleetHealth(
+            @RequestHeader(value = "X-ADMIN-KEY", required = false) String apiKey,
+            @RequestParam(required = false) Long expiringWithinSeconds,
+            @RequestParam(required = false) Integer maxListed) {
+        if (isUnauthorized(apiKey, AuditEvent.SECRET_HEALTH)) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+
+        logger.info("Building fleet secret health report.");
+        try {
+            FleetHealthReport report = healthService.fleetReport(expiringWithinSeconds, maxListed);
+            audit.record(AuditEvent.SECRET_HEALTH, AuditEvent.ADMIN, null, AuditEvent.SUCCESS, "fleet");
+            return ResponseEntity.ok(report);
+        } catch (Exception e) {
+            logger.error("Failed to build fleet health report", e);
+            audit.record(AuditEvent.SECRET_HEALTH, AuditEvent.ADMIN, null, AuditEvent.ERROR, "fleet");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    // --- BULK ROTATION ENDPOINTS ---
+
+    @PostMapping("/rotations")
+    public ResponseEntity<BulkRotationStatus> startBulkRotation(
+            @RequestHeader(value = "X-ADMIN-KEY", required = false) String apiKey,
+            @RequestBody(required = false) BulkRotationRequest request) {
+
+        if (isUnauthorized(apiKey, AuditEvent.BULK_ROTATION)) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+
+        BulkRotationRequest params = request != null ? request : new BulkRotationRequest(null, null, null);
+        logger.warn("Bulk rotation requested for prefix: '{}'", params.prefix());
+
+        try {
+            BulkRotationStatus status = bulkRotation.start(params.prefix(), params.batchSize(), params.maxPerSecond());
+            audit.record(AuditEvent.BULK_ROTATION, AuditEvent.ADMIN, null, AuditEvent.SUCCESS,
+                    "start " + status.jobId() + " prefix=" + status.prefix());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(status);
+        } catch (IllegalStateException e) {
+            logger.warn("Bulk rotation refused: {}", e.getMessage());
+            audit.record(AuditEvent.BULK_ROTATION, AuditEvent.ADMIN, null, AuditEvent.ERROR, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    @GetMapping("/rotations")
+    public ResponseEntity<List<BulkRotationStatus>> listBulkRotations(
+            @RequestHeader(value = "X-ADMIN-KEY", required = false) String apiKey) {
+        if (isUnauthorized(apiKey, AuditEvent.BULK_ROTATION)) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+
+        return ResponseEntity.ok(bulkRotation.recent());
+    }
+
+    @GetMapping("/rotations/{jobId}")
+    public ResponseEntity<BulkRotationStatus> bulkRotationStatus(
+            @RequestHeader(value = "X-ADMIN-KEY", required = false) String apiKey,
+            @PathVariable String jobId) {
+        if (isUnauthorized(apiKey, AuditEvent.BULK_ROTATION)) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+
+        return ResponseEntity.of(bulkRotation.status(jobId));
+    }
+
+    @DeleteMapping("/rotations/{jobId}")
+    public ResponseEntity<BulkRotationStatus> cancelBulkRotation(
+            @RequestHeader(value = "X-ADMIN-KEY", required = false) String apiKey,
+            @PathVariable String jobId) {
+        if (isUnauthorized(apiKey, AuditEvent.BULK_ROTATION)) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+
+        logger.warn("Cancellation requested for bulk rotation: {}", jobId);
+        audit.record(AuditEvent.BULK_ROTATION, AuditEvent.ADMIN, null, AuditEvent.SUCCESS, "cancel " + jobId);
+        return ResponseEntity.of(bulkRotation.cancel(jobId));
+    }
+
+    // "appId,description" -> field names; null when every field is wanted
+    private static Set<String> parseFields(String fields) {
+        if (fields == null || fields.isBlank()) return null;
+        Set<String> names = Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .collect(Collectors.toSet());
+        for (String name : names) {
+            if (!AppRegistryRepository.APP_FIELDS.contains(name)) throw new IllegalArgumentException("Unknown field: " + name);
+        }
+        return names;
+    }
+}
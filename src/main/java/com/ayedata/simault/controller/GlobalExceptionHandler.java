@@ -1,5 +1,7 @@
 package com.ayedata.simault.controller;
 
+import com.ayedata.simault.crypto.CryptoUnavailableException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -23,6 +25,18 @@ public class GlobalExceptionHandler {
         ));
     }
 
+    @ExceptionHandler(CryptoUnavailableException.class)
+    public ResponseEntity<Map<String, Object>> handleCryptoUnavailable(CryptoUnavailableException ex) {
+        // The crypto circuit breaker is open: fail fast instead of touching the key vault
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.retryAfterSeconds()))
+            .body(Map.of(
+                "error", "Service Unavailable",
+                "message", ex.getMessage(),
+                "timestamp", Instant.now().toString()
+            ));
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> handleGeneralError(Exception ex) {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
@@ -1,47 +1,107 @@
 package com.ayedata.simault.controller;
 
+import com.ayedata.simault.audit.AuditLog;
+import com.ayedata.simault.metrics.VaultMetrics;
 import com.ayedata.simault.model.AppSecret;
+import com.ayedata.simault.model.AuditEvent;
+import com.ayedata.simault.model.BatchSecretRequest;
+import com.ayedata.simault.model.BatchSecretResponse;
+import com.ayedata.simault.model.SecretChangeEvent;
+import com.ayedata.simault.service.SecretChangeNotifier;
+import com.ayedata.simault.service.SecretChangeSink;
 import com.ayedata.simault.service.SecretVaultService;
+import com.ayedata.simault.util.SecretUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.Instant;
+import java.util.Optional;
+
+// The reactive build serves the same paths from ReactiveSecretController
 @RestController
 @RequestMapping("/api/secrets")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class SecretController {
 
     // 1. Initialize Log4j 2 Logger
     private static final Logger logger = LogManager.getLogger(SecretController.class);
 
     private final SecretVaultService vaultService;
+    private final SecretChangeNotifier notifier;
+    private final VaultMetrics metrics;
+    private final AuditLog audit;
+
+    @Value("${vault.batch.max-size:100}")
+    private int maxBatchSize;
+
+    // Clients reconnect (with Last-Event-ID) when this runs out
+    @Value("${vault.watch.emitter-timeout-ms:1800000}")
+    private long watchTimeoutMs;
 
     // Notice: We DO NOT inject AppRegistryRepository here. 
     // This controller physically cannot register new apps.
-    public SecretController(SecretVaultService vaultService) {
+    public SecretController(SecretVaultService vaultService, SecretChangeNotifier notifier, VaultMetrics metrics,
+                            AuditLog audit) {
         this.vaultService = vaultService;
+        this.notifier = notifier;
+        this.metrics = metrics;
+        this.audit = audit;
     }
 
     /**
      * GET SECRET
      * Validates if app is allowed. If allowed but missing, generates a new one.
      * If NOT allowed, throws 403 Forbidden (via Service check).
+     * The ETag is the secret's version: send it back in If-None-Match to get a 304
+     * without the secret ever being decrypted or sent.
      */
     @GetMapping("/{appId}")
-    public ResponseEntity<AppSecret> getSecret(@PathVariable String appId) {
+    public ResponseEntity<AppSecret> getSecret(@PathVariable String appId, WebRequest webRequest) {
         logger.info("Request received to retrieve secret for appId: {}", appId);
 
         try {
+            if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+                Optional<Instant> version = vaultService.findSecretVersion(appId);
+                if (version.isPresent() && webRequest.checkNotModified(SecretUtils.versionTag(version.get()))) {
+                    logger.info("Secret unchanged for appId: {}", appId);
+                    audit.record(AuditEvent.SECRET_READ, AuditEvent.REST, appId, AuditEvent.SUCCESS, "not_modified");
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                            .eTag(SecretUtils.versionTag(version.get()))
+                            .build();
+                }
+            }
+
             // The service performs the "isAppAllowed()" check immediately.
-            AppSecret secret = vaultService.getAppSecret(appId);
+            AppSecret secret = vaultService.getAppSecret(appId, VaultMetrics.REST);
             
             // We log success, but we avoid logging the 'secret' object itself to prevent
             // accidental leakage, even though our Log4j regex would likely catch it.
             logger.info("Secret successfully retrieved for appId: {}", appId);
+            audit.record(AuditEvent.SECRET_READ, AuditEvent.REST, appId, AuditEvent.SUCCESS);
             
-            return ResponseEntity.ok(secret);
+            // no-store: intermediaries must never keep a secret; sidecars send If-None-Match themselves
+            return ResponseEntity.ok()
+                    .eTag(SecretUtils.versionTag(secret.createdAt()))
+                    .cacheControl(CacheControl.noStore())
+                    .body(secret);
+        } catch (IllegalArgumentException e) {
+            metrics.denied(VaultMetrics.REST);
+            audit.record(AuditEvent.SECRET_READ, AuditEvent.REST, appId, AuditEvent.DENIED);
+            logger.warn("Access denied for appId: {}", appId);
+            throw e;
         } catch (Exception e) {
             // Log the error. If the error message contains sensitive info, Log4j will redact it.
+            audit.record(AuditEvent.SECRET_READ, AuditEvent.REST, appId, AuditEvent.ERROR);
             logger.error("Failed to retrieve secret for appId: {}", appId, e);
             throw e; // Re-throw to let Spring handle the error response (e.g., 403 or 500)
         }
@@ -58,14 +118,107 @@ public class SecretController {
 
         try {
             // The service performs the "isAppAllowed()" check immediately.
-            AppSecret secret = vaultService.rotateSecret(appId);
+            AppSecret secret = vaultService.rotateSecret(appId, VaultMetrics.REST);
             
             logger.info("Secret successfully rotated for appId: {}", appId);
+            audit.record(AuditEvent.SECRET_ROTATE, AuditEvent.REST, appId, AuditEvent.SUCCESS, "manual");
             
             return ResponseEntity.ok(secret);
+        } catch (IllegalArgumentException e) {
+            metrics.denied(VaultMetrics.REST);
+            audit.record(AuditEvent.SECRET_ROTATE, AuditEvent.REST, appId, AuditEvent.DENIED);
+            logger.warn("Access denied for appId: {}", appId);
+            throw e;
         } catch (Exception e) {
+            audit.record(AuditEvent.SECRET_ROTATE, AuditEvent.REST, appId, AuditEvent.ERROR);
             logger.error("Failed to rotate secret for appId: {}", appId, e);
             throw e;
         }
     }
+
+    /**
+     * BATCH GET SECRETS
+     * Fetches the secrets of many apps in one call. Unregistered apps are reported
+     * per appId in "errors" instead of failing the whole request.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<BatchSecretResponse> getSecrets(@RequestBody BatchSecretRequest request) {
+        if (request == null || request.appIds() == null || request.appIds().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (request.appIds().size() > maxBatchSize) {
+            logger.warn("Batch secret request rejected: {} appIds exceeds limit of {}", request.appIds().size(), maxBatchSize);
+            return ResponseEntity.badRequest().build();
+        }
+
+        logger.info("Batch request received to retrieve secrets for {} apps", request.appIds().size());
+
+        try {
+            BatchSecretResponse response = vaultService.getAppSecrets(request.appIds(), VaultMetrics.REST);
+            logger.info("Batch retrieval complete: {} succeeded, {} failed", response.secrets().size(), response.errors().size());
+            audit.recordBatch(AuditEvent.REST, response);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Failed to retrieve batch of secrets", e);
+            throw e;
+        }
+    }
+
+    /**
+     * WATCH SECRET (Server-Sent Events)
+     * Pushes an event whenever the app's secret is rotated or expires. Events carry the
+     * new version, never the secret. A client reconnecting with Last-Event-ID gets the
+     * current version right away if it changed in the meantime.
+     */
+    @GetMapping(value = "/{appId}/watch", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> watchSecret(
+            @PathVariable String appId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        logger.info("Watch requested for appId: {}", appId);
+
+        if (!notifier.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+
+        Optional<Instant> current;
+        try {
+            current = vaultService.findSecretVersion(appId);
+        } catch (IllegalArgumentException e) {
+            metrics.denied(VaultMetrics.REST);
+            audit.record(AuditEvent.SECRET_WATCH, AuditEvent.REST, appId, AuditEvent.DENIED);
+            logger.warn("Access denied for appId: {}", appId);
+            throw e;
+        }
+        audit.record(AuditEvent.SECRET_WATCH, AuditEvent.REST, appId, AuditEvent.SUCCESS);
+
+        SseEmitter emitter = new SseEmitter(watchTimeoutMs);
+        SecretChangeNotifier.Subscription subscription = notifier.subscribe(appId, new SecretChangeSink() {
+            @Override
+            public void send(SecretChangeEvent event) throws Exception {
+                SseEmitter.SseEventBuilder sse = SseEmitter.event().name(event.type()).data(event, MediaType.APPLICATION_JSON);
+                if (event.version() != null) sse.id(event.version());
+                emitter.send(sse);
+            }
+
+            @Override
+            public void keepAlive() throws Exception {
+                emitter.send(SseEmitter.event().comment("keep-alive"));
+            }
+
+            @Override
+            public void close() {
+                emitter.complete();
+            }
+        });
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(e -> subscription.close());
+
+        current.map(SecretUtils::versionTag)
+                .filter(version -> !version.equals(lastEventId))
+                .ifPresent(version -> subscription.offer(
+                        new SecretChangeEvent(appId, SecretChangeEvent.ROTATED, version, current.get())));
+
+        return ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(emitter);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,141 @@
+package com.ayedata.simault.crypto;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * AEAD_AES_256_CBC_HMAC_SHA_512 as implemented by libmongocrypt, for one 96-byte key.
+ *
+ * Key layout:      MAC key (32) | encryption key (32) | IV key (32)
+ * Ciphertext:      IV (16) | AES-256-CBC(PKCS7) | tag (32)
+ * Tag:             HMAC-SHA-512(MAC key, AAD | IV | C | AL) truncated to 32 bytes
+ * Deterministic IV: HMAC-SHA-512(IV key, AAD | AL | P) truncated to 16 bytes
+ * where AL is the AAD length in bits as a 64-bit big-endian integer.
+ *
+ * Cipher and Mac instances are expensive to look up, so they are pooled and reused.
+ */
+final class AeadAes256CbcHmacSha512 {
+
+    static final int KEY_LENGTH = 96;
+    static final int IV_LENGTH = 16;
+    static final int TAG_LENGTH = 32;
+    private static final int SUBKEY_LENGTH = 32;
+    private static final int MAX_POOLED = 64;
+
+    private final SecretKeySpec encKey;
+    private final SecretKeySpec macKey;
+    private final SecretKeySpec ivKey;
+
+    private record Primitives(Cipher cipher, Mac tagMac, Mac ivMac) {}
+
+    private final Queue<Primitives> pool = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The caller keeps ownership of key and should wipe it afterwards;
+     * only the key specs hold the material from here on.
+     */
+    AeadAes256CbcHmacSha512(byte[] key) {
+        if (key == null || key.length != KEY_LENGTH) {
+            throw new IllegalStateException("AEAD key must be " + KEY_LENGTH + " bytes");
+        }
+        this.macKey = new SecretKeySpec(key, 0, SUBKEY_LENGTH, "HmacSHA512");
+        this.encKey = new SecretKeySpec(key, SUBKEY_LENGTH, SUBKEY_LENGTH, "AES");
+        this.ivKey = new SecretKeySpec(key, 2 * SUBKEY_LENGTH, SUBKEY_LENGTH, "HmacSHA512");
+    }
+
+    /** Same plaintext and AAD always give the same ciphertext (CSFLE "Deterministic"). */
+    byte[] encryptDeterministic(byte[] aad, byte[] plaintext) {
+        Primitives p = borrow();
+        try {
+            p.ivMac().update(aad);
+            p.ivMac().update(lengthInBits(aad));
+            p.ivMac().update(plaintext);
+            byte[] iv = Arrays.copyOf(p.ivMac().doFinal(), IV_LENGTH);
+            return seal(p, aad, iv, plaintext);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AEAD encryption failed", e);
+        } finally {
+            release(p);
+        }
+    }
+
+    /** Verifies the tag before touching the cipher; works for both IV modes. */
+    byte[] decrypt(byte[] aad, byte[] data, int offset, int length) {
+        if (length < IV_LENGTH + 16 + TAG_LENGTH || (length - IV_LENGTH - TAG_LENGTH) % 16 != 0) {
+            throw new CorruptCiphertextException("Ciphertext has invalid length " + length);
+        }
+        int bodyLength = length - TAG_LENGTH;
+
+        Primitives p = borrow();
+        try {
+            p.tagMac().update(aad);
+            p.tagMac().update(data, offset, bodyLength);
+            p.tagMac().update(lengthInBits(aad));
+            byte[] expected = Arrays.copyOf(p.tagMac().doFinal(), TAG_LENGTH);
+            byte[] actual = Arrays.copyOfRange(data, offset + bodyLength, offset + length);
+            if (!MessageDigest.isEqual(expected, actual)) {
+                throw new CorruptCiphertextException("HMAC validation failure");
+            }
+
+            p.cipher().init(Cipher.DECRYPT_MODE, encKey, new IvParameterSpec(data, offset, IV_LENGTH));
+            return p.cipher().doFinal(data, offset + IV_LENGTH, bodyLength - IV_LENGTH);
+        } catch (GeneralSecurityException e) {
+            throw new CorruptCiphertextException("Ciphertext could not be decrypted", e);
+        } finally {
+            release(p);
+        }
+    }
+
+    private byte[] seal(Primitives p, byte[] aad, byte[] iv, byte[] plaintext) throws GeneralSecurityException {
+        p.cipher().init(Cipher.ENCRYPT_MODE, encKey, new IvParameterSpec(iv));
+        int bodyLength = IV_LENGTH + p.cipher().getOutputSize(plaintext.length);
+        byte[] out = new byte[bodyLength + TAG_LENGTH];
+
+        System.arraycopy(iv, 0, out, 0, IV_LENGTH);
+        p.cipher().doFinal(plaintext, 0, plaintext.length, out, IV_LENGTH);
+
+        p.tagMac().update(aad);
+        p.tagMac().update(out, 0, bodyLength);
+        p.tagMac().update(lengthInBits(aad));
+        System.arraycopy(p.tagMac().doFinal(), 0, out, bodyLength, TAG_LENGTH);
+        return out;
+    }
+
+    private static byte[] lengthInBits(byte[] aad) {
+        long bits = (long) aad.length * 8;
+        byte[] al = new byte[8];
+        for (int i = 7; i >= 0; i--) {
+            al[i] = (byte) bits;
+            bits >>>= 8;
+        }
+        return al;
+    }
+
+    private Primitives borrow() {
+        Primitives p = pool.poll();
+        if (p != null) return p;
+        try {
+            Mac tagMac = Mac.getInstance("HmacSHA512");
+            tagMac.init(macKey);
+            Mac ivMac = Mac.getInstance("HmacSHA512");
+            ivMac.init(ivKey);
+            return new Primitives(Cipher.getInstance("AES/CBC/PKCS5Padding"), tagMac, ivMac);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES/HMAC-SHA-512 not available in this JVM", e);
+        }
+    }
+
+    private void release(Primitives p) {
+        // Macs reset themselves on doFinal; drop anything left half-updated by a failure
+        p.tagMac().reset();
+        p.ivMac().reset();
+        if (pool.size() < MAX_POOLED) pool.offer(p);
+    }
+}
@@ -0,0 +1,47 @@
+package com.ayedata.simault.crypto;
+
+import org.bson.types.Binary;
+
+import java.util.UUID;
+
+/**
+ * Puts every engine call that can reach the key vault behind the CryptoCircuitBreaker.
+ */
+public class CircuitBreakingCryptoEngine implements CryptoEngine {
+
+    private final CryptoEngine delegate;
+    private final CryptoCircuitBreaker breaker;
+
+    public CircuitBreakingCryptoEngine(CryptoEngine delegate, CryptoCircuitBreaker breaker) {
+        this.delegate = delegate;
+        this.breaker = breaker;
+    }
+
+    @Override
+    public Binary encrypt(String plaintext) {
+        return breaker.call(() -> delegate.encrypt(plaintext));
+    }
+
+    @Override
+    public String decrypt(Binary ciphertext) {
+        return breaker.call(() -> delegate.decrypt(ciphertext));
+    }
+
+    @Override
+    public UUID activeKeyId() {
+        return delegate.activeKeyId();
+    }
+
+    @Override
+    public void activateKey(UUID keyId) {
+        breaker.call(() -> {
+            delegate.activateKey(keyId);
+            return keyId;
+        });
+    }
+
+    @Override
+    public boolean isInProcess() {
+        return delegate.isInProcess();
+    }
+}
@@ -0,0 +1,109 @@
+package com.ayedata.simault.crypto;
+
+import com.mongodb.client.model.vault.EncryptOptions;
+import com.mongodb.client.vault.ClientEncryption;
+import org.bson.BsonBinary;
+import org.bson.BsonString;
+import org.bson.types.Binary;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The reference engine: every call goes through libmongocrypt via ClientEncryption.
+ */
+public class ClientEncryptionCryptoEngine implements CryptoEngine {
+
+    private static final String PROBE = "simault-key-probe";
+    // How long a probe's verdict on a data key is reused
+    private static final long PROBE_TTL_MILLIS = 5_000;
+    // subtype (1) | key UUID (16) | original BSON type (1)
+    private static final int HEADER_LENGTH = 18;
+    // IV (16) | at least one AES block (16) | tag (32)
+    private static final int MIN_AEAD_LENGTH = 64;
+
+    private final ClientEncryption clientEncryption;
+    private volatile UUID dataKeyId;
+
+    private record Probe(CompletableFuture<Boolean> keyWorks, long startedAt) {}
+
+    // Data key id -> latest probe. Failing decrypts share it instead of each probing the key vault.
+    private final ConcurrentHashMap<UUID, Probe> probes = new ConcurrentHashMap<>();
+
+    public ClientEncryptionCryptoEngine(ClientEncryption clientEncryption, UUID dataKeyId) {
+        this.clientEncryption = clientEncryption;
+        this.dataKeyId = dataKeyId;
+    }
+
+    @Override
+    public Binary encrypt(String plaintext) {
+        BsonBinary encrypted = clientEncryption.encrypt(
+            new BsonString(plaintext),
+            new EncryptOptions(ALGORITHM).keyId(new BsonBinary(dataKeyId))
+        );
+        return new Binary(encrypted.getType(), encrypted.getData());
+    }
+
+    /**
+     * A ciphertext that is malformed on its face is corrupt without asking libmongocrypt.
+     * For a well-formed one, libmongocrypt reports a bad tag and an unusable data key the
+     * same way, so a failure only counts as corrupt once a probe under the same data key
+     * round-trips. The probe's verdict is shared for PROBE_TTL_MILLIS, so a burst of failures
+     * costs the key vault one probe, not one per call.
+     */
+    @Override
+    public String decrypt(Binary ciphertext) {
+        byte[] data = ciphertext.getData();
+        if (ciphertext.getType() != 6 || data.length <= HEADER_LENGTH || (data[0] != 1 && data[0] != 2)) {
+            throw new CorruptCiphertextException("Not a CSFLE ciphertext");
+        }
+        int aeadLength = data.length - HEADER_LENGTH;
+        if (aeadLength < MIN_AEAD_LENGTH || (aeadLength - 32) % 16 != 0) {
+            throw new CorruptCiphertextException("Ciphertext has invalid length " + aeadLength);
+        }
+        if (data[17] != 0x02) {
+            throw new CorruptCiphertextException("Encrypted value is not a string (BSON type " + data[17] + ")");
+        }
+
+        try {
+            return clientEncryption.decrypt(new BsonBinary(ciphertext.getType(), data)).asString().getValue();
+        } catch (RuntimeException e) {
+            if (keyWorks(CryptoEngine.keyIdOf(ciphertext))) {
+                throw new CorruptCiphertextException("Ciphertext could not be decrypted with a working data key", e);
+            }
+            throw e;
+        }
+    }
+
+    private boolean keyWorks(UUID keyId) {
+        long now = System.currentTimeMillis();
+        Probe candidate = new Probe(new CompletableFuture<>(), now);
+        Probe probe = probes.compute(keyId, (id, current) ->
+                current != null && now - current.startedAt() < PROBE_TTL_MILLIS ? current : candidate);
+        // Only the caller that installed the probe runs it; the others wait for its verdict
+        if (probe == candidate) candidate.keyWorks().complete(probe(keyId));
+        return probe.keyWorks().join();
+    }
+
+    private boolean probe(UUID keyId) {
+        try {
+            BsonBinary probe = clientEncryption.encrypt(new BsonString(PROBE),
+                new EncryptOptions(ALGORITHM).keyId(new BsonBinary(keyId)));
+            return PROBE.equals(clientEncryption.decrypt(probe).asString().getValue());
+        } catch (RuntimeException e) {
+            // Key vault unreachable, key missing or master key wrong: not the ciphertext's fault
+            return false;
+        }
+    }
+
+    @Override
+    public UUID activeKeyId() {
+        return dataKeyId;
+    }
+
+    @Override
+    public void activateKey(UUID keyId) {
+        this.dataKeyId = keyId;
+    }
+}
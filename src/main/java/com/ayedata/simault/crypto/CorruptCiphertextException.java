@@ -0,0 +1,16 @@
+package com.ayedata.simault.crypto;
+
+/**
+ * The stored ciphertext itself is unusable (malformed, or fails authentication).
+ * Unlike an unreachable key vault, retrying will never make it decrypt.
+ */
+public class CorruptCiphertextException extends RuntimeException {
+
+    public CorruptCiphertextException(String message) {
+        super(message);
+    }
+
+    public CorruptCiphertextException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,210 @@
+package com.ayedata.simault.crypto;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker around the crypto engine and the key vault behind it.
+ *
+ * CLOSED:    calls go through; the outcomes of the last windowSize calls are kept, and once
+ *            at least minCalls are in, a failure rate at or above failureRatePercent opens it.
+ * OPEN:      calls fail fast with CryptoUnavailableException for openMillis.
+ * HALF_OPEN: up to halfOpenProbes calls go through. All of them succeeding closes it,
+ *            any failure opens it again.
+ *
+ * CorruptCiphertextException counts as a success: the engine and its keys worked, the
+ * stored value did not. Only dependency failures (key vault unreachable, wrong master key,
+ * data key missing) move the breaker.
+ *
+ * Every crypto call passes through here, on virtual threads and the reactive event loop
+ * alike, so the state is guarded by a ReentrantLock rather than a monitor, and transitions
+ * are logged and reported to the listener only after it is released.
+ */
+public class CryptoCircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int windowSize;
+    private final int minCalls;
+    private final int failureRatePercent;
+    private final long openMillis;
+    private final int halfOpenProbes;
+    private final LongSupplier clock;
+
+    // Guards everything below except state, which is also read without it
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile State state = State.CLOSED;
+    private long stateSince;
+
+    // Ring of the last windowSize outcomes while CLOSED (true = failed)
+    private final boolean[] window;
+    private long calls;
+    private int failures;
+
+    private int probesStarted;
+    private int probesSucceeded;
+
+    private final LongAdder rejected = new LongAdder();
+    private volatile Consumer<State> transitionListener = state -> {};
+
+    public CryptoCircuitBreaker(int windowSize, int minCalls, int failureRatePercent, long openMillis,
+                                int halfOpenProbes, LongSupplier clock) {
+        if (windowSize < 1 || minCalls < 1 || minCalls > windowSize || halfOpenProbes < 1
+                || failureRatePercent < 1 || failureRatePercent > 100 || openMillis < 1) {
+            throw new IllegalStateException("Invalid crypto circuit breaker settings");
+        }
+        this.windowSize = windowSize;
+        this.minCalls = minCalls;
+        this.failureRatePercent = failureRatePercent;
+        this.openMillis = openMillis;
+        this.halfOpenProbes = halfOpenProbes;
+        this.clock = clock;
+        this.window = new boolean[windowSize];
+        this.stateSince = clock.getAsLong();
+    }
+
+    /** Runs operation if the breaker lets it through, and records how it went. */
+    public <T> T call(Supplier<T> operation) {
+        acquire();
+        T result;
+        try {
+            result = operation.get();
+        } catch (RuntimeException e) {
+            onFailure(e);
+            throw e;
+        }
+        onSuccess();
+        return result;
+    }
+
+    /**
+     * Permission for one call; its outcome must be reported with onSuccess or onFailure.
+     * Throws CryptoUnavailableException if the call is refused.
+     */
+    public void acquire() {
+        if (state == State.CLOSED) return;
+        long retryAfter;
+        State entered = null;
+        lock.lock();
+        try {
+            long now = clock.getAsLong();
+            if (state == State.OPEN && now - stateSince >= openMillis) {
+                entered = moveTo(State.HALF_OPEN, now);
+            }
+            if (state == State.HALF_OPEN) {
+                // Probes whose outcome never came back must not keep it half-open forever
+                if (probesStarted >= halfOpenProbes && now - stateSince >= openMillis) {
+                    probesStarted = 0;
+                    probesSucceeded = 0;
+                    stateSince = now;
+                }
+                if (probesStarted < halfOpenProbes) {
+                    probesStarted++;
+                    return;
+                }
+            }
+            if (state == State.CLOSED) return;
+            retryAfter = retryAfterSeconds(now);
+        } finally {
+            lock.unlock();
+            announce(entered);
+        }
+        rejected.increment();
+        throw new CryptoUnavailableException(retryAfter);
+    }
+
+    public void onSuccess() {
+        record(false);
+    }
+
+    public void onFailure(Throwable error) {
+        record(!(error instanceof CorruptCiphertextException));
+    }
+
+    public State state() {
+        return state;
+    }
+
+    /** Failure rate of the current window in percent (0 until minCalls outcomes are in). */
+    public double failureRate() {
+        lock.lock();
+        try {
+            int recorded = (int) Math.min(calls, windowSize);
+            return recorded < minCalls ? 0 : failures * 100.0 / recorded;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long rejectedCalls() {
+        return rejected.sum();
+    }
+
+    /** Called with the new state on every transition, after the breaker is unlocked. */
+    public void onTransition(Consumer<State> listener) {
+        this.transitionListener = listener;
+    }
+
+    private void record(boolean failed) {
+        State entered = null;
+        lock.lock();
+        try {
+            switch (state) {
+                case CLOSED -> {
+                    int slot = (int) (calls++ % windowSize);
+                    if (window[slot]) failures--;
+                    window[slot] = failed;
+                    if (failed) failures++;
+
+                    int recorded = (int) Math.min(calls, windowSize);
+                    if (recorded >= minCalls && failures * 100L >= (long) failureRatePercent * recorded) {
+                        entered = moveTo(State.OPEN, clock.getAsLong());
+                    }
+                }
+                case HALF_OPEN -> {
+                    if (failed) entered = moveTo(State.OPEN, clock.getAsLong());
+                    else if (++probesSucceeded >= halfOpenProbes) entered = moveTo(State.CLOSED, clock.getAsLong());
+                }
+                case OPEN -> {
+                    // Late outcome of a call let through before the breaker opened
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        announce(entered);
+    }
+
+    /** Records a transition; the caller holds the lock and announces it once released. */
+    private State moveTo(State next, long now) {
+        state = next;
+        stateSince = now;
+        probesStarted = 0;
+        probesSucceeded = 0;
+        if (next == State.CLOSED) {
+            Arrays.fill(window, false);
+            calls = 0;
+            failures = 0;
+        }
+        return next;
+    }
+
+    private void announce(State entered) {
+        if (entered == null) return;
+        System.out.println(switch (entered) {
+            case OPEN -> "🔌 Crypto circuit breaker OPEN: failing fast for " + openMillis / 1000 + " s";
+            case HALF_OPEN -> "🔌 Crypto circuit breaker HALF_OPEN: probing with " + halfOpenProbes + " calls";
+            case CLOSED -> "🔌 Crypto circuit breaker CLOSED";
+        });
+        transitionListener.accept(entered);
+    }
+
+    private long retryAfterSeconds(long now) {
+        long remaining = state == State.OPEN ? stateSince + openMillis - now : openMillis;
+        return Math.max(1, (remaining + 999) / 1000);
+    }
+}
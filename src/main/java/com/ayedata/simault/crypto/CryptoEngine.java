@@ -0,0 +1,50 @@
+package com.ayedata.simault.crypto;
+
+import org.bson.types.Binary;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Encrypts and decrypts secret values as CSFLE ciphertext (BSON Binary subtype 6,
+ * AEAD_AES_256_CBC_HMAC_SHA_512-Deterministic). Every implementation must be able
+ * to read what any other implementation wrote.
+ */
+public interface CryptoEngine {
+
+    String ALGORITHM = "AEAD_AES_256_CBC_HMAC_SHA_512-Deterministic";
+
+    /** Encrypts under the active data key. */
+    Binary encrypt(String plaintext);
+
+    /** Decrypts with whichever data key the ciphertext names. */
+    String decrypt(Binary ciphertext);
+
+    /** The data key new ciphertext is written with. */
+    UUID activeKeyId();
+
+    /**
+     * Switches the data key new ciphertext is written with (data key rotation).
+     * Ciphertext under earlier keys stays readable as long as those keys are in the vault.
+     */
+    void activateKey(UUID keyId);
+
+    /**
+     * True if encrypt and decrypt never leave the process (no key vault lookups, no KMS),
+     * so they are safe to call from an event-loop thread.
+     */
+    default boolean isInProcess() {
+        return false;
+    }
+
+    /**
+     * The data key a ciphertext was written with, read from its header
+     * (subtype | key UUID | BSON type | ...). Null if it is not CSFLE ciphertext.
+     */
+    static UUID keyIdOf(Binary ciphertext) {
+        byte[] data = ciphertext.getData();
+        if (ciphertext.getType() != 6 || data.length < 18) return null;
+        ByteBuffer ids = ByteBuffer.wrap(data, 1, 16);
+        return new UUID(ids.getLong(), ids.getLong());
+    }
+}
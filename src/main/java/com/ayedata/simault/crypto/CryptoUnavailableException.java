@@ -0,0 +1,20 @@
+package com.ayedata.simault.crypto;
+
+/**
+ * Thrown without calling the crypto engine while the circuit breaker is open:
+ * the key vault or master key has been failing, so the call is refused (503) instead
+ * of piling up on a dependency that is down.
+ */
+public class CryptoUnavailableException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public CryptoUnavailableException(long retryAfterSeconds) {
+        super("Encryption is temporarily unavailable; retry in " + retryAfterSeconds + " s");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long retryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,165 @@
+package com.ayedata.simault.crypto;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.model.Filters;
+import org.bson.BsonBinary;
+import org.bson.Document;
+import org.bson.types.Binary;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Performs CSFLE encryption in-process instead of through libmongocrypt.
+ * Each data key is fetched from the key vault and unwrapped with the local master key
+ * once, then kept in memory; after that an encrypt or decrypt is two HMACs and one
+ * AES pass on pooled primitives, with no JNI or BSON round trip.
+ *
+ * Ciphertext layout (BSON Binary subtype 6), identical to what libmongocrypt writes:
+ *   subtype (1) | key UUID (16) | original BSON type (1) | AEAD ciphertext
+ * The first 18 bytes are also the AEAD associated data.
+ */
+public class LocalAeadCryptoEngine implements CryptoEngine {
+
+    private static final byte BINARY_SUBTYPE_ENCRYPTED = 6;
+    private static final byte DETERMINISTIC = 1;
+    private static final byte RANDOM = 2;
+    private static final byte BSON_TYPE_STRING = 0x02;
+    private static final int HEADER_LENGTH = 18;
+
+    private final AeadAes256CbcHmacSha512 masterKey;
+    private final Function<UUID, byte[]> wrappedKeyLoader;
+    private volatile UUID activeKeyId;
+
+    // Unwrapped data keys by id. Loaded on first use, never written back anywhere.
+    private final ConcurrentHashMap<UUID, AeadAes256CbcHmacSha512> dataKeys = new ConcurrentHashMap<>();
+
+    public LocalAeadCryptoEngine(MongoClient keyVaultClient, byte[] localMasterKey, UUID activeKeyId) {
+        this(id -> loadWrappedKey(keyVaultClient, id), localMasterKey, activeKeyId);
+    }
+
+    LocalAeadCryptoEngine(Function<UUID, byte[]> wrappedKeyLoader, byte[] localMasterKey, UUID activeKeyId) {
+        this.masterKey = new AeadAes256CbcHmacSha512(localMasterKey);
+        this.wrappedKeyLoader = wrappedKeyLoader;
+        this.activeKeyId = activeKeyId;
+        // Fail at startup, not on the first request, if the master key doesn't fit the vault
+        dataKey(activeKeyId);
+    }
+
+    @Override
+    public Binary encrypt(String plaintext) {
+        // One read, so header and key agree even if the active key switches mid-call
+        UUID keyId = activeKeyId;
+        byte[] header = header(keyId);
+        byte[] sealed = dataKey(keyId).encryptDeterministic(header, bsonString(plaintext));
+
+        byte[] out = Arrays.copyOf(header, HEADER_LENGTH + sealed.length);
+        System.arraycopy(sealed, 0, out, HEADER_LENGTH, sealed.length);
+        return new Binary(BINARY_SUBTYPE_ENCRYPTED, out);
+    }
+
+    @Override
+    public String decrypt(Binary ciphertext) {
+        byte[] data = ciphertext.getData();
+        if (ciphertext.getType() != BINARY_SUBTYPE_ENCRYPTED || data.length <= HEADER_LENGTH
+                || (data[0] != DETERMINISTIC && data[0] != RANDOM)) {
+            throw new CorruptCiphertextException("Not a CSFLE ciphertext");
+        }
+        if (data[17] != BSON_TYPE_STRING) {
+            throw new CorruptCiphertextException("Encrypted value is not a string (BSON type " + data[17] + ")");
+        }
+
+        ByteBuffer ids = ByteBuffer.wrap(data, 1, 16);
+        UUID keyId = new UUID(ids.getLong(), ids.getLong());
+        byte[] header = Arrays.copyOf(data, HEADER_LENGTH);
+
+        byte[] plaintext = dataKey(keyId).decrypt(header, data, HEADER_LENGTH, data.length - HEADER_LENGTH);
+        return parseBsonString(plaintext);
+    }
+
+    @Override
+    public UUID activeKeyId() {
+        return activeKeyId;
+    }
+
+    /** Unwraps the new key before switching, so a key this engine cannot use is never made active. */
+    @Override
+    public void activateKey(UUID keyId) {
+        dataKey(keyId);
+        this.activeKeyId = keyId;
+    }
+
+    /** Only keys not seen before hit the key vault; the active key is loaded up front. */
+    @Override
+    public boolean isInProcess() {
+        return true;
+    }
+
+    private AeadAes256CbcHmacSha512 dataKey(UUID keyId) {
+        return dataKeys.computeIfAbsent(keyId, this::unwrap);
+    }
+
+    /** Local KMS wraps the 96-byte data key with AEAD under the master key and empty AAD. */
+    private AeadAes256CbcHmacSha512 unwrap(UUID keyId) {
+        byte[] wrapped = wrappedKeyLoader.apply(keyId);
+        byte[] raw;
+        try {
+            raw = masterKey.decrypt(new byte[0], wrapped, 0, wrapped.length);
+        } catch (CorruptCiphertextException e) {
+            // The master key does not fit this data key; every secret under it is fine
+            throw new IllegalStateException("Data key " + keyId + " could not be unwrapped with the master key", e);
+        }
+        try {
+            return new AeadAes256CbcHmacSha512(raw);
+        } finally {
+            Arrays.fill(raw, (byte) 0);
+        }
+    }
+
+    private static byte[] loadWrappedKey(MongoClient client, UUID keyId) {
+        Document keyDoc = client.getDatabase("encryption").getCollection("__keyVault")
+                .find(Filters.eq("_id", new BsonBinary(keyId))).first();
+        if (keyDoc == null) {
+            throw new IllegalStateException("Data key " + keyId + " not found in encryption.__keyVault");
+        }
+        String provider = keyDoc.get("masterKey", Document.class).getString("provider");
+        if (!"local".equals(provider)) {
+            throw new IllegalStateException("Data key " + keyId + " is wrapped by '" + provider + "'; the local engine only supports 'local'");
+        }
+        return keyDoc.get("keyMaterial", Binary.class).getData();
+    }
+
+    private static byte[] header(UUID keyId) {
+        return ByteBuffer.allocate(HEADER_LENGTH)
+                .put(DETERMINISTIC)
+                .putLong(keyId.getMostSignificantBits())
+                .putLong(keyId.getLeastSignificantBits())
+                .put(BSON_TYPE_STRING)
+                .array();
+    }
+
+    /** BSON string value without type or name: int32 length (incl. NUL) | UTF-8 | NUL. */
+    private static byte[] bsonString(String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(4 + utf8.length + 1)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(utf8.length + 1)
+                .put(utf8)
+                .put((byte) 0)
+                .array();
+    }
+
+    private static String parseBsonString(byte[] value) {
+        if (value.length < 5) throw new CorruptCiphertextException("Decrypted value is truncated");
+        int length = ByteBuffer.wrap(value).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        if (length != value.length - 4 || value[value.length - 1] != 0) {
+            throw new CorruptCiphertextException("Decrypted value is not a valid BSON string");
+        }
+        return new String(value, 4, length - 1, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,136 @@
+package com.ayedata.simault.logging;
+
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.config.Configuration;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.layout.PatternLayout;
+import org.apache.logging.log4j.core.pattern.ConverterKeys;
+import org.apache.logging.log4j.core.pattern.LogEventPatternConverter;
+import org.apache.logging.log4j.core.pattern.PatternConverter;
+import org.apache.logging.log4j.core.pattern.PatternFormatter;
+import org.apache.logging.log4j.core.pattern.PatternParser;
+import org.apache.logging.log4j.util.PerformanceSensitive;
+
+import java.util.List;
+
+/**
+ * {@code %redact{pattern}}: formats the nested pattern, then masks credentials in what it wrote.
+ *
+ * Replaces {@code %replace{%msg %xEx}{(?i)(Bearer\s+|token=|key\s*":"?|password=)([\w\.-]+)}{$1*****REDACTED*****}}
+ * with the same result, but the nested converters write straight into the layout's
+ * StringBuilder and the markers are found in one forward scan, masked in place.
+ * No regex, no intermediate String, so the converter stays garbage-free.
+ */
+@Plugin(name = "redact", category = PatternConverter.CATEGORY)
+@ConverterKeys({"redact"})
+@PerformanceSensitive("allocation")
+public final class RedactingConverter extends LogEventPatternConverter {
+
+    static final String MASK = "*****REDACTED*****";
+
+    private final PatternFormatter[] formatters;
+
+    private RedactingConverter(List<PatternFormatter> formatters) {
+        super("redact", "redact");
+        this.formatters = formatters.toArray(new PatternFormatter[0]);
+    }
+
+    public static RedactingConverter newInstance(Configuration config, String[] options) {
+        if (options == null || options.length != 1) {
+            LOGGER.error("Incorrect number of options on redact. Expected 1, received {}",
+                    options == null ? 0 : options.length);
+            return null;
+        }
+        PatternParser parser = PatternLayout.createPatternParser(config);
+        return new RedactingConverter(parser.parse(options[0]));
+    }
+
+    @Override
+    public void format(LogEvent event, StringBuilder toAppendTo) {
+        int start = toAppendTo.length();
+        for (PatternFormatter formatter : formatters) {
+            formatter.format(event, toAppendTo);
+        }
+        redact(toAppendTo, start);
+    }
+
+    @Override
+    public boolean handlesThrowable() {
+        for (PatternFormatter formatter : formatters) {
+            if (formatter.handlesThrowable()) return true;
+        }
+        return false;
+    }
+
+    /** Masks the value after every marker found at or after {@code from}, keeping the marker itself. */
+    static void redact(StringBuilder text, int from) {
+        int i = from;
+        while (i < text.length()) {
+            int valueStart = markerEnd(text, i);
+            if (valueStart < 0) {
+                i++;
+                continue;
+            }
+            int valueEnd = valueStart;
+            while (valueEnd < text.length() && isValueChar(text.charAt(valueEnd))) valueEnd++;
+            if (valueEnd == valueStart) {
+                i++;
+                continue;
+            }
+            text.replace(valueStart, valueEnd, MASK);
+            i = valueStart + MASK.length();
+        }
+    }
+
+    /** End of the marker starting at {@code i}, or -1 if none starts there. */
+    private static int markerEnd(CharSequence text, int i) {
+        switch (text.charAt(i) | 0x20) {
+            case 'b': {
+                // Bearer\s+
+                if (!matches(text, i, "bearer")) return -1;
+                int end = i + 6;
+                if (end >= text.length() || !isSpace(text.charAt(end))) return -1;
+                while (end < text.length() && isSpace(text.charAt(end))) end++;
+                return end;
+            }
+            case 't':
+                return matches(text, i, "token=") ? i + 6 : -1;
+            case 'p':
+                return matches(text, i, "password=") ? i + 9 : -1;
+            case 'k': {
+                // key\s*":"?
+                if (!matches(text, i, "key")) return -1;
+                int end = i + 3;
+                while (end < text.length() && isSpace(text.charAt(end))) end++;
+                if (end + 1 >= text.length() || text.charAt(end) != '"' || text.charAt(end + 1) != ':') return -1;
+                end += 2;
+                if (end < text.length() && text.charAt(end) == '"') end++;
+                return end;
+            }
+            default:
+                return -1;
+        }
+    }
+
+    /** Case-insensitive match of a lower-case ASCII marker. */
+    private static boolean matches(CharSequence text, int at, String marker) {
+        if (at + marker.length() > text.length()) return false;
+        for (int j = 0; j < marker.length(); j++) {
+            char c = text.charAt(at + j);
+            if (c >= 'A' && c <= 'Z') c += 'a' - 'A';
+            if (c != marker.charAt(j)) return false;
+        }
+        return true;
+    }
+
+    // Java's default \s
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    // [\w\.-] with Java's default (ASCII) \w
+    private static boolean isValueChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '_' || c == '.' || c == '-';
+    }
+}
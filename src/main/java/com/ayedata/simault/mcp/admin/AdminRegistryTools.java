@@ -1,46 +1,68 @@
 package com.ayedata.simault.mcp.admin;
 
-import com.ayedata.simault.model.AllowedApp;
+import com.ayedata.simault.audit.AuditLog;
+import com.ayedata.simault.metrics.VaultMetrics;
+import com.ayedata.simault.model.AppPage;
+import com.ayedata.simault.model.AuditEvent;
 import com.ayedata.simault.repository.AppRegistryRepository;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.annotation.ToolParam;
 import org.springframework.stereotype.Component;
 
-import java.util.List;
-
 @Component
 public class AdminRegistryTools {
 
     private static final Logger logger = LogManager.getLogger(AdminRegistryTools.class);
     private final AppRegistryRepository registry;
+    private final VaultMetrics metrics;
+    private final AuditLog audit;
 
-    public AdminRegistryTools(AppRegistryRepository registry) {
+    public AdminRegistryTools(AppRegistryRepository registry, VaultMetrics metrics, AuditLog audit) {
         this.registry = registry;
+        this.metrics = metrics;
+        this.audit = audit;
     }
 
-    @Tool(description = "List all applications currently whitelisted in the Vault.")
-    public List<AllowedApp> listAllowedApps() {
+    @Tool(description = "List applications whitelisted in the Vault, newest first, one page at a time. "
+            + "Pass the returned nextCursor to get the next page; it is null on the last page.")
+    public AppPage listAllowedApps(
+            @ToolParam(required = false, description = "Words to search for in app descriptions") String search,
+            @ToolParam(required = false, description = "nextCursor from the previous page") String cursor,
+            @ToolParam(required = false, description = "Page size (default 50)") Integer limit) {
         logger.info("🤖 AI Tool Triggered: listAllowedApps");
-        List<AllowedApp> apps = registry.findAll();
-        logger.debug("Returning {} apps to AI context.", apps.size());
-        return apps;
+        metrics.toolCall("listAllowedApps");
+        // Small pages by default: every app listed ends up in the model's context
+        AppPage page = registry.findPage(search, cursor, limit == null ? 50 : limit, null);
+        logger.debug("Returning {} apps to AI context.", page.apps().size());
+        audit.record(AuditEvent.APP_LIST, AuditEvent.MCP, null, AuditEvent.SUCCESS);
+        return page;
     }
 
-    public record RegisterAppRequest(String appId, String description) {}
+    public record RegisterAppRequest(
+        String appId,
+        String description,
+        @ToolParam(required = false, description = "Secret lifetime in seconds (omit for the vault default)") Long ttlSeconds,
+        @ToolParam(required = false, description = "Random bytes per secret (omit for the vault default)") Integer secretLength
+    ) {}
 
-    @Tool(description = "Register a new application in the whitelist. Requires App ID and Description.")
+    @Tool(description = "Register a new application in the whitelist. Requires App ID and Description. "
+            + "Optionally sets the app's secret lifetime and length; long-lived, low-risk jobs can use a longer TTL.")
     public String registerNewApp(RegisterAppRequest request) {
         // Log4j2 redaction will handle sensitive IDs if your regex matches, 
         // but typically App IDs are safe to log.
         logger.info("🤖 AI Tool Triggered: registerNewApp for appId={}", request.appId());
+        metrics.toolCall("registerNewApp");
         
         try {
-            registry.registerApp(request.appId(), request.description());
+            registry.registerApp(request.appId(), request.description(), request.ttlSeconds(), request.secretLength());
             logger.info("✅ App registered successfully via AI Tool: {}", request.appId());
+            audit.record(AuditEvent.APP_REGISTER, AuditEvent.MCP, request.appId(), AuditEvent.SUCCESS);
             return "✅ Successfully registered: " + request.appId();
         } catch (Exception e) {
             logger.error("❌ AI Tool Failed: registerNewApp", e);
+            audit.record(AuditEvent.APP_REGISTER, AuditEvent.MCP, request.appId(), AuditEvent.ERROR);
             return "❌ Failed to register: " + e.getMessage();
         }
     }
@@ -48,13 +70,16 @@ public class AdminRegistryTools {
     @Tool(description = "Remove an application from the whitelist, revoking all access.")
     public String removeApp(String appId) {
         logger.warn("🤖 AI Tool Triggered: removeApp for appId={}", appId);
+        metrics.toolCall("removeApp");
         
         try {
             registry.removeApp(appId);
             logger.info("🚫 App access revoked via AI Tool: {}", appId);
+            audit.record(AuditEvent.APP_REMOVE, AuditEvent.MCP, appId, AuditEvent.SUCCESS);
             return "🚫 Access revoked for: " + appId;
         } catch (Exception e) {
             logger.error("❌ AI Tool Failed: removeApp", e);
+            audit.record(AuditEvent.APP_REMOVE, AuditEvent.MCP, appId, AuditEvent.ERROR);
             return "❌ Failed to remove: " + e.getMessage();
         }
     }
@@ -0,0 +1,58 @@
+package com.ayedata.simault.mcp.admin;
+
+import com.ayedata.simault.audit.AuditLog;
+import com.ayedata.simault.metrics.VaultMetrics;
+import com.ayedata.simault.model.AuditEvent;
+import com.ayedata.simault.model.BulkRotationStatus;
+import com.ayedata.simault.service.BulkRotationService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+@Component
+public class BulkRotationTools {
+
+    private static final Logger logger = LogManager.getLogger(BulkRotationTools.class);
+    private final BulkRotationService bulkRotation;
+    private final VaultMetrics metrics;
+    private final AuditLog audit;
+
+    public BulkRotationTools(BulkRotationService bulkRotation, VaultMetrics metrics, AuditLog audit) {
+        this.bulkRotation = bulkRotation;
+        this.metrics = metrics;
+        this.audit = audit;
+    }
+
+    @Tool(description = "Start a background job that rotates the secret of every whitelisted application whose App ID starts with the given prefix (empty prefix = ALL apps). Returns a job ID for getBulkRotationStatus. Secret values are never returned.")
+    public Map<String, Object> startBulkRotation(String prefix) {
+        logger.warn("🤖 AI Tool Triggered: startBulkRotation for prefix='{}'", prefix);
+        metrics.toolCall("startBulkRotation");
+
+        try {
+            BulkRotationStatus status = bulkRotation.start(prefix, null, null);
+            logger.info("✅ Bulk rotation {} started via AI Tool.", status.jobId());
+            audit.record(AuditEvent.BULK_ROTATION, AuditEvent.MCP, null, AuditEvent.SUCCESS,
+                    "start " + status.jobId() + " prefix=" + status.prefix());
+            return Map.of("status", "STARTED", "jobId", status.jobId(), "appsToRotate", status.total());
+        } catch (IllegalStateException e) {
+            audit.record(AuditEvent.BULK_ROTATION, AuditEvent.MCP, null, AuditEvent.ERROR, e.getMessage());
+            return Map.of("status", "REFUSED", "msg", e.getMessage());
+        } catch (Exception e) {
+            logger.error("❌ AI Tool Failed: startBulkRotation", e);
+            return Map.of("status", "ERROR", "error", String.valueOf(e.getMessage()));
+        }
+    }
+
+    @Tool(description = "Get the progress of a bulk rotation job: apps processed, rotated and failed, with per-app failure reasons.")
+    public Object getBulkRotationStatus(String jobId) {
+        logger.info("🤖 AI Tool Triggered: getBulkRotationStatus for jobId={}", jobId);
+        metrics.toolCall("getBulkRotationStatus");
+
+        return bulkRotation.status(jobId)
+                .<Object>map(status -> status)
+                .orElse(Map.of("status", "NOT_FOUND", "msg", "No bulk rotation job with id " + jobId + " on this node"));
+    }
+}
@@ -1,14 +1,24 @@
 package com.ayedata.simault.mcp.observability;
 
+import com.ayedata.simault.audit.AuditLog;
+import com.ayedata.simault.metrics.VaultMetrics;
+import com.ayedata.simault.model.AuditEvent;
+import com.ayedata.simault.model.FleetHealthReport;
+import com.ayedata.simault.model.SecretVersion;
 import com.ayedata.simault.repository.AppRegistryRepository;
+import com.ayedata.simault.service.SecretCache;
+import com.ayedata.simault.service.SecretHealthService;
+import com.ayedata.simault.service.SecretLeaseManager;
+import com.ayedata.simault.service.SecretPolicy;
 import com.ayedata.simault.service.SecretVaultService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.annotation.ToolParam;
 import org.springframework.stereotype.Component;
 
-import java.time.Instant;
 import java.util.Map;
+import java.util.Optional;
 
 @Component
 public class SecretHealthTools {
@@ -18,39 +28,95 @@ public class SecretHealthTools {
 
     private final AppRegistryRepository registry;
     private final SecretVaultService vaultService;
+    private final SecretCache secretCache;
+    private final SecretHealthService healthService;
+    private final SecretLeaseManager leaseManager;
+    private final SecretPolicy policy;
+    private final VaultMetrics metrics;
+    private final AuditLog audit;
 
-    public SecretHealthTools(AppRegistryRepository registry, SecretVaultService vaultService) {
+    public SecretHealthTools(AppRegistryRepository registry, SecretVaultService vaultService,
+                             SecretCache secretCache, SecretHealthService healthService,
+                             SecretLeaseManager leaseManager, SecretPolicy policy, VaultMetrics metrics,
+                             AuditLog audit) {
         this.registry = registry;
         this.vaultService = vaultService;
+        this.secretCache = secretCache;
+        this.healthService = healthService;
+        this.leaseManager = leaseManager;
+        this.policy = policy;
+        this.metrics = metrics;
+        this.audit = audit;
     }
 
+    /**
+     * Metadata only: the createdAt and expiry of the current secret, from the cache or a
+     * createdAt + expireAt projection. Never decrypts, and never rotates a missing secret.
+     */
     @Tool(description = "Check secret health and TTL without revealing the value.")
     public Map<String, Object> checkSecretHealth(String appId) {
         // Log the tool trigger
         logger.info("🤖 AI Tool Triggered: checkSecretHealth for appId={}", appId);
+        metrics.toolCall("checkSecretHealth");
 
         if (!registry.isAppAllowed(appId)) {
+            metrics.denied(VaultMetrics.MCP);
             logger.warn("Health check failed: App not allowed or unregistered: {}", appId);
+            audit.record(AuditEvent.SECRET_HEALTH, AuditEvent.MCP, appId, AuditEvent.DENIED);
             return Map.of("status", "UNREGISTERED", "msg", "App not in whitelist");
         }
         
         try {
-            var secret = vaultService.getAppSecret(appId);
-            long ttl = 3600 - (Instant.now().getEpochSecond() - secret.createdAt().getEpochSecond());
+            Optional<SecretVersion> version = vaultService.findSecretLifetime(appId);
+            if (version.isEmpty()) {
+                logger.info("No secret issued yet for: {}", appId);
+                audit.record(AuditEvent.SECRET_HEALTH, AuditEvent.MCP, appId, AuditEvent.SUCCESS, "missing");
+                return Map.of("appId", appId, "status", "MISSING",
+                    "msg", "No secret issued; one is created on the next secret request");
+            }
+            long ttl = leaseManager.remainingSeconds(version.get().expiresAt());
 
             logger.info("✅ Secret health status retrieved successfully for: {}", appId);
+            audit.record(AuditEvent.SECRET_HEALTH, AuditEvent.MCP, appId, AuditEvent.SUCCESS);
             logger.debug("TTL for appId={} is {} seconds", appId, ttl);
 
             return Map.of(
-                "appId", secret.appId(),
+                "appId", appId,
                 "status", "ACTIVE",
-                "generatedAt", secret.createdAt().toString(),
-                "expiresInSeconds", Math.max(0, ttl),
+                "generatedAt", version.get().createdAt().toString(),
+                "expiresInSeconds", ttl,
+                // The app's configured lifetime; applies from its next secret if it was just changed
+                "ttlSeconds", policy.forApp(appId).ttlSeconds(),
                 "isExpired", ttl <= 0
             );
         } catch (Exception e) {
             logger.error("❌ Error checking secret health for: {}", appId, e);
+            audit.record(AuditEvent.SECRET_HEALTH, AuditEvent.MCP, appId, AuditEvent.ERROR);
             return Map.of("status", "ERROR", "error", e.getMessage());
         }
     }
+
+    @Tool(description = "Report the secret health of every registered app: counts, and the apps whose secret "
+            + "expires soon, has expired, is missing, or cannot be decrypted. Never decrypts or reveals secret values.")
+    public FleetHealthReport getFleetHealthReport(
+            @ToolParam(required = false, description = "Report secrets expiring within this many seconds (default 300)")
+            Long expiringWithinSeconds) {
+        logger.info("🤖 AI Tool Triggered: getFleetHealthReport");
+        metrics.toolCall("getFleetHealthReport");
+
+        // Small lists: every appId listed ends up in the model's context
+        FleetHealthReport report = healthService.fleetReport(expiringWithinSeconds, 50);
+        logger.info("✅ Fleet health: {} apps, {} healthy, {} missing, {} undecryptable",
+            report.apps(), report.healthy(), report.missingCount(), report.undecryptableCount());
+        audit.record(AuditEvent.SECRET_HEALTH, AuditEvent.MCP, null, AuditEvent.SUCCESS, "fleet");
+        return report;
+    }
+
+    @Tool(description = "Report hit, miss and eviction counters of the decrypted-secret cache. Never reveals secret values.")
+    public Map<String, Object> getSecretCacheStats() {
+        logger.info("🤖 AI Tool Triggered: getSecretCacheStats");
+        metrics.toolCall("getSecretCacheStats");
+        audit.record(AuditEvent.CACHE_READ, AuditEvent.MCP, null, AuditEvent.SUCCESS);
+        return secretCache.stats();
+    }
 }
\ No newline at end of file
@@ -1,14 +1,20 @@
 package com.ayedata.simault.mcp.vault;
 
+import com.ayedata.simault.audit.AuditLog;
+import com.ayedata.simault.metrics.VaultMetrics;
 import com.ayedata.simault.model.AppSecret;
+import com.ayedata.simault.model.AuditEvent;
+import com.ayedata.simault.model.BatchSecretResponse;
 import com.ayedata.simault.repository.AppRegistryRepository;
+import com.ayedata.simault.service.SecretLeaseManager;
 import com.ayedata.simault.service.SecretVaultService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.stereotype.Component;
 
-import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 @Component
@@ -19,37 +25,84 @@ public class SecretVaultTools {
 
     private final AppRegistryRepository registry;
     private final SecretVaultService vaultService;
+    private final SecretLeaseManager leaseManager;
+    private final VaultMetrics metrics;
+    private final AuditLog audit;
 
-    public SecretVaultTools(AppRegistryRepository registry, SecretVaultService vaultService) {
+    public SecretVaultTools(AppRegistryRepository registry, SecretVaultService vaultService,
+                            SecretLeaseManager leaseManager, VaultMetrics metrics, AuditLog audit) {
         this.registry = registry;
         this.vaultService = vaultService;
+        this.leaseManager = leaseManager;
+        this.metrics = metrics;
+        this.audit = audit;
     }
 
     @Tool(description = "Retrieve the decrypted secret value for a registered application. WARNING: This exposes the raw password to the AI context.")
     public Map<String, Object> getSecret(String appId) {
         logger.info("🤖 AI Tool Triggered: getSecret for appId={}", appId);
+        metrics.toolCall("getSecret");
 
         if (!registry.isAppAllowed(appId)) {
+            metrics.denied(VaultMetrics.MCP);
             logger.warn("🛑 Access Denied: AI attempted to fetch secret for unauthorized app: {}", appId);
+            audit.record(AuditEvent.SECRET_READ, AuditEvent.MCP, appId, AuditEvent.DENIED);
             return Map.of("status", "FAILED", "msg", "Access Denied: App not in whitelist");
         }
 
         try {
-            AppSecret secret = vaultService.getAppSecret(appId);
-            long ttl = 3600 - (Instant.now().getEpochSecond() - secret.createdAt().getEpochSecond());
+            AppSecret secret = vaultService.getAppSecret(appId, VaultMetrics.MCP);
+            long ttl = leaseManager.remainingSeconds(secret.expiresAt());
 
             // We log that the action succeeded, but we DO NOT log the secret value itself.
             // Defense in depth: even if redaction fails, the secret is never written here.
             logger.info("✅ Secret successfully retrieved and returned to AI context for: {}", appId);
+            audit.record(AuditEvent.SECRET_READ, AuditEvent.MCP, appId, AuditEvent.SUCCESS);
 
             return Map.of(
                 "appId", secret.appId(),
                 "status", "SUCCESS",
                 "secretValue", secret.secretValue(), // RAW DATA (Sent to AI, not logged)
-                "expiresInSeconds", Math.max(0, ttl)
+                "expiresInSeconds", ttl
             );
         } catch (Exception e) {
             logger.error("❌ Error retrieving secret for: {}", appId, e);
+            audit.record(AuditEvent.SECRET_READ, AuditEvent.MCP, appId, AuditEvent.ERROR);
+            return Map.of("status", "ERROR", "error", e.getMessage());
+        }
+    }
+
+    @Tool(description = "Retrieve the decrypted secrets for several registered applications at once. Unregistered apps are reported individually. WARNING: This exposes raw passwords to the AI context.")
+    public Map<String, Object> getSecrets(List<String> appIds) {
+        logger.info("🤖 AI Tool Triggered: getSecrets for {} apps", appIds == null ? 0 : appIds.size());
+        metrics.toolCall("getSecrets");
+
+        if (appIds == null || appIds.isEmpty()) {
+            return Map.of("status", "FAILED", "msg", "No appIds given");
+        }
+
+        try {
+            BatchSecretResponse response = vaultService.getAppSecrets(appIds, VaultMetrics.MCP);
+
+            Map<String, Object> results = new LinkedHashMap<>();
+            response.secrets().forEach((appId, secret) -> {
+                long ttl = leaseManager.remainingSeconds(secret.expiresAt());
+                results.put(appId, Map.of(
+                    "secretValue", secret.secretValue(), // RAW DATA (Sent to AI, not logged)
+                    "expiresInSeconds", ttl
+                ));
+            });
+
+            logger.info("✅ Batch of {} secrets returned to AI context ({} failed)", results.size(), response.errors().size());
+            audit.recordBatch(AuditEvent.MCP, response);
+
+            return Map.of(
+                "status", response.errors().isEmpty() ? "SUCCESS" : "PARTIAL",
+                "secrets", results,
+                "errors", response.errors()
+            );
+        } catch (Exception e) {
+            logger.error("❌ Error retrieving batch of secrets", e);
             return Map.of("status", "ERROR", "error", e.getMessage());
         }
     }
@@ -57,16 +110,20 @@ public class SecretVaultTools {
     @Tool(description = "Forcefully rotate (regenerate) the secret for a specific application. Use this if a secret is compromised or expired.")
     public Map<String, Object> rotateSecret(String appId) {
         logger.warn("🤖 AI Tool Triggered: rotateSecret for appId={}", appId);
+        metrics.toolCall("rotateSecret");
 
         if (!registry.isAppAllowed(appId)) {
+            metrics.denied(VaultMetrics.MCP);
             logger.warn("🛑 Rotate Failed: App not in whitelist: {}", appId);
+            audit.record(AuditEvent.SECRET_ROTATE, AuditEvent.MCP, appId, AuditEvent.DENIED);
             return Map.of("status", "FAILED", "msg", "Access Denied: App not in whitelist");
         }
 
         try {
-            AppSecret newSecret = vaultService.rotateSecret(appId);
+            AppSecret newSecret = vaultService.rotateSecret(appId, VaultMetrics.MCP);
             
             logger.info("✅ Secret successfully rotated for: {}", appId);
+            audit.record(AuditEvent.SECRET_ROTATE, AuditEvent.MCP, appId, AuditEvent.SUCCESS, "manual");
             
             return Map.of(
                 "appId", newSecret.appId(),
@@ -77,6 +134,7 @@ public class SecretVaultTools {
             );
         } catch (Exception e) {
             logger.error("❌ Error rotating secret for: {}", appId, e);
+            audit.record(AuditEvent.SECRET_ROTATE, AuditEvent.MCP, appId, AuditEvent.ERROR);
             return Map.of("status", "ERROR", "error", e.getMessage());
         }
     }
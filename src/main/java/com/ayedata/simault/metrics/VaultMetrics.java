@@ -0,0 +1,110 @@
+package com.ayedata.simault.metrics;
+
+import com.ayedata.simault.crypto.CryptoCircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Micrometer instruments for the secret paths, exposed on /actuator/prometheus.
+ *
+ * simault.secret.stage      timer, tags operation + stage (registry_check, find, decrypt, encrypt, write, ...)
+ * simault.secret.rotations  counter, tags trigger (lazy, decrypt_failure, manual, proactive, bulk)
+ *                           + entrypoint (rest, mcp, system)
+ * simault.requests.denied   counter, tag entrypoint (rest, mcp)
+ * simault.mcp.tool.calls    counter, tag tool
+ * simault.crypto.breaker.*  state (1 for the current state), failure rate, rejected calls, transitions
+ */
+@Component
+public class VaultMetrics {
+
+    // --- Entry points ---
+    public static final String REST = "rest";
+    public static final String MCP = "mcp";
+    // Schedulers and admin jobs: proactive, bulk and expiry rotations
+    public static final String SYSTEM = "system";
+
+    // --- Operations ---
+    public static final String GET = "get";
+    public static final String ROTATE = "rotate";
+    public static final String BATCH_GET = "batch_get";
+    public static final String BULK_ROTATE = "bulk_rotate";
+
+    private final MeterRegistry registry;
+    private final ConcurrentHashMap<String, Timer> stageTimers = new ConcurrentHashMap<>();
+
+    public VaultMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    public void stop(Timer.Sample sample, String operation, String stage) {
+        sample.stop(stageTimer(operation, stage));
+    }
+
+    public void rotation(String trigger, String entryPoint) {
+        Counter.builder("simault.secret.rotations")
+                .description("Secret rotations by what triggered them")
+                .tag("trigger", trigger)
+                .tag("entrypoint", entryPoint)
+                .register(registry)
+                .increment();
+    }
+
+    public void denied(String entryPoint) {
+        Counter.builder("simault.requests.denied")
+                .description("Requests refused because the app is not registered")
+                .tag("entrypoint", entryPoint)
+                .register(registry)
+                .increment();
+    }
+
+    public void toolCall(String tool) {
+        Counter.builder("simault.mcp.tool.calls")
+                .description("MCP tool invocations")
+                .tag("entrypoint", MCP)
+                .tag("tool", tool)
+                .register(registry)
+                .increment();
+    }
+
+    /** Gauges and counters for the crypto circuit breaker. */
+    public void bindCryptoBreaker(CryptoCircuitBreaker breaker) {
+        for (CryptoCircuitBreaker.State state : CryptoCircuitBreaker.State.values()) {
+            Gauge.builder("simault.crypto.breaker.state", breaker, b -> b.state() == state ? 1 : 0)
+                    .description("1 for the state the crypto circuit breaker is in, 0 otherwise")
+                    .tag("state", state.name().toLowerCase(Locale.ROOT))
+                    .register(registry);
+        }
+        Gauge.builder("simault.crypto.breaker.failure.rate", breaker, CryptoCircuitBreaker::failureRate)
+                .description("Failure rate of the crypto calls in the breaker's window, in percent")
+                .baseUnit("percent")
+                .register(registry);
+        FunctionCounter.builder("simault.crypto.breaker.rejected", breaker, CryptoCircuitBreaker::rejectedCalls)
+                .description("Crypto calls refused while the breaker was open")
+                .register(registry);
+        breaker.onTransition(state -> Counter.builder("simault.crypto.breaker.transitions")
+                .description("Crypto circuit breaker state changes")
+                .tag("to", state.name().toLowerCase(Locale.ROOT))
+                .register(registry)
+                .increment());
+    }
+
+    private Timer stageTimer(String operation, String stage) {
+        return stageTimers.computeIfAbsent(operation + '/' + stage, key -> Timer.builder("simault.secret.stage")
+                .description("Latency of each stage of a secret operation")
+                .tag("operation", operation)
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+}
@@ -5,9 +5,20 @@ import java.time.Instant;
 /**
  * A simple Java Record to represent an authorized application.
  * Records are immutable data carriers, perfect for this use case.
+ * ttlSeconds and secretLength (random bytes per secret) are null when the app
+ * uses the vault defaults (vault.secrets.default-ttl-seconds / default-length-bytes).
  */
 public record AllowedApp(
     String appId,
     String description,
-    Instant registeredAt
-) {}
\ No newline at end of file
+    Instant registeredAt,
+    Long ttlSeconds,
+    Integer secretLength
+) {
+    // Bounds for per-app settings: a lifetime the expiry tick can honour, and
+    // between 128 and 2048 bits of randomness
+    public static final long MIN_TTL_SECONDS = 60;
+    public static final long MAX_TTL_SECONDS = 30L * 24 * 3600;
+    public static final int MIN_SECRET_LENGTH = 16;
+    public static final int MAX_SECRET_LENGTH = 256;
+}
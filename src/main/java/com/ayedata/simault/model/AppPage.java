@@ -0,0 +1,12 @@
+package com.ayedata.simault.model;
+
+import java.util.List;
+
+/**
+ * One page of registered apps, newest registration first.
+ * nextCursor is passed back to get the following page; null on the last page.
+ */
+public record AppPage(
+    List<AllowedApp> apps,
+    String nextCursor
+) {}
@@ -6,5 +6,6 @@ import java.time.Instant;
 public record AppSecret(
     String appId, 
     String secretValue, 
-    Instant createdAt
-) {}
\ No newline at end of file
+    Instant createdAt,
+    Instant expiresAt
+) {}
@@ -0,0 +1,41 @@
+package com.ayedata.simault.model;
+
+import java.time.Instant;
+
+/**
+ * One entry of the audit trail. Never carries a secret value: detail is for
+ * things like the rotation trigger or a batch size.
+ */
+public record AuditEvent(
+    Instant timestamp,
+    String action,
+    String entryPoint,
+    String appId,
+    String outcome,
+    String detail
+) {
+    // --- Actions ---
+    public static final String SECRET_READ = "secret.read";
+    public static final String SECRET_BATCH_READ = "secret.batch_read";
+    public static final String SECRET_ROTATE = "secret.rotate";
+    public static final String SECRET_WATCH = "secret.watch";
+    public static final String SECRET_HEALTH = "secret.health";
+    public static final String APP_LIST = "app.list";
+    public static final String APP_REGISTER = "app.register";
+    public static final String APP_REMOVE = "app.remove";
+    public static final String BULK_ROTATION = "rotation.bulk";
+    public static final String KEY_READ = "key.read";
+    public static final String KEY_ROTATE = "key.rotate";
+    public static final String CACHE_READ = "cache.read";
+
+    // --- Entry points ---
+    public static final String REST = "rest";
+    public static final String ADMIN = "admin";
+    public static final String MCP = "mcp";
+    public static final String SYSTEM = "system";
+
+    // --- Outcomes ---
+    public static final String SUCCESS = "success";
+    public static final String DENIED = "denied";
+    public static final String ERROR = "error";
+}
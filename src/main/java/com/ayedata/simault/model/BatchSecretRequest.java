@@ -0,0 +1,8 @@
+package com.ayedata.simault.model;
+
+import java.util.List;
+
+// Body of POST /api/secrets/batch
+public record BatchSecretRequest(
+    List<String> appIds
+) {}
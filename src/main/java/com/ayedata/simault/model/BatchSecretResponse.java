@@ -0,0 +1,12 @@
+package com.ayedata.simault.model;
+
+import java.util.Map;
+
+/**
+ * Per-app outcome of a batch retrieval: every requested appId appears
+ * in exactly one of the two maps.
+ */
+public record BatchSecretResponse(
+    Map<String, AppSecret> secrets,
+    Map<String, String> errors
+) {}
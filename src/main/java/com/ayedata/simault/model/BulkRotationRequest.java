@@ -0,0 +1,8 @@
+package com.ayedata.simault.model;
+
+// Body of POST /api/admin/rotations; every field is optional
+public record BulkRotationRequest(
+    String prefix,
+    Integer batchSize,
+    Integer maxPerSecond
+) {}
@@ -0,0 +1,28 @@
+package com.ayedata.simault.model;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Progress of a bulk rotation job. failures is capped; failed is the full count.
+ */
+public record BulkRotationStatus(
+    String jobId,
+    String prefix,
+    String state,
+    long total,
+    long processed,
+    long rotated,
+    long failed,
+    Map<String, String> failures,
+    int batchSize,
+    int maxPerSecond,
+    Instant startedAt,
+    Instant finishedAt,
+    String error
+) {
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String CANCELLED = "CANCELLED";
+    public static final String FAILED = "FAILED";
+}
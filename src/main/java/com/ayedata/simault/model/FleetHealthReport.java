@@ -0,0 +1,26 @@
+package com.ayedata.simault.model;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Secret health of every registered app, computed from metadata and ciphertext
+ * headers only. Counts are complete; the lists stop at maxListed entries each.
+ * undecryptable maps appId to the reason its ciphertext cannot be read.
+ */
+public record FleetHealthReport(
+    Instant generatedAt,
+    long apps,
+    long healthy,
+    long expiringSoonCount,
+    long expiredCount,
+    long missingCount,
+    long undecryptableCount,
+    long expiringWithinSeconds,
+    int maxListed,
+    List<String> expiringSoon,
+    List<String> expired,
+    List<String> missing,
+    Map<String, String> undecryptable
+) {}
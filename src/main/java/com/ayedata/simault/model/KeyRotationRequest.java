@@ -0,0 +1,9 @@
+package com.ayedata.simault.model;
+
+import java.util.Map;
+
+// Body of POST /api/admin/keys/rotate. masterKey is only used by the "rewrap" mode.
+public record KeyRotationRequest(
+    String mode,
+    Map<String, Object> masterKey
+) {}
@@ -0,0 +1,33 @@
+package com.ayedata.simault.model;
+
+import java.time.Instant;
+
+/**
+ * Progress of a data key rotation, persisted after every batch so that any node can
+ * report it and resume the job after a crash. lastId is the checkpoint: every secret
+ * with a smaller _id has been handled.
+ */
+public record KeyRotationStatus(
+    String jobId,
+    String mode,
+    String state,
+    String fromKeyId,
+    String toKeyId,
+    long total,
+    long processed,
+    long reencrypted,
+    long skipped,
+    long failed,
+    String lastId,
+    Instant startedAt,
+    Instant updatedAt,
+    Instant finishedAt,
+    String error
+) {
+    public static final String NEW_KEY = "new-key";
+    public static final String REWRAP = "rewrap";
+
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+}
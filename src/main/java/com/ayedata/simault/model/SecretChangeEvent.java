@@ -0,0 +1,18 @@
+package com.ayedata.simault.model;
+
+import java.time.Instant;
+
+/**
+ * Pushed to watchers of an app when its secret changes. Never carries the secret itself:
+ * clients fetch it with GET /api/secrets/{appId} (If-None-Match: version).
+ * type is "rotated" (new secret, version set) or "expired" (deleted by TTL or by hand).
+ */
+public record SecretChangeEvent(
+    String appId,
+    String type,
+    String version,
+    Instant createdAt
+) {
+    public static final String ROTATED = "rotated";
+    public static final String EXPIRED = "expired";
+}
@@ -0,0 +1,12 @@
+package com.ayedata.simault.model;
+
+import java.time.Instant;
+
+/**
+ * Metadata of an app's current secret, without the secret: createdAt is its version
+ * (see SecretUtils.versionTag), expiresAt the end of its lifetime.
+ */
+public record SecretVersion(
+    Instant createdAt,
+    Instant expiresAt
+) {}
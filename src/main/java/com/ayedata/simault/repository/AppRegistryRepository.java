@@ -1,80 +1,244 @@
 package com.ayedata.simault.repository;
 
+import com.ayedata.simault.config.ReadRouting;
 import com.ayedata.simault.model.AllowedApp;
+import com.ayedata.simault.model.AppPage;
+import com.mongodb.MongoCommandException;
+import com.mongodb.ReadPreference;
+import com.mongodb.client.MongoChangeStreamCursor;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.model.Filters;
-import com.mongodb.client.model.IndexOptions;
-import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Repository;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
 
 @Repository
 public class AppRegistryRepository {
 
+    private static final Logger logger = LogManager.getLogger(AppRegistryRepository.class);
+
     private final MongoClient mongoClient;
-    
+    private final ApplicationEventPublisher events;
+    private final ReadRouting readRouting;
+
     // Inject database name from application.properties
-    @Value("${vault.mongodb.database}") 
+    @Value("${vault.mongodb.database}")
     private String dbName;
-    
+
+    // --- Allowlist cache ---
+    @Value("${vault.registry.cache.enabled:true}")
+    private boolean cacheEnabled;
+    // Upper bound on how old the local snapshot may be before we fall back to MongoDB.
+    // This is also the revocation window for removeApp() on every other node.
+    @Value("${vault.registry.cache.max-staleness-ms:5000}")
+    private long maxStalenessMs;
+
+    // --- Listing ---
+    @Value("${vault.registry.page.default-size:100}")
+    private int defaultPageSize;
+    @Value("${vault.registry.page.max-size:1000}")
+    private int maxPageSize;
+
     private static final String COLLECTION_NAME = "allowed_apps";
+    // Fields a listing can be restricted to; appId is always returned
+    public static final Set<String> APP_FIELDS = Set.of("appId", "description", "registeredAt", "ttlSeconds", "secretLength");
+    // Newest registration first, on the { registeredAt: -1, appId: 1 } index
+    private static final Bson LISTING_ORDER = Sorts.orderBy(Sorts.descending("registeredAt"), Sorts.ascending("appId"));
+    // Error code returned when a resume token is no longer in the oplog
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+    private static final Pattern REGEX_META = Pattern.compile("[\\\\^$.|?*+()\\[\\]{}]");
+
+    // Snapshot of the registry: updated in place per change, swapped as a whole on resync.
+    // Readers never lock.
+    private volatile ConcurrentHashMap<String, AllowedApp> snapshot = new ConcurrentHashMap<>();
+    // Registry document _id <-> appId. Delete events carry only the _id.
+    private volatile ConcurrentHashMap<BsonValue, String> appIdsByDocId = new ConcurrentHashMap<>();
+    private volatile ConcurrentHashMap<String, BsonValue> docIdsByAppId = new ConcurrentHashMap<>();
+    // Last time (epoch ms) the snapshot was confirmed to match the database
+    private volatile long lastConfirmedAt = 0L;
+    // Serializes writers (resync, change events, local register/remove)
+    private final ReentrantLock writeLock = new ReentrantLock();
 
-    public AppRegistryRepository(MongoClient mongoClient) {
+    private volatile boolean running = true;
+    private Thread watcher;
+
+    public AppRegistryRepository(MongoClient mongoClient, ApplicationEventPublisher events, ReadRouting readRouting) {
         this.mongoClient = mongoClient;
+        this.events = events;
+        this.readRouting = readRouting;
     }
 
     /**
      * Initialization: Runs automatically on startup.
-     * Ensures the 'appId' index exists and is unique.
+     * Loads the allowlist snapshot and starts following the registry's change stream.
+     * The unique 'appId' index is created by MongoConfig.
      */
     @PostConstruct
     public void init() {
-        getCollection().createIndex(
-            Indexes.ascending("appId"), 
-            new IndexOptions().unique(true)
-        );
+        if (cacheEnabled) {
+            resync();
+            watcher = Thread.ofPlatform().daemon().name("allowlist-watcher").start(this::watchRegistry);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (watcher != null) watcher.interrupt();
     }
 
-    // Helper to get the collection connection
+    // Helper to get the collection connection (primary; lookups go through readRouting.forReads())
     private MongoCollection<Document> getCollection() {
-        return mongoClient.getDatabase(dbName).getCollection(COLLECTION_NAME);
+        return mongoClient.getDatabase(dbName).getCollection(COLLECTION_NAME).withReadPreference(ReadPreference.primary());
     }
 
     /**
      * Registers a new app or updates an existing one (Upsert).
+     * A changed TTL or secret length applies from the app's next secret on.
      * * @param appId The unique identifier for the application (e.g., "payment-service")
      * @param description A human-readable description
+     * @param ttlSeconds Lifetime of the app's secrets (null for the vault default)
+     * @param secretLength Random bytes per secret (null for the vault default)
+     * @throws IllegalArgumentException if ttlSeconds or secretLength is out of bounds
      */
-    public void registerApp(String appId, String description) {
+    public void registerApp(String appId, String description, Long ttlSeconds, Integer secretLength) {
+        if (ttlSeconds != null && (ttlSeconds < AllowedApp.MIN_TTL_SECONDS || ttlSeconds > AllowedApp.MAX_TTL_SECONDS)) {
+            throw new IllegalArgumentException("ttlSeconds must be between " + AllowedApp.MIN_TTL_SECONDS
+                    + " and " + AllowedApp.MAX_TTL_SECONDS);
+        }
+        if (secretLength != null && (secretLength < AllowedApp.MIN_SECRET_LENGTH || secretLength > AllowedApp.MAX_SECRET_LENGTH)) {
+            throw new IllegalArgumentException("secretLength must be between " + AllowedApp.MIN_SECRET_LENGTH
+                    + " and " + AllowedApp.MAX_SECRET_LENGTH + " bytes");
+        }
+
+        Instant registeredAt = Instant.now();
         Document doc = new Document()
                 .append("appId", appId)
                 .append("description", description)
-                .append("registeredAt", Date.from(Instant.now()));
+                .append("registeredAt", Date.from(registeredAt));
+        // Absent rather than null: the app follows the vault defaults, including later changes to them
+        if (ttlSeconds != null) doc.append("ttlSeconds", ttlSeconds);
+        if (secretLength != null) doc.append("secretLength", secretLength);
 
         // replaceOne with upsert=true acts as "Insert or Update"
-        getCollection().replaceOne(
-                Filters.eq("appId", appId), 
-                doc, 
+        readRouting.write(ReadRouting.REGISTRY, session -> ReadRouting.replaceOne(
+                getCollection(),
+                session,
+                Filters.eq("appId", appId),
+                doc,
                 new ReplaceOptions().upsert(true)
-        );
+        ));
+
+        // Visible on this node immediately; other nodes pick it up from the change stream
+        applyUpsert(toAllowedApp(doc));
     }
 
     /**
      * Checks if an application is currently authorized.
+     * Served from the local snapshot while it is fresher than the staleness bound,
+     * otherwise answered by MongoDB directly.
      * * @param appId The application ID to check
      * @return true if allowed, false otherwise
      */
     public boolean isAppAllowed(String appId) {
-        return getCollection().countDocuments(Filters.eq("appId", appId)) > 0;
+        if (isSnapshotFresh()) {
+            return snapshot.containsKey(appId);
+        }
+        return readRouting.read(ReadRouting.REGISTRY, session ->
+                ReadRouting.countDocuments(readRouting.forReads(getCollection()), session, Filters.eq("appId", appId))) > 0;
+    }
+
+    /**
+     * The registration of an app, for its per-app settings. Served from the local
+     * snapshot while it is fresh, otherwise read from MongoDB.
+     * @param appId The application ID to look up
+     * @return the app, or empty if it is not registered
+     */
+    public Optional<AllowedApp> findApp(String appId) {
+        if (isSnapshotFresh()) {
+            return Optional.ofNullable(snapshot.get(appId));
+        }
+        return readRouting.read(ReadRouting.REGISTRY, session -> Optional.ofNullable(
+                ReadRouting.find(readRouting.forReads(getCollection()), session, Filters.eq("appId", appId)).first())
+                .map(this::toAllowedApp));
+    }
+
+    /**
+     * Non-blocking form of findApp() for the reactive stack: answers only from the
+     * local snapshot.
+     * @param appId The application ID to look up
+     * @return the app, or empty if it is not in the snapshot or the snapshot is too stale to answer
+     */
+    public Optional<AllowedApp> findAppFromSnapshot(String appId) {
+        return isSnapshotFresh() ? Optional.ofNullable(snapshot.get(appId)) : Optional.empty();
+    }
+
+    /**
+     * Non-blocking form of isAppAllowed() for the reactive stack: answers only from the
+     * local snapshot and leaves the database lookup to the caller.
+     * @param appId The application ID to check
+     * @return the decision, or empty if the snapshot is too stale to answer
+     */
+    public Optional<Boolean> isAppAllowedFromSnapshot(String appId) {
+        return isSnapshotFresh() ? Optional.of(snapshot.containsKey(appId)) : Optional.empty();
+    }
+
+    /**
+     * Batch form of isAppAllowed(): one snapshot pass, or one $in query when the
+     * snapshot is stale.
+     * @param appIds The application IDs to check
+     * @return the subset of appIds that are registered
+     */
+    public Set<String> findAllowed(Collection<String> appIds) {
+        Set<String> allowed = new HashSet<>();
+        if (isSnapshotFresh()) {
+            Map<String, AllowedApp> current = snapshot;
+            for (String appId : appIds) {
+                if (current.containsKey(appId)) allowed.add(appId);
+            }
+            return allowed;
+        }
+
+        return readRouting.read(ReadRouting.REGISTRY, session -> {
+            for (Document doc : ReadRouting.find(readRouting.forReads(getCollection()), session, Filters.in("appId", appIds))
+                    .projection(Projections.include("appId"))) {
+                allowed.add(doc.getString("appId"));
+            }
+            return allowed;
+        });
     }
 
     /**
@@ -82,25 +246,356 @@ public class AppRegistryRepository {
      * * @return List of AllowedApp model objects
      */
     public List<AllowedApp> findAll() {
-        List<AllowedApp> apps = new ArrayList<>();
-        
-        for (Document doc : getCollection().find()) {
-            apps.add(new AllowedApp(
-                doc.getString("appId"),
-                doc.getString("description"),
-                // Handle potential null dates safely
-                doc.getDate("registeredAt") != null ? doc.getDate("registeredAt").toInstant() : null
-            ));
+        return readRouting.read(ReadRouting.REGISTRY, session -> {
+            List<AllowedApp> apps = new ArrayList<>();
+            for (Document doc : ReadRouting.find(readRouting.forReads(getCollection()), session, new Document())) {
+                apps.add(toAllowedApp(doc));
+            }
+            return apps;
+        });
+    }
+
+    /**
+     * One page of registered apps, newest registration first. Keyset-paged on
+     * { registeredAt: -1, appId: 1 }: the cursor holds the last (registeredAt, appId) seen,
+     * so every page costs the same however deep it is, and apps registered meanwhile
+     * do not shift the pages.
+     * @param search Text search on description (null or blank for all apps)
+     * @param cursor nextCursor of the previous page (null for the first page)
+     * @param limit Page size (null for vault.registry.page.default-size, capped at max-size)
+     * @param fields Fields to return (null for all); appId is always included
+     * @throws IllegalArgumentException if the cursor or a field name is not valid
+     */
+    public AppPage findPage(String search, String cursor, Integer limit, Set<String> fields) {
+        int size = Math.min(limit == null || limit <= 0 ? defaultPageSize : limit, maxPageSize);
+        List<Bson> filters = new ArrayList<>();
+        if (search != null && !search.isBlank()) filters.add(Filters.text(search));
+        if (cursor != null && !cursor.isBlank()) filters.add(after(cursor));
+        Bson projection = listingProjection(fields);
+
+        List<AllowedApp> apps = readRouting.read(ReadRouting.REGISTRY, session -> {
+            List<AllowedApp> page = new ArrayList<>(size + 1);
+            // One extra document tells us whether there is a next page
+            for (Document doc : ReadRouting.find(readRouting.forReads(getCollection()), session,
+                            filters.isEmpty() ? new Document() : Filters.and(filters))
+                    .projection(projection)
+                    .sort(LISTING_ORDER)
+                    .limit(size + 1)) {
+                page.add(toAllowedApp(doc));
+            }
+            return page;
+        });
+
+        String nextCursor = null;
+        if (apps.size() > size) {
+            apps = apps.subList(0, size);
+            nextCursor = encodeCursor(apps.get(size - 1));
+        }
+        return new AppPage(fields == null || fields.contains("registeredAt") ? apps : withoutRegisteredAt(apps), nextCursor);
+    }
+
+    /**
+     * Every registered app (or every search match) in listing order, for streaming.
+     * Documents are fetched in driver batches as the caller iterates; the caller closes the cursor.
+     * @param search Text search on description (null or blank for all apps)
+     * @param fields Fields to return (null for all); appId is always included
+     */
+    public MongoCursor<AllowedApp> openListingCursor(String search, Set<String> fields) {
+        Bson filter = search != null && !search.isBlank() ? Filters.text(search) : new Document();
+        boolean withRegisteredAt = fields == null || fields.contains("registeredAt");
+        return readRouting.forReads(getCollection())
+                .find(filter)
+                .projection(listingProjection(fields))
+                .sort(LISTING_ORDER)
+                .batchSize(defaultPageSize)
+                .map(doc -> {
+                    AllowedApp app = toAllowedApp(doc);
+                    return withRegisteredAt ? app : withoutRegisteredAt(app);
+                })
+                .cursor();
+    }
+
+    /**
+     * One page of registered appIds in appId order, optionally restricted to a prefix.
+     * Keyset-paged on the unique appId index, so pages stay cheap however far in.
+     * @param prefix Only appIds starting with this (null or blank for all)
+     * @param afterAppId Last appId of the previous page (null for the first page)
+     * @param limit Page size
+     */
+    public List<String> findAppIdsPage(String prefix, String afterAppId, int limit) {
+        List<Bson> filters = new ArrayList<>();
+        if (prefix != null && !prefix.isBlank()) {
+            filters.add(prefixFilter(prefix));
+        }
+        if (afterAppId != null) filters.add(Filters.gt("appId", afterAppId));
+
+        List<String> appIds = new ArrayList<>();
+        for (Document doc : getCollection().find(filters.isEmpty() ? new Document() : Filters.and(filters))
+                .projection(Projections.fields(Projections.include("appId"), Projections.excludeId()))
+                .sort(Sorts.ascending("appId"))
+                .limit(limit)) {
+            appIds.add(doc.getString("appId"));
+        }
+        return appIds;
+    }
+
+    /**
+     * Number of registered apps, optionally restricted to a prefix.
+     */
+    public long countApps(String prefix) {
+        if (prefix == null || prefix.isBlank()) return getCollection().countDocuments();
+        return getCollection().countDocuments(prefixFilter(prefix));
+    }
+
+    // appId and registeredAt are always fetched: the cursor is built from them
+    private static Bson listingProjection(Set<String> fields) {
+        List<String> include = new ArrayList<>(List.of("appId", "registeredAt"));
+        if (fields == null) {
+            include.addAll(List.of("description", "ttlSeconds", "secretLength"));
+        } else {
+            for (String field : fields) {
+                if (!APP_FIELDS.contains(field)) throw new IllegalArgumentException("Unknown field: " + field);
+                if (!include.contains(field)) include.add(field);
+            }
+        }
+        return Projections.fields(Projections.include(include), Projections.excludeId());
+    }
+
+    private static List<AllowedApp> withoutRegisteredAt(List<AllowedApp> apps) {
+        List<AllowedApp> trimmed = new ArrayList<>(apps.size());
+        for (AllowedApp app : apps) trimmed.add(withoutRegisteredAt(app));
+        return trimmed;
+    }
+
+    private static AllowedApp withoutRegisteredAt(AllowedApp app) {
+        return new AllowedApp(app.appId(), app.description(), null, app.ttlSeconds(), app.secretLength());
+    }
+
+    // Cursor: base64url("<registeredAt epoch ms or ->:<appId>")
+    private static String encodeCursor(AllowedApp last) {
+        String at = last.registeredAt() == null ? "-" : String.valueOf(last.registeredAt().toEpochMilli());
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((at + ":" + last.appId()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Everything after the cursor in LISTING_ORDER. Apps without registeredAt sort last.
+    private static Bson after(String cursor) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        int colon = decoded.indexOf(':');
+        if (colon < 1) throw new IllegalArgumentException("Invalid cursor");
+        String at = decoded.substring(0, colon);
+        String appId = decoded.substring(colon + 1);
+
+        if (at.equals("-")) {
+            return Filters.and(Filters.eq("registeredAt", null), Filters.gt("appId", appId));
+        }
+        Date registeredAt;
+        try {
+            registeredAt = new Date(Long.parseLong(at));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
         }
-        return apps;
+        return Filters.or(
+                Filters.lt("registeredAt", registeredAt),
+                Filters.and(Filters.eq("registeredAt", registeredAt), Filters.gt("appId", appId)),
+                Filters.eq("registeredAt", null));
+    }
+
+    // Anchored regex with the metacharacters escaped one by one (not \Q...\E),
+    // so MongoDB recognises it as a literal prefix and scans only that range of the appId index
+    private static Bson prefixFilter(String prefix) {
+        return Filters.regex("appId", "^" + REGEX_META.matcher(prefix).replaceAll("\\\\$0"));
     }
 
     /**
      * Removes an application from the registry.
-     * This immediately revokes its access to get or rotate secrets.
+     * This immediately revokes its access to get or rotate secrets on this node,
+     * and on every other node within the configured staleness window.
      * * @param appId The application ID to remove
      */
     public void removeApp(String appId) {
-        getCollection().deleteOne(Filters.eq("appId", appId));
+        readRouting.write(ReadRouting.REGISTRY, session -> ReadRouting.deleteOne(getCollection(), session, Filters.eq("appId", appId)));
+        applyRemoval(appId);
+        events.publishEvent(new AppRemovedEvent(appId));
+    }
+
+    // --- Allowlist snapshot maintenance ---
+
+    /**
+     * Full reload of the snapshot from MongoDB.
+     * Runs at startup, after a change stream gap, and periodically as a fallback.
+     */
+    @Scheduled(fixedDelayString = "${vault.registry.cache.resync-interval-ms:60000}",
+               initialDelayString = "${vault.registry.cache.resync-interval-ms:60000}")
+    public void resync() {
+        if (!cacheEnabled) return;
+
+        writeLock.lock();
+        try {
+            // Always from the primary: the snapshot must not go back in time behind the change stream
+            ConcurrentHashMap<String, AllowedApp> fresh = new ConcurrentHashMap<>();
+            ConcurrentHashMap<BsonValue, String> appIds = new ConcurrentHashMap<>();
+            ConcurrentHashMap<String, BsonValue> docIds = new ConcurrentHashMap<>();
+            for (Document doc : getCollection().find()) {
+                AllowedApp app = toAllowedApp(doc);
+                if (app.appId() == null) continue;
+                BsonValue docId = doc.toBsonDocument().get("_id");
+                fresh.put(app.appId(), app);
+                appIds.put(docId, app.appId());
+                docIds.put(app.appId(), docId);
+            }
+            Map<String, AllowedApp> previous = snapshot;
+            snapshot = fresh;
+            appIdsByDocId = appIds;
+            docIdsByAppId = docIds;
+            lastConfirmedAt = System.currentTimeMillis();
+            logger.debug("Allowlist snapshot reloaded with {} apps.", fresh.size());
+
+            // Apps removed elsewhere only show up as a difference between snapshots
+            for (String appId : previous.keySet()) {
+                if (!fresh.containsKey(appId)) events.publishEvent(new AppRemovedEvent(appId));
+            }
+        } catch (Exception e) {
+            logger.error("Allowlist resync failed; falling back to MongoDB lookups.", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private boolean isSnapshotFresh() {
+        return cacheEnabled && System.currentTimeMillis() - lastConfirmedAt <= maxStalenessMs;
+    }
+
+    private void applyUpsert(AllowedApp app) {
+        applyUpsert(app, null);
+    }
+
+    /** docId is null for local writes; the change event that follows records it. */
+    private void applyUpsert(AllowedApp app, BsonValue docId) {
+        if (!cacheEnabled || app.appId() == null) return;
+        writeLock.lock();
+        try {
+            snapshot.put(app.appId(), app);
+            if (docId != null) {
+                appIdsByDocId.put(docId, app.appId());
+                docIdsByAppId.put(app.appId(), docId);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void applyRemoval(String appId) {
+        if (!cacheEnabled) return;
+        writeLock.lock();
+        try {
+            snapshot.remove(appId);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * A delete event: resolves the appId from the _id it carries. Returns false if the
+     * _id is unknown here, and the caller reloads instead.
+     */
+    private boolean applyDeletion(BsonValue docId) {
+        String appId;
+        writeLock.lock();
+        try {
+            appId = appIdsByDocId.remove(docId);
+            if (appId == null) return false;
+            // Unless the app was registered again under a new document meanwhile
+            if (!docIdsByAppId.remove(appId, docId)) return true;
+            snapshot.remove(appId);
+        } finally {
+            writeLock.unlock();
+        }
+        events.publishEvent(new AppRemovedEvent(appId));
+        return true;
+    }
+
+    /**
+     * Follows the change stream on allowed_apps and applies every change to the snapshot.
+     * Each getMore that returns (with or without an event) confirms the snapshot is current.
+     * If the stream breaks, the snapshot ages out and isAppAllowed() falls back to MongoDB.
+     */
+    private void watchRegistry() {
+        BsonDocument resumeToken = null;
+
+        while (running) {
+            var stream = getCollection().watch()
+                    .fullDocument(FullDocument.UPDATE_LOOKUP)
+                    .maxAwaitTime(1, TimeUnit.SECONDS);
+            if (resumeToken != null) stream = stream.resumeAfter(resumeToken);
+
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor()) {
+                // Anything that changed before the stream opened is covered by this reload
+                if (resumeToken == null) resync();
+                logger.info("Allowlist change stream opened.");
+
+                while (running) {
+                    ChangeStreamDocument<Document> change = cursor.tryNext();
+                    if (change != null && change.getOperationType() == OperationType.INVALIDATE) {
+                        // Collection dropped or renamed: the old stream cannot be resumed
+                        resumeToken = null;
+                        break;
+                    }
+                    if (change != null) applyChange(change);
+                    resumeToken = cursor.getResumeToken();
+                    lastConfirmedAt = System.currentTimeMillis();
+                }
+            } catch (MongoCommandException e) {
+                if (!running) return;
+                if (e.getErrorCode() == CHANGE_STREAM_HISTORY_LOST) resumeToken = null;
+                logger.warn("Allowlist change stream interrupted: {}", e.getErrorMessage());
+                backOff();
+            } catch (Exception e) {
+                if (!running) return;
+                logger.warn("Allowlist change stream unavailable ({}). Relying on periodic resync.", e.getMessage());
+                backOff();
+            }
+        }
+    }
+
+    private void applyChange(ChangeStreamDocument<Document> change) {
+        BsonValue docId = change.getDocumentKey() != null ? change.getDocumentKey().get("_id") : null;
+        switch (change.getOperationType()) {
+            case INSERT, REPLACE, UPDATE -> {
+                if (change.getFullDocument() != null) applyUpsert(toAllowedApp(change.getFullDocument()), docId);
+                else resync();
+            }
+            // Delete events only carry the _id; the appId comes from the _id map
+            case DELETE -> {
+                if (docId == null || !applyDeletion(docId)) resync();
+            }
+            default -> resync();
+        }
+    }
+
+    private void backOff() {
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private AllowedApp toAllowedApp(Document doc) {
+        return new AllowedApp(
+            doc.getString("appId"),
+            doc.getString("description"),
+            // Handle potential null dates safely
+            doc.getDate("registeredAt") != null ? doc.getDate("registeredAt").toInstant() : null,
+            // Stored as int or long depending on the writer; absent for apps on the defaults
+            doc.get("ttlSeconds") instanceof Number ttl ? ttl.longValue() : null,
+            doc.get("secretLength") instanceof Number length ? length.intValue() : null
+        );
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,7 @@
+package com.ayedata.simault.repository;
+
+/**
+ * Published whenever an app leaves the registry, either through removeApp()
+ * on this node or through a change observed from another node.
+ */
+public record AppRemovedEvent(String appId) {}
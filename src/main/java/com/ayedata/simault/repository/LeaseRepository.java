@@ -0,0 +1,69 @@
+package com.ayedata.simault.repository;
+
+import com.ayedata.simault.config.NodeIdentity;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.Updates;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * Short-lived named leases shared by all nodes, used to make sure a piece of
+ * background work (e.g. rotating one app's secret) runs on only one node at a time.
+ */
+@Repository
+public class LeaseRepository {
+
+    public static final String COLLECTION_NAME = "leases";
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoClient mongoClient;
+    private final NodeIdentity node;
+
+    @Value("${vault.mongodb.database}")
+    private String dbName;
+
+    public LeaseRepository(MongoClient mongoClient, NodeIdentity node) {
+        this.mongoClient = mongoClient;
+        this.node = node;
+    }
+
+    private MongoCollection<Document> getCollection() {
+        return mongoClient.getDatabase(dbName).getCollection(COLLECTION_NAME);
+    }
+
+    /**
+     * Takes the lease if it is free, expired, or already ours.
+     * @return true if this node now holds the lease
+     */
+    public boolean tryAcquire(String name, Duration duration) {
+        Date now = new Date();
+        try {
+            getCollection().findOneAndUpdate(
+                Filters.and(
+                    Filters.eq("_id", name),
+                    Filters.or(Filters.lt("expiresAt", now), Filters.eq("owner", node.id()))),
+                Updates.combine(
+                    Updates.set("owner", node.id()),
+                    Updates.set("expiresAt", Date.from(Instant.now().plus(duration)))),
+                new FindOneAndUpdateOptions().upsert(true));
+            return true;
+        } catch (MongoCommandException e) {
+            // The lease document exists and belongs to another live node
+            if (e.getErrorCode() == DUPLICATE_KEY) return false;
+            throw e;
+        }
+    }
+
+    public void release(String name) {
+        getCollection().deleteOne(Filters.and(Filters.eq("_id", name), Filters.eq("owner", node.id())));
+    }
+}
@@ -1,12 +1,11 @@
 package com.ayedata.simault.repository;
 
+import com.ayedata.simault.crypto.CryptoEngine;
 import com.ayedata.simault.model.AppSecret;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
-import com.mongodb.client.model.vault.EncryptOptions;
-import com.mongodb.client.vault.ClientEncryption;
-import org.bson.BsonBinary;
-import org.bson.BsonString;
+import com.mongodb.client.model.FindOneAndReplaceOptions;
+import com.mongodb.client.model.ReturnDocument;
 import org.bson.Document;
 import org.bson.types.Binary;
 import org.springframework.beans.factory.annotation.Value;
@@ -14,22 +13,20 @@ import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
 import java.util.Date;
-import java.util.UUID;
 
 @Repository
 public class SecretRepository {
 
     private final MongoClient mongoClient;
-    private final ClientEncryption clientEncryption;
-    private final UUID dataKeyId;
+    private final CryptoEngine cryptoEngine;
 
     @Value("${vault.mongodb.database}") private String dbName;
     @Value("${vault.mongodb.collection}") private String collName;
+    @Value("${vault.secrets.default-ttl-seconds:3600}") private long defaultTtlSeconds;
 
-    public SecretRepository(MongoClient mongoClient, ClientEncryption clientEncryption, UUID dataKeyId) {
+    public SecretRepository(MongoClient mongoClient, CryptoEngine cryptoEngine) {
         this.mongoClient = mongoClient;
-        this.clientEncryption = clientEncryption;
-        this.dataKeyId = dataKeyId;
+        this.cryptoEngine = cryptoEngine;
     }
 
     public AppSecret findByAppId(String appId) {
@@ -38,33 +35,36 @@ public class SecretRepository {
 
         if (doc == null) return null;
 
-        Binary encryptedData = doc.get("secret", Binary.class);
+        String decryptedSecret = cryptoEngine.decrypt(doc.get("secret", Binary.class));
 
-        // Fix 1: Decrypt requires BsonBinary, not Binary
-        String decryptedSecret = clientEncryption.decrypt(
-            new BsonBinary(encryptedData.getType(), encryptedData.getData())
-        ).asString().getValue();
-
-        return new AppSecret(appId, decryptedSecret, doc.getDate("createdAt").toInstant());
+        Instant createdAt = doc.getDate("createdAt").toInstant();
+        Instant expiresAt = doc.getDate("expireAt") != null
+                ? doc.getDate("expireAt").toInstant() : createdAt.plusSeconds(defaultTtlSeconds);
+        return new AppSecret(appId, decryptedSecret, createdAt, expiresAt);
     }
 
-    public void save(String appId, String rawSecret) {
-        // Fix 2: keyId requires BsonBinary, not UUID
-        BsonBinary keyIdBson = new BsonBinary(dataKeyId);
-
-        BsonBinary encryptedSecret = clientEncryption.encrypt(
-            new BsonString(rawSecret),
-            new EncryptOptions("AEAD_AES_256_CBC_HMAC_SHA_512-Deterministic").keyId(keyIdBson)
-        );
+    /**
+     * Stores a new secret for the app in a single atomic upsert and returns what was stored.
+     */
+    public AppSecret save(String appId, String rawSecret) {
+        Binary encryptedSecret = cryptoEngine.encrypt(rawSecret);
+        Instant createdAt = Instant.now();
+        Instant expiresAt = createdAt.plusSeconds(defaultTtlSeconds);
 
         Document secretDoc = new Document()
                 .append("appId", appId)
                 .append("secret", encryptedSecret)
-                .append("createdAt", Date.from(Instant.now()));
+                .append("createdAt", Date.from(createdAt))
+                .append("expireAt", Date.from(expiresAt));
 
         MongoCollection<Document> coll = mongoClient.getDatabase(dbName).getCollection(collName);
-        
-        coll.deleteOne(new Document("appId", appId));
-        coll.insertOne(secretDoc);
+
+        Document stored = coll.findOneAndReplace(
+            new Document("appId", appId),
+            secretDoc,
+            new FindOneAndReplaceOptions().upsert(true).returnDocument(ReturnDocument.AFTER)
+        );
+
+        return new AppSecret(appId, rawSecret, stored.getDate("createdAt").toInstant(), expiresAt);
     }
 }
\ No newline at end of file
@@ -0,0 +1,111 @@
+package com.ayedata.simault.repository;
+
+import com.ayedata.simault.model.KeyRotationStatus;
+import com.ayedata.simault.util.KeyUtils;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import org.bson.BsonBinary;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Cluster-wide vault settings, one document per setting: which data key new
+ * secrets are encrypted with, and the checkpoint of the current data key rotation.
+ */
+@Repository
+public class VaultSettingsRepository {
+
+    public static final String COLLECTION_NAME = "vault_settings";
+    private static final String ACTIVE_DATA_KEY = "activeDataKey";
+    private static final String KEY_ROTATION = "keyRotation";
+
+    private final MongoClient mongoClient;
+
+    @Value("${vault.mongodb.database}")
+    private String dbName;
+
+    public VaultSettingsRepository(MongoClient mongoClient) {
+        this.mongoClient = mongoClient;
+    }
+
+    private MongoCollection<Document> getCollection() {
+        return mongoClient.getDatabase(dbName).getCollection(COLLECTION_NAME);
+    }
+
+    /**
+     * The data key chosen by the last key rotation.
+     * @return the key id, or empty if no rotation has happened (use vault.security.key-alt-name)
+     */
+    public Optional<UUID> findActiveKeyId() {
+        Document doc = getCollection().find(Filters.eq("_id", ACTIVE_DATA_KEY)).first();
+        if (doc == null || doc.get("keyId") == null) return Optional.empty();
+        return Optional.of(KeyUtils.toUuid(doc.get("keyId", Binary.class)));
+    }
+
+    public void saveActiveKeyId(UUID keyId) {
+        getCollection().replaceOne(Filters.eq("_id", ACTIVE_DATA_KEY),
+                new Document("_id", ACTIVE_DATA_KEY)
+                        .append("keyId", new BsonBinary(keyId))
+                        .append("updatedAt", new Date()),
+                new ReplaceOptions().upsert(true));
+    }
+
+    public Optional<KeyRotationStatus> findKeyRotation() {
+        Document doc = getCollection().find(Filters.eq("_id", KEY_ROTATION)).first();
+        if (doc == null) return Optional.empty();
+        return Optional.of(new KeyRotationStatus(
+            doc.getString("jobId"),
+            doc.getString("mode"),
+            doc.getString("state"),
+            doc.getString("fromKeyId"),
+            doc.getString("toKeyId"),
+            doc.get("total", 0L),
+            doc.get("processed", 0L),
+            doc.get("reencrypted", 0L),
+            doc.get("skipped", 0L),
+            doc.get("failed", 0L),
+            doc.getString("lastId"),
+            toInstant(doc.getDate("startedAt")),
+            toInstant(doc.getDate("updatedAt")),
+            toInstant(doc.getDate("finishedAt")),
+            doc.getString("error")
+        ));
+    }
+
+    public void saveKeyRotation(KeyRotationStatus status) {
+        Document doc = new Document("_id", KEY_ROTATION)
+                .append("jobId", status.jobId())
+                .append("mode", status.mode())
+                .append("state", status.state())
+                .append("fromKeyId", status.fromKeyId())
+                .append("toKeyId", status.toKeyId())
+                .append("total", status.total())
+                .append("processed", status.processed())
+                .append("reencrypted", status.reencrypted())
+                .append("skipped", status.skipped())
+                .append("failed", status.failed())
+                .append("lastId", status.lastId())
+                .append("startedAt", toDate(status.startedAt()))
+                .append("updatedAt", toDate(status.updatedAt()))
+                .append("finishedAt", toDate(status.finishedAt()))
+                .append("error", status.error());
+        getCollection().replaceOne(Filters.eq("_id", KEY_ROTATION), doc, new ReplaceOptions().upsert(true));
+    }
+
+    private static Instant toInstant(Date date) {
+        return date == null ? null : date.toInstant();
+    }
+
+    private static Date toDate(Instant instant) {
+        return instant == null ? null : Date.from(instant);
+    }
+}
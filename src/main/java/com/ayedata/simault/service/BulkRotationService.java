@@ -0,0 +1,245 @@
+package com.ayedata.simault.service;
+
+import com.ayedata.simault.model.BulkRotationStatus;
+import com.ayedata.simault.repository.AppRegistryRepository;
+import com.ayedata.simault.repository.LeaseRepository;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Rotates every registered app, or every app whose appId starts with a prefix, as a
+ * background job. Apps are read in keyset-paged batches; each batch is encrypted in
+ * parallel and written with one unordered bulkWrite (SecretVaultService.rotateAll()).
+ *
+ * Throttling: a batch never holds more than max-per-second apps, and the job sleeps
+ * after each batch so that it stays under max-per-second on average.
+ * A cluster-wide lease keeps a single job running across all nodes; job status lives
+ * on the node that runs it.
+ */
+@Service
+public class BulkRotationService {
+
+    private static final Logger logger = LogManager.getLogger(BulkRotationService.class);
+
+    // --- Configuration ---
+    @Value("${vault.bulk-rotation.batch-size:500}") private int defaultBatchSize;
+    @Value("${vault.bulk-rotation.max-per-second:1000}") private int defaultMaxPerSecond;
+    @Value("${vault.bulk-rotation.max-reported-failures:1000}") private int maxReportedFailures;
+
+    private static final String LEASE_NAME = "bulk-rotation";
+    private static final Duration LEASE_DURATION = Duration.ofSeconds(60);
+    // Finished jobs kept for the status endpoint
+    private static final int RETAINED_JOBS = 20;
+
+    // --- Dependencies ---
+    private final AppRegistryRepository appRegistry;
+    private final SecretVaultService vaultService;
+    private final LeaseRepository leases;
+
+    // Insertion-ordered, guarded by jobsLock
+    private final LinkedHashMap<String, Job> jobs = new LinkedHashMap<>();
+    private final ReentrantLock jobsLock = new ReentrantLock();
+    private volatile Job current;
+
+    public BulkRotationService(AppRegistryRepository appRegistry, SecretVaultService vaultService,
+                               LeaseRepository leases) {
+        this.appRegistry = appRegistry;
+        this.vaultService = vaultService;
+        this.leases = leases;
+    }
+
+    /**
+     * Starts a job in the background and returns its initial status.
+     * @param prefix Only rotate appIds starting with this (null or blank for every app)
+     * @param batchSize Apps per bulkWrite (null for the configured default)
+     * @param maxPerSecond Rotation rate limit, 0 for none (null for the configured default)
+     * @throws IllegalStateException if a bulk rotation is already running on any node
+     */
+    public BulkRotationStatus start(String prefix, Integer batchSize, Integer maxPerSecond) {
+        int size = batchSize != null && batchSize > 0 ? batchSize : defaultBatchSize;
+        int rate = maxPerSecond != null && maxPerSecond >= 0 ? maxPerSecond : defaultMaxPerSecond;
+        // A full batch is written at once, so it must not exceed one second's budget
+        if (rate > 0) size = Math.min(size, rate);
+
+        jobsLock.lock();
+        try {
+            if (current != null) {
+                throw new IllegalStateException("Bulk rotation " + current.id + " is already running");
+            }
+            if (!leases.tryAcquire(LEASE_NAME, LEASE_DURATION)) {
+                throw new IllegalStateException("A bulk rotation is already running on another node");
+            }
+
+            Job job = new Job(UUID.randomUUID().toString(), blankToNull(prefix), size, rate);
+            try {
+                job.total = appRegistry.countApps(job.prefix);
+            } catch (RuntimeException e) {
+                leases.release(LEASE_NAME);
+                throw e;
+            }
+            current = job;
+            jobs.put(job.id, job);
+            while (jobs.size() > RETAINED_JOBS) jobs.remove(jobs.keySet().iterator().next());
+
+            Thread.ofPlatform().daemon().name("bulk-rotation-" + job.id).start(() -> run(job));
+            logger.warn("🔄 Bulk rotation {} started (prefix={}, batchSize={}, maxPerSecond={}).",
+                    job.id, job.prefix, job.batchSize, job.maxPerSecond);
+            return job.status();
+        } finally {
+            jobsLock.unlock();
+        }
+    }
+
+    public Optional<BulkRotationStatus> status(String jobId) {
+        return job(jobId).map(Job::status);
+    }
+
+    public List<BulkRotationStatus> recent() {
+        jobsLock.lock();
+        try {
+            List<BulkRotationStatus> statuses = new ArrayList<>();
+            jobs.values().forEach(job -> statuses.add(job.status()));
+            return statuses;
+        } finally {
+            jobsLock.unlock();
+        }
+    }
+
+    /**
+     * Asks a running job to stop after its current batch. Apps already rotated stay rotated.
+     */
+    public Optional<BulkRotationStatus> cancel(String jobId) {
+        return job(jobId).map(job -> {
+            job.cancelRequested = true;
+            return job.status();
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Job job = current;
+        if (job != null) job.cancelRequested = true;
+    }
+
+    private Optional<Job> job(String jobId) {
+        jobsLock.lock();
+        try {
+            return Optional.ofNullable(jobs.get(jobId));
+        } finally {
+            jobsLock.unlock();
+        }
+    }
+
+    private void run(Job job) {
+        try {
+            String after = null;
+
+            while (!job.cancelRequested) {
+                long batchStart = System.nanoTime();
+                List<String> page = appRegistry.findAppIdsPage(job.prefix, after, job.batchSize);
+                if (page.isEmpty()) break;
+                after = page.get(page.size() - 1);
+
+                Map<String, String> errors = new ConcurrentHashMap<>();
+                List<String> rotated = vaultService.rotateAll(page, errors);
+                job.record(page.size(), rotated.size(), errors);
+
+                if (page.size() < job.batchSize) break;
+                throttle(job, page.size(), batchStart);
+                if (!leases.tryAcquire(LEASE_NAME, LEASE_DURATION)) {
+                    throw new IllegalStateException("Lost the bulk rotation lease to another node");
+                }
+            }
+
+            job.finish(job.cancelRequested ? BulkRotationStatus.CANCELLED : BulkRotationStatus.COMPLETED, null);
+            logger.warn("🔄 Bulk rotation {} {}: {} rotated, {} failed.",
+                    job.id, job.state.toLowerCase(), job.rotated.get(), job.failed.get());
+        } catch (Exception e) {
+            logger.error("Bulk rotation {} failed after {} apps.", job.id, job.processed.get(), e);
+            job.finish(BulkRotationStatus.FAILED, e.getMessage());
+        } finally {
+            current = null;
+            leases.release(LEASE_NAME);
+        }
+    }
+
+    // Keeps the average rate at or under maxPerSecond by stretching each batch to its time budget
+    private void throttle(Job job, int batchApps, long batchStartNanos) {
+        if (job.maxPerSecond <= 0) return;
+        long budgetNanos = TimeUnit.SECONDS.toNanos(batchApps) / job.maxPerSecond;
+        long remainingNanos = budgetNanos - (System.nanoTime() - batchStartNanos);
+        if (remainingNanos <= 0) return;
+        try {
+            TimeUnit.NANOSECONDS.sleep(remainingNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.cancelRequested = true;
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    private final class Job {
+        final String id;
+        final String prefix;
+        final int batchSize;
+        final int maxPerSecond;
+        final Instant startedAt = Instant.now();
+
+        volatile String state = BulkRotationStatus.RUNNING;
+        volatile long total;
+        volatile boolean cancelRequested;
+        volatile Instant finishedAt;
+        volatile String error;
+
+        final AtomicLong processed = new AtomicLong();
+        final AtomicLong rotated = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final Map<String, String> failures = new ConcurrentHashMap<>();
+
+        Job(String id, String prefix, int batchSize, int maxPerSecond) {
+            this.id = id;
+            this.prefix = prefix;
+            this.batchSize = batchSize;
+            this.maxPerSecond = maxPerSecond;
+        }
+
+        void record(int batchApps, int batchRotated, Map<String, String> errors) {
+            processed.addAndGet(batchApps);
+            rotated.addAndGet(batchRotated);
+            failed.addAndGet(errors.size());
+            errors.forEach((appId, message) -> {
+                if (failures.size() < maxReportedFailures) failures.put(appId, message);
+            });
+        }
+
+        void finish(String finalState, String failure) {
+            error = failure;
+            finishedAt = Instant.now();
+            state = finalState;
+        }
+
+        BulkRotationStatus status() {
+            return new BulkRotationStatus(id, prefix, state, total, processed.get(), rotated.get(), failed.get(),
+                    Map.copyOf(failures), batchSize, maxPerSecond, startedAt, finishedAt, error);
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package com.ayedata.simault.service;
+
+import com.ayedata.simault.crypto.CorruptCiphertextException;
+import com.ayedata.simault.crypto.CryptoEngine;
+import com.ayedata.simault.model.KeyRotationStatus;
+import com.ayedata.simault.repository.LeaseRepository;
+import com.ayedata.simault.repository.VaultSettingsRepository;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.model.vault.DataKeyOptions;
+import com.mongodb.client.model.vault.RewrapManyDataKeyOptions;
+import com.mongodb.client.model.vault.RewrapManyDataKeyResult;
+import com.mongodb.client.vault.ClientEncryption;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Online rotation of the CSFLE data key.
+ *
+ * new-key: creates a data key, makes it the active key on every node (via
+ * vault_settings), waits until the other nodes have picked it up, then streams the
+ * secrets collection in _id order and re-encrypts each secret under the new key.
+ * Each batch is re-encrypted on a bounded pool and written with one unordered bulkWrite
+ * of conditional updates, so a secret rotated in the meantime is left alone. The
+ * checkpoint (last _id) is saved after every batch; if the node dies, any node resumes
+ * from it once the lease expires. A batch that hits anything but corrupt ciphertext is
+ * not checkpointed, so an outage mid-run is retried rather than skipped. Reads keep working throughout because decryption
+ * always uses the key named in the ciphertext. The old key stays in the vault.
+ *
+ * rewrap: re-encrypts the data keys themselves under a new master key of the configured
+ * KMS provider (rewrapManyDataKey). Secrets are untouched.
+ */
+@Service
+public class KeyRotationService {
+
+    private static final Logger logger = LogManager.getLogger(KeyRotationService.class);
+
+    // --- Configuration ---
+    @Value("${vault.mongodb.database}") private String dbName;
+    @Value("${vault.mongodb.collection}") private String collName;
+    @Value("${vault.security.kms-provider}") private String kmsProviderName;
+    @Value("${vault.security.key-alt-name}") private String keyAltName;
+    @Value("${vault.key-rotation.batch-size:1000}") private int batchSize;
+    @Value("${vault.key-rotation.parallelism:8}") private int parallelism;
+    @Value("${vault.key-rotation.max-per-second:5000}") private int maxPerSecond;
+    @Value("${vault.key-rotation.poll-interval-ms:10000}") private long pollIntervalMs;
+    @Value("${spring.threads.virtual.enabled:false}") private boolean virtualThreads;
+
+    private static final String LEASE_NAME = "key-rotation";
+    private static final Duration LEASE_DURATION = Duration.ofSeconds(60);
+
+    // --- Dependencies ---
+    private final MongoClient mongoClient;
+    private final ClientEncryption clientEncryption;
+    private final CryptoEngine cryptoEngine;
+    private final VaultSettingsRepository settings;
+    private final LeaseRepository leases;
+
+    private final ReentrantLock startLock = new ReentrantLock();
+    private ExecutorService workers;
+    private volatile Thread job;
+    private volatile boolean running = true;
+
+    public KeyRotationService(MongoClient mongoClient, ClientEncryption clientEncryption, CryptoEngine cryptoEngine,
+                              VaultSettingsRepository settings, LeaseRepository leases) {
+        this.mongoClient = mongoClient;
+        this.clientEncryption = clientEncryption;
+        this.cryptoEngine = cryptoEngine;
+        this.settings = settings;
+        this.leases = leases;
+    }
+
+    @PostConstruct
+    public void init() {
+        ThreadFactory threads = virtualThreads
+                ? Thread.ofVirtual().name("key-rotation-worker-", 0).factory()
+                : Thread.ofPlatform().daemon().name("key-rotation-worker-", 0).factory();
+        workers = Executors.newFixedThreadPool(parallelism, threads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        Thread current = job;
+        if (current != null) current.interrupt();
+        workers.shutdownNow();
+    }
+
+    public Optional<KeyRotationStatus> status() {
+        return settings.findKeyRotation();
+    }
+
+    /**
+     * Starts a data key rotation.
+     * @param mode KeyRotationStatus.NEW_KEY (default) or KeyRotationStatus.REWRAP
+     * @param masterKey For rewrap: the provider-specific master key document (e.g. AWS region + key ARN)
+     * @throws IllegalStateException if a key rotation is already running
+     */
+    public KeyRotationStatus start(String mode, Document masterKey) {
+        startLock.lock();
+        try {
+            Optional<KeyRotationStatus> previous = settings.findKeyRotation();
+            if (job != null || previous.map(s -> KeyRotationStatus.RUNNING.equals(s.state())).orElse(false)) {
+                throw new IllegalStateException("A key rotation is already running");
+            }
+            if (!leases.tryAcquire(LEASE_NAME, LEASE_DURATION)) {
+                throw new IllegalStateException("A key rotation is already running on another node");
+            }
+
+            try {
+                if (KeyRotationStatus.REWRAP.equals(mode)) return rewrap(masterKey);
+                return startNewKey();
+            } catch (RuntimeException e) {
+                leases.release(LEASE_NAME);
+                throw e;
+            }
+        } finally {
+            startLock.unlock();
+        }
+    }
+
+    /**
+     * Every node: follow the active key chosen in vault_settings, and take over a
+     * rotation whose node stopped checkpointing (its lease expired).
+     */
+    @Scheduled(fixedDelayString = "${vault.key-rotation.poll-interval-ms:10000}")
+    public void syncActiveKey() {
+        try {
+            settings.findActiveKeyId().ifPresent(keyId -> {
+                if (!keyId.equals(cryptoEngine.activeKeyId())) {
+                    cryptoEngine.activateKey(keyId);
+                    logger.warn("🔑 Switched to data key {} for new secrets.", keyId);
+                }
+            });
+
+            KeyRotationStatus status = settings.findKeyRotation().orElse(null);
+            if (status == null || !KeyRotationStatus.RUNNING.equals(status.state()) || job != null) return;
+            startLock.lock();
+            try {
+                if (job == null && leases.tryAcquire(LEASE_NAME, LEASE_DURATION)) {
+                    logger.warn("🔑 Resuming key rotation {} from checkpoint {}.", status.jobId(), status.lastId());
+                    launch(status);
+                }
+            } finally {
+                startLock.unlock();
+            }
+        } catch (Exception e) {
+            logger.warn("Could not sync data key settings: {}", e.getMessage());
+        }
+    }
+
+    private KeyRotationStatus rewrap(Document masterKey) {
+        if (masterKey == null || masterKey.isEmpty()) {
+            throw new IllegalArgumentException("rewrap needs the new masterKey for provider '" + kmsProviderName + "'");
+        }
+        Instant now = Instant.now();
+        try {
+            RewrapManyDataKeyResult result = clientEncryption.rewrapManyDataKey(new BsonDocument(),
+                    new RewrapManyDataKeyOptions().provider(kmsProviderName).masterKey(masterKey.toBsonDocument()));
+            long rewrapped = result.getBulkWriteResult() == null ? 0 : result.getBulkWriteResult().getModifiedCount();
+            KeyRotationStatus status = new KeyRotationStatus(UUID.randomUUID().toString(), KeyRotationStatus.REWRAP,
+                    KeyRotationStatus.COMPLETED, null, null, rewrapped, rewrapped, rewrapped, 0, 0, null,
+                    now, Instant.now(), Instant.now(), null);
+            settings.saveKeyRotation(status);
+            logger.warn("🔑 Rewrapped {} data keys under a new {} master key.", rewrapped, kmsProviderName);
+            return status;
+        } finally {
+            leases.release(LEASE_NAME);
+        }
+    }
+
+    private KeyRotationStatus startNewKey() {
+        UUID fromKeyId = cryptoEngine.activeKeyId();
+        String altName = keyAltName + "-" + Instant.now().getEpochSecond();
+        UUID toKeyId = clientEncryption.createDataKey(kmsProviderName,
+                new DataKeyOptions().keyAltNames(List.of(altName))).asUuid();
+
+        // Switch here first (fails if this engine cannot use the key), then tell the other nodes
+        cryptoEngine.activateKey(toKeyId);
+        settings.saveActiveKeyId(toKeyId);
+
+        Instant now = Instant.now();
+        KeyRotationStatus status = new KeyRotationStatus(UUID.randomUUID().toString(), KeyRotationStatus.NEW_KEY,
+                KeyRotationStatus.RUNNING, fromKeyId.toString(), toKeyId.toString(),
+                secrets().estimatedDocumentCount(), 0, 0, 0, 0, null, now, now, null, null);
+        settings.saveKeyRotation(status);
+        logger.warn("🔑 Data key rotation {} started: {} -> {} ('{}').", status.jobId(), fromKeyId, toKeyId, altName);
+
+        launch(status);
+        return status;
+    }
+
+    private void launch(KeyRotationStatus status) {
+        job = Thread.ofPlatform().daemon().name("key-rotation").start(() -> run(status));
+    }
+
+    private void run(KeyRotationStatus start) {
+        try {
+            if (start.lastId() == null && start.processed() == 0) {
+                // Nodes that haven't polled yet may still write under the old key; let them catch up
+                Thread.sleep(pollIntervalMs * 2);
+            }
+            KeyRotationStatus finished = sweep(start);
+            if (finished == null) return;
+            settings.saveKeyRotation(finished);
+            logger.warn("🔑 Key rotation {} completed: {} re-encrypted, {} skipped, {} failed. Key {} is no longer used for writes.",
+                    finished.jobId(), finished.reencrypted(), finished.skipped(), finished.failed(), finished.fromKeyId());
+        } catch (Exception e) {
+            if (!running) return;
+            logger.error("Key rotation {} failed; it will resume from its last checkpoint.", start.jobId(), e);
+        } finally {
+            job = null;
+            if (running) leases.release(LEASE_NAME);
+        }
+    }
+
+    /**
+     * Re-encrypts everything after the checkpoint. Returns the completed status,
+     * or null if the node is shutting down (the checkpoint stays RUNNING for a resume).
+     */
+    private KeyRotationStatus sweep(KeyRotationStatus status) throws InterruptedException {
+        UUID toKeyId = UUID.fromString(status.toKeyId());
+        AtomicLong reencrypted = new AtomicLong(status.reencrypted());
+        AtomicLong skipped = new AtomicLong(status.skipped());
+        AtomicLong failed = new AtomicLong(status.failed());
+        long processed = status.processed();
+        ObjectId lastId = status.lastId() == null ? null : new ObjectId(status.lastId());
+
+        try (MongoCursor<Document> cursor = secrets()
+                .find(lastId == null ? new Document() : Filters.gt("_id", lastId))
+                .projection(Projections.include("_id", "secret"))
+                .sort(Sorts.ascending("_id"))
+                .batchSize(batchSize)
+                .cursor()) {
+
+            while (running && cursor.hasNext()) {
+                long batchStart = System.nanoTime();
+                List<Document> batch = new ArrayList<>(batchSize);
+                while (batch.size() < batchSize && cursor.hasNext()) batch.add(cursor.next());
+
+                reencryptBatch(batch, toKeyId, reencrypted, skipped, failed);
+                processed += batch.size();
+                lastId = batch.get(batch.size() - 1).getObjectId("_id");
+
+                status = new KeyRotationStatus(status.jobId(), status.mode(), KeyRotationStatus.RUNNING,
+                        status.fromKeyId(), status.toKeyId(), status.total(), processed, reencrypted.get(),
+                        skipped.get(), failed.get(), lastId.toHexString(), status.startedAt(), Instant.now(), null, null);
+                settings.saveKeyRotation(status);
+                if (!leases.tryAcquire(LEASE_NAME, LEASE_DURATION)) {
+                    throw new IllegalStateException("Lost the key rotation lease to another node");
+                }
+                throttle(batch.size(), batchStart);
+            }
+        }
+        if (!running) return null;
+
+        Instant now = Instant.now();
+        return new KeyRotationStatus(status.jobId(), status.mode(), KeyRotationStatus.COMPLETED,
+                status.fromKeyId(), status.toKeyId(), status.total(), processed, reencrypted.get(),
+                skipped.get(), failed.get(), status.lastId(), status.startedAt(), now, now, null);
+    }
+
+    /**
+     * Re-encrypts one batch. Only corrupt ciphertext is counted as failed and skipped;
+     * any other failure throws before the checkpoint is saved, so the batch is retried.
+     */
+    private void reencryptBatch(List<Document> batch, UUID toKeyId,
+                                AtomicLong reencrypted, AtomicLong skipped, AtomicLong failed) throws InterruptedException {
+        List<Future<WriteModel<Document>>> futures = new ArrayList<>(batch.size());
+        for (Document doc : batch) {
+            futures.add(workers.submit(() -> reencrypt(doc, toKeyId)));
+        }
+
+        List<WriteModel<Document>> writes = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                WriteModel<Document> write = futures.get(i).get();
+                if (write != null) writes.add(write);
+                else skipped.incrementAndGet();
+            } catch (ExecutionException e) {
+                if (!(e.getCause() instanceof CorruptCiphertextException)) {
+                    // Breaker open, KMS or key vault down: retrying later will work, so the
+                    // checkpoint must not move past this batch
+                    futures.forEach(f -> f.cancel(true));
+                    throw new IllegalStateException("Re-encryption interrupted: " + e.getCause().getMessage(), e.getCause());
+                }
+                // Unreadable secrets are left for the read path, which replaces them
+                failed.incrementAndGet();
+                logger.warn("Skipping secret {}: its ciphertext is corrupt ({}).",
+                        batch.get(i).get("_id"), e.getCause().getMessage());
+            }
+        }
+        if (writes.isEmpty()) return;
+
+        BulkWriteResult result;
+        int writeErrors = 0;
+        try {
+            result = secrets().bulkWrite(writes, new BulkWriteOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            writeErrors = e.getWriteErrors().size();
+            result = e.getWriteResult();
+        }
+        failed.addAndGet(writeErrors);
+        reencrypted.addAndGet(result.getModifiedCount());
+        // No match: the secret was rotated (already under the new key) or expired meanwhile
+        skipped.addAndGet(writes.size() - writeErrors - result.getModifiedCount());
+    }
+
+    /** The conditional update for one secret, or null if it is already under the new key. */
+    private WriteModel<Document> reencrypt(Document doc, UUID toKeyId) {
+        Binary current = doc.get("secret", Binary.class);
+        if (current == null || toKeyId.equals(CryptoEngine.keyIdOf(current))) return null;
+
+        Binary fresh = cryptoEngine.encrypt(cryptoEngine.decrypt(current));
+        if (!toKeyId.equals(CryptoEngine.keyIdOf(fresh))) {
+            throw new IllegalStateException("Active data key changed during the rotation");
+        }
+        return new UpdateOneModel<>(
+                Filters.and(Filters.eq("_id", doc.get("_id")), Filters.eq("secret", current)),
+                Updates.set("secret", fresh));
+    }
+
+    private void throttle(int batchSecrets, long batchStartNanos) throws InterruptedException {
+        if (maxPerSecond <= 0) return;
+        long budgetNanos = TimeUnit.SECONDS.toNanos(batchSecrets) / maxPerSecond;
+        long remainingNanos = budgetNanos - (System.nanoTime() - batchStartNanos);
+        if (remainingNanos > 0) TimeUnit.NANOSECONDS.sleep(remainingNanos);
+    }
+
+    private MongoCollection<Document> secrets() {
+        return mongoClient.getDatabase(dbName).getCollection(collName);
+    }
+}
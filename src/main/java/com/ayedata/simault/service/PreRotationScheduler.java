@@ -0,0 +1,106 @@
+package com.ayedata.simault.service;
+
+import com.ayedata.simault.repository.AppRegistryRepository;
+import com.ayedata.simault.repository.LeaseRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Rotates secrets in the background before they expire, so that
+ * client reads almost never pay for encryption and a write.
+ * Each secret is due at lifetime-fraction of its own lifetime (apps have different TTLs),
+ * shifted by a stable per-app jitter so that apps registered together don't all rotate in
+ * the same second. Candidates come from SecretLeaseManager's leases, which every node keeps
+ * for all secrets, so finding them costs no query. A lease per app ensures only one node
+ * performs each rotation.
+ */
+@Service
+public class PreRotationScheduler {
+
+    private static final Logger logger = LogManager.getLogger(PreRotationScheduler.class);
+
+    // --- Configuration ---
+    @Value("${vault.rotation.proactive.enabled:true}") private boolean enabled;
+    @Value("${vault.rotation.proactive.lifetime-fraction:0.8}") private double lifetimeFraction;
+    @Value("${vault.rotation.proactive.jitter-seconds:120}") private long jitterSeconds;
+    @Value("${vault.rotation.proactive.max-per-run:200}") private int maxPerRun;
+
+    private static final Duration LEASE_DURATION = Duration.ofSeconds(30);
+
+    // --- Dependencies ---
+    private final SecretLeaseManager leaseManager;
+    private final SecretVaultService vaultService;
+    private final AppRegistryRepository appRegistry;
+    private final LeaseRepository leases;
+
+    public PreRotationScheduler(SecretLeaseManager leaseManager, SecretVaultService vaultService,
+                                AppRegistryRepository appRegistry, LeaseRepository leases) {
+        this.leaseManager = leaseManager;
+        this.vaultService = vaultService;
+        this.appRegistry = appRegistry;
+        this.leases = leases;
+    }
+
+    @Scheduled(fixedDelayString = "${vault.rotation.proactive.interval-ms:15000}")
+    public void rotateDueSecrets() {
+        if (!enabled) return;
+
+        long now = System.currentTimeMillis();
+        List<SecretLeaseManager.Lease> due = new ArrayList<>();
+        for (SecretLeaseManager.Lease lease : leaseManager.tracked()) {
+            if (dueAt(lease) <= now) due.add(lease);
+        }
+        // Most overdue first, so a backlog larger than max-per-run drains in order
+        due.sort(Comparator.comparingLong(this::dueAt));
+
+        int rotated = 0;
+        for (SecretLeaseManager.Lease lease : due.subList(0, Math.min(maxPerRun, due.size()))) {
+            if (!appRegistry.isAppAllowed(lease.appId())) continue;
+            if (rotateUnderLease(lease.appId(), lease.createdAt())) rotated++;
+        }
+
+        if (rotated > 0) logger.info("🔄 Proactively rotated {} secrets ahead of expiry.", rotated);
+    }
+
+    private boolean rotateUnderLease(String appId, Instant createdAt) {
+        String leaseName = "rotate:" + appId;
+        if (!leases.tryAcquire(leaseName, LEASE_DURATION)) return false;
+
+        try {
+            return vaultService.rotateIfUnchanged(appId, createdAt) != null;
+        } catch (Exception e) {
+            logger.error("Proactive rotation failed for appId: {}", appId, e);
+            return false;
+        } finally {
+            leases.release(leaseName);
+        }
+    }
+
+    private long dueAt(SecretLeaseManager.Lease lease) {
+        long created = lease.createdAt().toEpochMilli();
+        long lifetime = lease.expiresAt().toEpochMilli() - created;
+        long offset = (long) (lifetime * lifetimeFraction);
+        return created + offset + jitterMillis(lease.appId(), lease.createdAt(), (lifetime - offset) / 2);
+    }
+
+    /**
+     * Stable for a given secret, different from one secret generation to the next,
+     * and spread evenly over [-jitter, +jitter]. Never more than maxMillis either way,
+     * so a short-lived secret is still rotated before it expires.
+     */
+    private long jitterMillis(String appId, Instant createdAt, long maxMillis) {
+        long span = Math.min(jitterSeconds * 1000, maxMillis);
+        if (span <= 0) return 0;
+        return Math.floorMod(Objects.hash(appId, createdAt.toEpochMilli()), 2 * span + 1) - span;
+    }
+}
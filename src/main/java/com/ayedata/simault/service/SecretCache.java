@@ -0,0 +1,176 @@
+package com.ayedata.simault.service;
+
+import com.ayedata.simault.model.AppSecret;
+import com.ayedata.simault.repository.AppRemovedEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of decrypted secrets, sitting in front of the find + decrypt path.
+ * An entry never outlives its secret: it expires at the secret's expiresAt minus a safety margin,
+ * and never later than max-age after it was cached. Rotations and expiries done by other
+ * nodes drop the entry as soon as SecretChangeNotifier sees them; max-age bounds how long
+ * a stale entry can survive while the change stream is down.
+ */
+@Component
+public class SecretCache implements MeterBinder {
+
+    // --- Configuration ---
+    @Value("${vault.cache.secrets.enabled:true}") private boolean enabled;
+    @Value("${vault.cache.secrets.max-size:1000}") private int maxSize;
+    @Value("${vault.cache.secrets.safety-margin-seconds:30}") private long safetyMarginSeconds;
+    @Value("${vault.cache.secrets.max-age-seconds:60}") private long maxAgeSeconds;
+
+    // seq keeps entries expiring in the same millisecond apart in the expiry index
+    private record Entry(String appId, AppSecret secret, long expiresAtMillis, long seq) {}
+
+    private static final Comparator<Entry> BY_EXPIRY =
+        Comparator.comparingLong(Entry::expiresAtMillis).thenComparingLong(Entry::seq);
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    // The same entries ordered by expiry, so eviction takes the head instead of scanning
+    private final ConcurrentSkipListSet<Entry> byExpiry = new ConcurrentSkipListSet<>(BY_EXPIRY);
+    private final AtomicLong sequence = new AtomicLong();
+
+    // --- Counters ---
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public AppSecret get(String appId) {
+        if (!enabled) return null;
+
+        Entry entry = entries.get(appId);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAtMillis() <= System.currentTimeMillis()) {
+            // Only drop the entry we looked at, not one a concurrent put just replaced it with
+            if (entries.remove(appId, entry)) {
+                byExpiry.remove(entry);
+                expirations.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.secret();
+    }
+
+    public void put(AppSecret secret) {
+        if (!enabled) return;
+
+        long now = System.currentTimeMillis();
+        long lifetimeEnd = secret.expiresAt().toEpochMilli() - safetyMarginSeconds * 1000;
+        long expiresAt = Math.min(lifetimeEnd, now + maxAgeSeconds * 1000);
+        if (expiresAt <= now) return;
+
+        if (entries.size() >= maxSize && !entries.containsKey(secret.appId())) {
+            makeRoom(now);
+        }
+
+        Entry candidate = new Entry(secret.appId(), secret, expiresAt, sequence.incrementAndGet());
+        entries.compute(secret.appId(), (appId, current) -> {
+            // Never let an older secret (from a slow concurrent read) replace a newer one
+            if (current != null && secret.createdAt().isBefore(current.secret().createdAt())) return current;
+            if (current != null) byExpiry.remove(current);
+            byExpiry.add(candidate);
+            return candidate;
+        });
+    }
+
+    public void invalidate(String appId) {
+        Entry removed = entries.remove(appId);
+        if (removed != null) byExpiry.remove(removed);
+    }
+
+    /**
+     * Drops appId's entry unless it already holds the secret created at createdAt or a newer one,
+     * so a rotation seen on the change stream never costs this node a needless decrypt.
+     */
+    public void invalidateOlderThan(String appId, Instant createdAt) {
+        entries.computeIfPresent(appId, (id, entry) -> {
+            if (!entry.secret().createdAt().isBefore(createdAt)) return entry;
+            byExpiry.remove(entry);
+            return null;
+        });
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+        byExpiry.clear();
+    }
+
+    @EventListener
+    public void onAppRemoved(AppRemovedEvent event) {
+        invalidate(event.appId());
+    }
+
+    public Map<String, Object> stats() {
+        long h = hits.sum();
+        long m = misses.sum();
+        return Map.of(
+            "enabled", enabled,
+            "size", entries.size(),
+            "maxSize", maxSize,
+            "hits", h,
+            "misses", m,
+            "hitRatio", h + m == 0 ? 0.0 : (double) h / (h + m),
+            "evictions", evictions.sum(),
+            "expirations", expirations.sum()
+        );
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("simault.cache.size", entries, Map::size)
+                .description("Decrypted secrets currently cached")
+                .register(registry);
+        bindCounter(registry, "simault.cache.requests", hits, "result", "hit");
+        bindCounter(registry, "simault.cache.requests", misses, "result", "miss");
+        bindCounter(registry, "simault.cache.removals", evictions, "cause", "eviction");
+        bindCounter(registry, "simault.cache.removals", expirations, "cause", "expiration");
+    }
+
+    private static void bindCounter(MeterRegistry registry, String name, LongAdder adder, String tag, String value) {
+        FunctionCounter.builder(name, adder, LongAdder::sum)
+                .tag(tag, value)
+                .register(registry);
+    }
+
+    /**
+     * Called when the cache is full: drops the already expired entries from the head of the
+     * expiry index, then if still full evicts the entry closest to expiry. O(log n) per entry
+     * removed, rather than a scan of the whole cache on every put.
+     */
+    private void makeRoom(long now) {
+        Entry head;
+        while ((head = byExpiry.pollFirst()) != null) {
+            boolean expired = head.expiresAtMillis() <= now;
+            if (!expired && entries.size() < maxSize) {
+                byExpiry.add(head);
+                return;
+            }
+            // A head no longer in the map was replaced or invalidated concurrently; skip it
+            if (entries.remove(head.appId(), head)) {
+                if (expired) expirations.increment();
+                else evictions.increment();
+            }
+        }
+    }
+}
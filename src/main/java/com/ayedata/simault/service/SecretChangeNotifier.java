@@ -0,0 +1,409 @@
+package com.ayedata.simault.service;
+
+import com.ayedata.simault.config.NodeIdentity;
+import com.ayedata.simault.config.ReadRouting;
+import com.ayedata.simault.model.SecretChangeEvent;
+import com.ayedata.simault.repository.AppRemovedEvent;
+import com.ayedata.simault.util.SecretUtils;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Turns one change stream on the secrets collection into per-app notifications for
+ * any number of watchers.
+ *
+ * Each watcher gets a small bounded queue. When a watcher falls behind, the oldest
+ * queued event is dropped: a slow client may skip intermediate versions but always
+ * receives the latest one. Deliveries run on virtual threads, one drain at a time per
+ * watcher, so a stalled connection never holds up the stream or the other watchers.
+ *
+ * The resume token is checkpointed per node (vault.node-id, else the hostname) so that a
+ * restart picks up where the stream left off. Checkpoints of nodes that are gone expire
+ * through a TTL index on updatedAt.
+ */
+@Component
+public class SecretChangeNotifier implements MeterBinder {
+
+    private static final Logger logger = LogManager.getLogger(SecretChangeNotifier.class);
+
+    public static final String CHECKPOINT_COLLECTION = "watch_checkpoints";
+    // Error code returned when a resume token is no longer in the oplog
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+
+    // --- Configuration ---
+    @Value("${vault.watch.enabled:true}") private boolean enabled;
+    @Value("${vault.watch.buffer-size:16}") private int bufferSize;
+    @Value("${vault.watch.checkpoint-interval-ms:5000}") private long checkpointIntervalMs;
+    @Value("${vault.mongodb.database}") private String dbName;
+    @Value("${vault.mongodb.collection}") private String collName;
+
+    private final MongoClient mongoClient;
+    private final NodeIdentity node;
+    private final SecretLeaseManager leaseManager;
+    private final SecretPolicy policy;
+    private final SecretCache secretCache;
+    private final ReadRouting readRouting;
+
+    // Secret document _id -> appId. Delete events (TTL expiry) carry only the _id.
+    private final ConcurrentHashMap<BsonValue, String> appIdsByDocId = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<Subscription>> subscribers = new ConcurrentHashMap<>();
+    private final ExecutorService deliveries = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("secret-watch-", 0).factory());
+
+    // --- Counters ---
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile boolean running = true;
+    private Thread watcher;
+    private long lastCheckpointAt = 0L;
+
+    public SecretChangeNotifier(MongoClient mongoClient, NodeIdentity node, SecretLeaseManager leaseManager,
+                                SecretPolicy policy, SecretCache secretCache, ReadRouting readRouting) {
+        this.mongoClient = mongoClient;
+        this.node = node;
+        this.leaseManager = leaseManager;
+        this.policy = policy;
+        this.secretCache = secretCache;
+        this.readRouting = readRouting;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            watcher = Thread.ofPlatform().daemon().name("secret-watcher").start(this::watchSecrets);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (watcher != null) watcher.interrupt();
+        subscribers.values().forEach(subs -> subs.forEach(Subscription::closeFromServer));
+        deliveries.shutdown();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Registers a watcher for one app. The caller closes the returned subscription when
+     * its connection ends; the server closes it (and calls sink.close()) when the app is
+     * removed from the allowlist or the node shuts down.
+     */
+    public Subscription subscribe(String appId, SecretChangeSink sink) {
+        Subscription subscription = new Subscription(appId, sink);
+        subscribers.computeIfAbsent(appId, id -> ConcurrentHashMap.newKeySet()).add(subscription);
+        return subscription;
+    }
+
+    /** Watchers of a revoked app must not learn about its future rotations. */
+    @EventListener
+    public void onAppRemoved(AppRemovedEvent event) {
+        Set<Subscription> subs = subscribers.get(event.appId());
+        if (subs != null) subs.forEach(Subscription::closeFromServer);
+    }
+
+    @Scheduled(fixedDelayString = "${vault.watch.keep-alive-ms:25000}")
+    public void keepAlive() {
+        subscribers.values().forEach(subs -> subs.forEach(Subscription::requestKeepAlive));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("simault.watch.subscribers", subscribers, map -> map.values().stream().mapToInt(Set::size).sum())
+                .description("Open secret watch connections")
+                .register(registry);
+        FunctionCounter.builder("simault.watch.events", delivered, LongAdder::sum)
+                .tag("result", "delivered")
+                .register(registry);
+        FunctionCounter.builder("simault.watch.events", dropped, LongAdder::sum)
+                .tag("result", "dropped")
+                .register(registry);
+    }
+
+    private void publish(SecretChangeEvent event) {
+        Set<Subscription> subs = subscribers.get(event.appId());
+        if (subs != null) subs.forEach(s -> s.offer(event));
+    }
+
+    private void unsubscribe(Subscription subscription) {
+        subscribers.computeIfPresent(subscription.appId, (id, subs) -> {
+            subs.remove(subscription);
+            return subs.isEmpty() ? null : subs;
+        });
+    }
+
+    /**
+     * One watcher's connection: a bounded drop-oldest queue drained by at most one
+     * virtual thread at a time.
+     */
+    public final class Subscription implements AutoCloseable {
+
+        private final String appId;
+        private final SecretChangeSink sink;
+        private final ArrayBlockingQueue<SecretChangeEvent> queue = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean keepAlivePending;
+        private volatile boolean closed;
+
+        private Subscription(String appId, SecretChangeSink sink) {
+            this.appId = appId;
+            this.sink = sink;
+        }
+
+        /** Queues an event for this watcher only (e.g. catching up a reconnecting client). */
+        public void offer(SecretChangeEvent event) {
+            while (!queue.offer(event)) {
+                if (queue.poll() != null) dropped.increment();
+            }
+            schedule();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            unsubscribe(this);
+        }
+
+        private void closeFromServer() {
+            close();
+            sink.close();
+        }
+
+        private void requestKeepAlive() {
+            keepAlivePending = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (closed || !draining.compareAndSet(false, true)) return;
+            try {
+                deliveries.execute(this::drain);
+            } catch (RuntimeException e) {
+                // Executor shut down: the node is stopping
+                draining.set(false);
+            }
+        }
+
+        private void drain() {
+            try {
+                SecretChangeEvent event;
+                while (!closed && (event = queue.poll()) != null) {
+                    sink.send(event);
+                    delivered.increment();
+                    keepAlivePending = false;
+                }
+                if (!closed && keepAlivePending) {
+                    keepAlivePending = false;
+                    sink.keepAlive();
+                }
+            } catch (Exception e) {
+                logger.debug("Secret watcher for appId={} disconnected: {}", appId, e.getMessage());
+                close();
+            } finally {
+                draining.set(false);
+            }
+            // An offer that landed after the loop's last poll would otherwise wait for the next event
+            if (!closed && (!queue.isEmpty() || keepAlivePending)) schedule();
+        }
+    }
+
+    // --- Change stream ---
+
+    /**
+     * Follows the secrets collection and publishes one event per rotation or expiry.
+     * The ciphertext is projected out on the server; it never reaches this process.
+     */
+    private void watchSecrets() {
+        BsonDocument resumeToken = loadCheckpoint();
+
+        while (running) {
+            var stream = secretsCollection().watch(List.of(
+                        Aggregates.project(Projections.exclude("fullDocument.secret", "updateDescription.updatedFields.secret"))))
+                    .maxAwaitTime(1, TimeUnit.SECONDS);
+            if (resumeToken != null) stream = stream.resumeAfter(resumeToken);
+
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor()) {
+                loadDocumentIds();
+                logger.info("Secret change stream opened{}.", resumeToken != null ? " (resumed)" : "");
+
+                while (running) {
+                    ChangeStreamDocument<Document> change = cursor.tryNext();
+                    if (change != null && change.getOperationType() == OperationType.INVALIDATE) {
+                        // Collection dropped or renamed: the old stream cannot be resumed
+                        resumeToken = null;
+                        break;
+                    }
+                    if (change != null) {
+                        SecretChangeEvent event = toEvent(change);
+                        if (event != null) {
+                            // Keeps this node's expiry schedule and cache in step with rotations done
+                            // elsewhere, before a watcher can react by reading the secret from this node
+                            if (event.createdAt() != null) {
+                                leaseManager.track(event.appId(), event.createdAt(), expiresAt(change, event.createdAt()));
+                                secretCache.invalidateOlderThan(event.appId(), event.createdAt());
+                            } else {
+                                leaseManager.forget(event.appId());
+                                secretCache.invalidate(event.appId());
+                            }
+                            // Routed reads of this app on a secondary now wait for the change
+                            readRouting.observed(event.appId(), change.getClusterTime());
+                            publish(event);
+                        }
+                    }
+                    resumeToken = cursor.getResumeToken();
+                    checkpoint(resumeToken, false);
+                }
+                checkpoint(resumeToken, true);
+            } catch (MongoCommandException e) {
+                if (!running) return;
+                if (e.getErrorCode() == CHANGE_STREAM_HISTORY_LOST) resumeToken = null;
+                logger.warn("Secret change stream interrupted: {}", e.getErrorMessage());
+                backOff();
+            } catch (Exception e) {
+                if (!running) return;
+                logger.warn("Secret change stream unavailable ({}). Watchers will not be notified until it reconnects.", e.getMessage());
+                backOff();
+            }
+        }
+    }
+
+    private SecretChangeEvent toEvent(ChangeStreamDocument<Document> change) {
+        BsonValue docId = change.getDocumentKey() != null ? change.getDocumentKey().get("_id") : null;
+        if (docId == null) return null;
+
+        switch (change.getOperationType()) {
+            case INSERT, REPLACE -> {
+                Document doc = change.getFullDocument();
+                if (doc == null || doc.getString("appId") == null) return null;
+                appIdsByDocId.put(docId, doc.getString("appId"));
+                return rotated(doc.getString("appId"), doc.getDate("createdAt"));
+            }
+            case UPDATE -> {
+                // Unreadable secrets are replaced with $set on secret + createdAt
+                String appId = appIdsByDocId.get(docId);
+                BsonDocument updated = change.getUpdateDescription() != null
+                        ? change.getUpdateDescription().getUpdatedFields() : null;
+                if (appId == null || updated == null || !updated.isDateTime("createdAt")) return null;
+                return rotated(appId, new Date(updated.getDateTime("createdAt").getValue()));
+            }
+            case DELETE -> {
+                String appId = appIdsByDocId.remove(docId);
+                return appId == null ? null : new SecretChangeEvent(appId, SecretChangeEvent.EXPIRED, null, null);
+            }
+            default -> {
+                return null;
+            }
+        }
+    }
+
+    // expireAt of the new secret, from the full document or the $set that replaced an unreadable one
+    private Instant expiresAt(ChangeStreamDocument<Document> change, Instant createdAt) {
+        Date stored = null;
+        if (change.getFullDocument() != null) {
+            stored = change.getFullDocument().getDate("expireAt");
+        } else if (change.getUpdateDescription() != null && change.getUpdateDescription().getUpdatedFields() != null
+                && change.getUpdateDescription().getUpdatedFields().isDateTime("expireAt")) {
+            stored = new Date(change.getUpdateDescription().getUpdatedFields().getDateTime("expireAt").getValue());
+        }
+        return policy.expiresAt(createdAt, stored);
+    }
+
+    private SecretChangeEvent rotated(String appId, Date createdAt) {
+        if (createdAt == null) return null;
+        return new SecretChangeEvent(appId, SecretChangeEvent.ROTATED,
+                SecretUtils.versionTag(createdAt.toInstant()), createdAt.toInstant());
+    }
+
+    private void loadDocumentIds() {
+        for (Document doc : secretsCollection().find().projection(Projections.include("appId"))) {
+            if (doc.getString("appId") != null) appIdsByDocId.put(doc.toBsonDocument().get("_id"), doc.getString("appId"));
+        }
+    }
+
+    // --- Resume token checkpoints ---
+
+    private BsonDocument loadCheckpoint() {
+        try {
+            Document doc = checkpoints().find(Filters.eq("_id", checkpointId())).first();
+            if (doc == null || doc.get("resumeToken") == null) return null;
+            return doc.get("resumeToken", Document.class).toBsonDocument();
+        } catch (Exception e) {
+            logger.warn("Could not load secret watch checkpoint: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void checkpoint(BsonDocument resumeToken, boolean force) {
+        long now = System.currentTimeMillis();
+        if (resumeToken == null || (!force && now - lastCheckpointAt < checkpointIntervalMs)) return;
+        try {
+            checkpoints().replaceOne(Filters.eq("_id", checkpointId()),
+                    new Document("_id", checkpointId())
+                            .append("resumeToken", resumeToken)
+                            .append("updatedAt", new Date(now)),
+                    new ReplaceOptions().upsert(true));
+            lastCheckpointAt = now;
+        } catch (Exception e) {
+            logger.warn("Could not save secret watch checkpoint: {}", e.getMessage());
+        }
+    }
+
+    private String checkpointId() {
+        return "secrets:" + node.stableId();
+    }
+
+    private void backOff() {
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private MongoCollection<Document> secretsCollection() {
+        return mongoClient.getDatabase(dbName).getCollection(collName);
+    }
+
+    private MongoCollection<Document> checkpoints() {
+        return mongoClient.getDatabase(dbName).getCollection(CHECKPOINT_COLLECTION);
+    }
+}
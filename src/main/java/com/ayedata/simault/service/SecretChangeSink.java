@@ -0,0 +1,18 @@
+package com.ayedata.simault.service;
+
+import com.ayedata.simault.model.SecretChangeEvent;
+
+/**
+ * One watcher's connection, as seen by SecretChangeNotifier. Calls for one sink never
+ * overlap; an exception from send() or keepAlive() ends the subscription.
+ */
+public interface SecretChangeSink {
+
+    void send(SecretChangeEvent event) throws Exception;
+
+    /** Nothing to report; keeps proxies from closing an idle connection. */
+    void keepAlive() throws Exception;
+
+    /** The subscription was ended by the server (app removed, shutdown). */
+    void close();
+}
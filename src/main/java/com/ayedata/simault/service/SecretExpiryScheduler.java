@@ -0,0 +1,197 @@
+package com.ayedata.simault.service;
+
+import com.ayedata.simault.repository.AppRegistryRepository;
+import com.ayedata.simault.repository.LeaseRepository;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Removes secrets the moment SecretLeaseManager reports them expired, instead of waiting
+ * for MongoDB's TTL monitor (which runs about once a minute and deletes in bursts).
+ *
+ * Every tick it takes at most max-per-second x tick worth of expired secrets and either
+ * deletes them in one unordered bulk (on-expiry=delete, the old TTL behaviour: the next
+ * read issues a new secret) or rotates them (on-expiry=rotate). Both are conditional on
+ * the createdAt that expired, so a secret rotated in the meantime is left alone and
+ * tracked again. One node does this at a time, under a lease; the others only keep
+ * their wheels current. The TTL index stays as a backstop, vault.lease.ttl-index-grace-seconds
+ * behind.
+ */
+@Service
+public class SecretExpiryScheduler implements MeterBinder {
+
+    private static final Logger logger = LogManager.getLogger(SecretExpiryScheduler.class);
+
+    private static final String SWEEP_LEASE = "secret-expiry";
+    private static final Duration SWEEP_LEASE_DURATION = Duration.ofSeconds(30);
+
+    // --- Configuration ---
+    @Value("${vault.mongodb.database}") private String dbName;
+    @Value("${vault.mongodb.collection}") private String collName;
+    @Value("${vault.lease.tick-ms:1000}") private long tickMillis;
+    @Value("${vault.lease.on-expiry:delete}") private String onExpiry;
+    @Value("${vault.lease.max-per-second:200}") private int maxPerSecond;
+
+    // --- Dependencies ---
+    private final MongoClient mongoClient;
+    private final SecretLeaseManager leaseManager;
+    private final SecretPolicy policy;
+    private final SecretVaultService vaultService;
+    private final AppRegistryRepository appRegistry;
+    private final LeaseRepository leases;
+
+    private boolean rotate;
+    private int batchSize;
+
+    // --- Counters ---
+    private final LongAdder deleted = new LongAdder();
+    private final LongAdder rotated = new LongAdder();
+    private final LongAdder superseded = new LongAdder();
+
+    public SecretExpiryScheduler(MongoClient mongoClient, SecretLeaseManager leaseManager, SecretPolicy policy,
+                                 SecretVaultService vaultService, AppRegistryRepository appRegistry, LeaseRepository leases) {
+        this.mongoClient = mongoClient;
+        this.leaseManager = leaseManager;
+        this.policy = policy;
+        this.vaultService = vaultService;
+        this.appRegistry = appRegistry;
+        this.leases = leases;
+    }
+
+    @PostConstruct
+    public void init() {
+        switch (onExpiry.trim().toLowerCase()) {
+            case "delete" -> rotate = false;
+            case "rotate" -> rotate = true;
+            default -> throw new IllegalStateException("Unknown vault.lease.on-expiry: " + onExpiry);
+        }
+        // Spread the budget over the ticks so expiries never reach MongoDB as one burst
+        batchSize = (int) Math.max(1, maxPerSecond * tickMillis / 1000);
+    }
+
+    @Scheduled(fixedDelayString = "${vault.lease.tick-ms:1000}")
+    public void expireDueSecrets() {
+        List<SecretLeaseManager.Lease> due = leaseManager.takeDue(batchSize);
+        if (due.isEmpty()) return;
+
+        boolean sweeper;
+        try {
+            sweeper = leases.tryAcquire(SWEEP_LEASE, SWEEP_LEASE_DURATION);
+        } catch (Exception e) {
+            // The TTL index backstop and read-time expiry cover what this tick drops
+            logger.warn("Secret expiry skipped, lease unavailable: {}", e.getMessage());
+            return;
+        }
+        if (!sweeper) {
+            // Another node removes them; readers here already treat them as expired
+            leaseManager.takeDue(Integer.MAX_VALUE);
+            return;
+        }
+
+        List<SecretLeaseManager.Lease> toDelete = new ArrayList<>();
+        List<SecretLeaseManager.Lease> unchanged = new ArrayList<>();
+        for (SecretLeaseManager.Lease lease : due) {
+            if (rotate && appRegistry.isAppAllowed(lease.appId())) rotate(lease, unchanged);
+            else toDelete.add(lease);
+        }
+        if (!toDelete.isEmpty()) delete(toDelete, unchanged);
+        if (!unchanged.isEmpty()) reconcile(unchanged);
+    }
+
+    private void rotate(SecretLeaseManager.Lease lease, List<SecretLeaseManager.Lease> unchanged) {
+        try {
+            // Tracks the new secret itself
+            if (vaultService.rotateIfUnchanged(lease.appId(), lease.createdAt()) != null) rotated.increment();
+            else unchanged.add(lease);
+        } catch (Exception e) {
+            logger.error("Rotation of expired secret failed for appId: {}", lease.appId(), e);
+            unchanged.add(lease);
+        }
+    }
+
+    private void delete(List<SecretLeaseManager.Lease> expired, List<SecretLeaseManager.Lease> unchanged) {
+        List<DeleteOneModel<Document>> deletes = new ArrayList<>();
+        for (SecretLeaseManager.Lease lease : expired) {
+            deletes.add(new DeleteOneModel<>(Filters.and(
+                    Filters.eq("appId", lease.appId()),
+                    Filters.eq("createdAt", Date.from(lease.createdAt())))));
+        }
+
+        long count;
+        try {
+            count = secretsCollection().bulkWrite(deletes, new BulkWriteOptions().ordered(false)).getDeletedCount();
+        } catch (MongoBulkWriteException e) {
+            // The other deletes of an unordered bulk still went through
+            count = e.getWriteResult().getDeletedCount();
+        } catch (Exception e) {
+            logger.warn("Deleting {} expired secrets failed: {}", expired.size(), e.getMessage());
+            count = 0;
+        }
+        deleted.add(count);
+        // The bulk result does not say which ones matched; look at what is left
+        if (count < expired.size()) unchanged.addAll(expired);
+    }
+
+    /**
+     * Secrets that were not removed: rotated since they were scheduled, or the write failed.
+     * Tracking what is stored now schedules the newer secret, or retries an expired one.
+     */
+    private void reconcile(List<SecretLeaseManager.Lease> leasesLeft) {
+        Map<String, SecretLeaseManager.Lease> byAppId = new HashMap<>();
+        leasesLeft.forEach(lease -> byAppId.put(lease.appId(), lease));
+        try {
+            for (Document doc : secretsCollection().find(Filters.in("appId", byAppId.keySet()))
+                    .projection(Projections.fields(Projections.include("appId", "createdAt", "expireAt"), Projections.excludeId()))) {
+                if (doc.getDate("createdAt") == null) continue;
+                if (!doc.getDate("createdAt").toInstant().equals(byAppId.get(doc.getString("appId")).createdAt())) {
+                    superseded.increment();
+                }
+                leaseManager.track(doc.getString("appId"), doc.getDate("createdAt").toInstant(), policy.expiresAt(doc));
+            }
+        } catch (Exception e) {
+            // Left to the TTL index backstop, and to read-time expiry meanwhile
+            logger.warn("Could not re-read {} secrets after expiry: {}", byAppId.size(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("simault.lease.expired", deleted, LongAdder::sum)
+                .description("Expired secrets handled by this node")
+                .tag("action", "deleted")
+                .register(registry);
+        FunctionCounter.builder("simault.lease.expired", rotated, LongAdder::sum)
+                .tag("action", "rotated")
+                .register(registry);
+        FunctionCounter.builder("simault.lease.expired", superseded, LongAdder::sum)
+                .tag("action", "superseded")
+                .register(registry);
+    }
+
+    private MongoCollection<Document> secretsCollection() {
+        return mongoClient.getDatabase(dbName).getCollection(collName);
+    }
+}
@@ -0,0 +1,147 @@
+package com.ayedata.simault.service;
+
+import com.ayedata.simault.config.ReadRouting;
+import com.ayedata.simault.crypto.CryptoEngine;
+import com.ayedata.simault.model.FleetHealthReport;
+import com.ayedata.simault.util.KeyUtils;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Projections;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.Binary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Read-only health reporting. Nothing here decrypts a secret or writes to the database.
+ *
+ * The fleet report is one aggregation over allowed_apps with a $lookup into the secrets
+ * collection on the appId index, streamed from the cursor. A secret counts as
+ * undecryptable when its ciphertext fails the structural checks a decryption would
+ * make first: CSFLE subtype 6, deterministic marker, a string payload, a plausible
+ * length, and a data key that still exists in the key vault.
+ */
+@Service
+public class SecretHealthService {
+
+    // --- Configuration ---
+    @Value("${vault.mongodb.database}") private String dbName;
+    @Value("${vault.mongodb.collection}") private String collName;
+    @Value("${vault.health.expiring-within-seconds:300}") private long defaultExpiringWithinSeconds;
+    @Value("${vault.health.max-listed:100}") private int defaultMaxListed;
+
+    // Ciphertext layout: subtype(1) | key UUID(16) | BSON type(1) | IV(16) | AES-CBC blocks | HMAC tag(32)
+    private static final int HEADER_LENGTH = 18;
+    private static final int IV_LENGTH = 16;
+    private static final int TAG_LENGTH = 32;
+    private static final int BLOCK_LENGTH = 16;
+    private static final byte DETERMINISTIC = 1;
+    private static final byte BSON_STRING = 0x02;
+
+    // --- Dependencies ---
+    private final MongoClient mongoClient;
+    private final ReadRouting readRouting;
+    private final SecretLeaseManager leaseManager;
+    private final SecretPolicy policy;
+
+    public SecretHealthService(MongoClient mongoClient, ReadRouting readRouting, SecretLeaseManager leaseManager,
+                               SecretPolicy policy) {
+        this.mongoClient = mongoClient;
+        this.readRouting = readRouting;
+        this.leaseManager = leaseManager;
+        this.policy = policy;
+    }
+
+    /**
+     * Health of the secret of every registered app.
+     * @param expiringWithinSeconds Secrets expiring sooner than this are reported (null for the default)
+     * @param maxListed Maximum appIds listed per category (null for the default)
+     */
+    public FleetHealthReport fleetReport(Long expiringWithinSeconds, Integer maxListed) {
+        long window = expiringWithinSeconds != null && expiringWithinSeconds >= 0 ? expiringWithinSeconds : defaultExpiringWithinSeconds;
+        int listed = maxListed != null && maxListed >= 0 ? maxListed : defaultMaxListed;
+        Instant now = Instant.now();
+        Set<UUID> dataKeys = dataKeyIds();
+
+        long apps = 0, healthy = 0, expiringCount = 0, expiredCount = 0, missingCount = 0, undecryptableCount = 0;
+        List<String> expiring = new ArrayList<>();
+        List<String> expired = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+        Map<String, String> undecryptable = new LinkedHashMap<>();
+
+        List<Bson> pipeline = List.of(
+            // Equality $lookup: one probe of the secrets appId index per app
+            Aggregates.lookup(collName, "appId", "appId", "secret"),
+            Aggregates.project(Projections.fields(
+                Projections.excludeId(),
+                Projections.include("appId", "secret.createdAt", "secret.expireAt", "secret.secret"))));
+
+        for (Document app : readRouting.forReads(mongoClient.getDatabase(dbName).getCollection("allowed_apps"))
+                .aggregate(pipeline)) {
+            apps++;
+            String appId = app.getString("appId");
+            List<Document> secrets = app.getList("secret", Document.class, List.of());
+
+            if (secrets.isEmpty()) {
+                if (missingCount++ < listed) missing.add(appId);
+                continue;
+            }
+            Document secret = secrets.get(0);
+
+            String problem = checkCiphertext(secret.get("secret"), dataKeys);
+            if (problem != null) {
+                if (undecryptableCount++ < listed) undecryptable.put(appId, problem);
+                continue;
+            }
+
+            // Each secret carries its own expiry: apps can have different TTLs
+            long remaining = secret.getDate("createdAt") == null ? 0 : leaseManager.remainingSeconds(policy.expiresAt(secret));
+            if (remaining <= 0) {
+                // Past its lifetime but not yet deleted or rotated by SecretExpiryScheduler
+                if (expiredCount++ < listed) expired.add(appId);
+            } else if (remaining <= window) {
+                if (expiringCount++ < listed) expiring.add(appId);
+            } else {
+                healthy++;
+            }
+        }
+
+        return new FleetHealthReport(now, apps, healthy, expiringCount, expiredCount, missingCount, undecryptableCount,
+                window, listed, expiring, expired, missing, undecryptable);
+    }
+
+    /** Why this value cannot be decrypted, or null if it passes every structural check. */
+    private static String checkCiphertext(Object value, Set<UUID> dataKeys) {
+        if (!(value instanceof Binary ciphertext)) return "secret is not binary ciphertext";
+        if (ciphertext.getType() != 6) return "binary subtype " + ciphertext.getType() + " is not CSFLE ciphertext";
+
+        byte[] data = ciphertext.getData();
+        int body = data.length - HEADER_LENGTH - IV_LENGTH - TAG_LENGTH;
+        if (body < BLOCK_LENGTH || body % BLOCK_LENGTH != 0) return "malformed ciphertext (" + data.length + " bytes)";
+        if (data[0] != DETERMINISTIC) return "not deterministic ciphertext";
+        if (data[17] != BSON_STRING) return "encrypted value is not a string";
+
+        UUID keyId = CryptoEngine.keyIdOf(ciphertext);
+        if (!dataKeys.contains(keyId)) return "data key " + keyId + " not found in the key vault";
+        return null;
+    }
+
+    private Set<UUID> dataKeyIds() {
+        Set<UUID> ids = new HashSet<>();
+        for (Document key : mongoClient.getDatabase("encryption").getCollection("__keyVault")
+                .find().projection(Projections.include("_id"))) {
+            ids.add(KeyUtils.toUuid(key.get("_id", Binary.class)));
+        }
+        return ids;
+    }
+}
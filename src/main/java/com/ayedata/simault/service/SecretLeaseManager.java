@@ -0,0 +1,167 @@
+package com.ayedata.simault.service;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.model.Projections;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Knows when every secret expires, and is the one place that answers "how long is left".
+ *
+ * A secret's lease runs from its createdAt to its expireAt, which is fixed when the secret
+ * is issued from its app's TTL (see SecretPolicy). Leases are loaded from
+ * the secrets collection at startup and kept current by every write or read on this node
+ * and by the secret change stream. They sit in a hierarchical timing wheel that hands each
+ * one back within a tick of its expiry; SecretExpiryScheduler then deletes or rotates those
+ * secrets in rate-limited batches.
+ *
+ * Expiry does not wait for that, though: readers check isExpired() against expireAt, so a
+ * secret past its lifetime is never handed out, even in the moments before it is removed.
+ * Not to be confused with LeaseRepository's leases, which are cluster-wide locks.
+ */
+@Component
+public class SecretLeaseManager implements MeterBinder {
+
+    // --- Configuration ---
+    @Value("${vault.mongodb.database}") private String dbName;
+    @Value("${vault.mongodb.collection}") private String collName;
+    @Value("${vault.lease.tick-ms:1000}") private long tickMillis;
+    @Value("${vault.lease.wheel-size:64}") private int wheelSize;
+
+    /** One secret generation of one app. */
+    public record Lease(String appId, Instant createdAt, Instant expiresAt) {}
+
+    private final MongoClient mongoClient;
+    private final SecretPolicy policy;
+
+    // appId -> lease of the newest secret this node knows about
+    private final ConcurrentHashMap<String, Lease> leases = new ConcurrentHashMap<>();
+    // Guards wheel and due; never held across I/O
+    private final ReentrantLock lock = new ReentrantLock();
+    private TimingWheel<Lease> wheel;
+    // Expired, waiting for the scheduler's next batch
+    private final ArrayDeque<Lease> due = new ArrayDeque<>();
+
+    public SecretLeaseManager(MongoClient mongoClient, SecretPolicy policy) {
+        this.mongoClient = mongoClient;
+        this.policy = policy;
+    }
+
+    @PostConstruct
+    public void init() {
+        wheel = new TimingWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+        int loaded = reload();
+        System.out.println("⏱️ Secret lease manager tracking " + loaded + " secrets.");
+    }
+
+    // --- Lifetime ---
+
+    public boolean isExpired(Instant expiresAt) {
+        return !Instant.now().isBefore(expiresAt);
+    }
+
+    /** Whole seconds until expiresAt; 0 once it has passed. */
+    public long remainingSeconds(Instant expiresAt) {
+        long millis = expiresAt.toEpochMilli() - System.currentTimeMillis();
+        return Math.max(0, millis / 1000);
+    }
+
+    // --- Tracking ---
+
+    /**
+     * Records that appId's current secret was created at createdAt and expires at expiresAt.
+     * An older generation (a stale read) never replaces a newer one. Cheap when nothing changed.
+     */
+    public void track(String appId, Instant createdAt, Instant expiresAt) {
+        Lease known = leases.get(appId);
+        if (known != null && !createdAt.isAfter(known.createdAt())) return;
+
+        Lease lease = new Lease(appId, createdAt, expiresAt);
+        Lease current = leases.merge(appId, lease, (a, b) -> b.createdAt().isAfter(a.createdAt()) ? b : a);
+        if (current != lease) return;
+
+        lock.lock();
+        try {
+            if (!wheel.add(lease, lease.expiresAt().toEpochMilli()) && leases.remove(appId, lease)) {
+                // Already past its lifetime (e.g. loaded at startup before anyone removed it)
+                due.add(lease);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** The secret is gone (deleted here or seen deleted on the change stream). */
+    public void forget(String appId) {
+        // Its wheel entry stays behind and is ignored when it comes due
+        leases.remove(appId);
+    }
+
+    /**
+     * Advances the wheel to now and returns up to max expired leases, oldest first.
+     * The rest stay queued for the next call.
+     */
+    public List<Lease> takeDue(int max) {
+        lock.lock();
+        try {
+            wheel.advance(System.currentTimeMillis(), entry -> {
+                // Superseded by a rotation, or forgotten, since it was scheduled
+                if (leases.remove(entry.key().appId(), entry.key())) due.add(entry.key());
+            });
+            List<Lease> batch = new ArrayList<>(Math.min(max, due.size()));
+            while (batch.size() < max && !due.isEmpty()) batch.add(due.poll());
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Leases of every secret this node tracks and that has not expired yet. */
+    public List<Lease> tracked() {
+        return List.copyOf(leases.values());
+    }
+
+    /** Reads every secret's createdAt and expireAt from the primary and tracks them. */
+    public int reload() {
+        int count = 0;
+        for (Document doc : mongoClient.getDatabase(dbName).getCollection(collName)
+                .find()
+                .projection(Projections.fields(Projections.include("appId", "createdAt", "expireAt"), Projections.excludeId()))) {
+            if (doc.getString("appId") == null || doc.getDate("createdAt") == null) continue;
+            track(doc.getString("appId"), doc.getDate("createdAt").toInstant(), policy.expiresAt(doc));
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("simault.lease.tracked", leases, ConcurrentHashMap::size)
+                .description("Secrets whose expiry this node is tracking")
+                .register(registry);
+        Gauge.builder("simault.lease.due", this, SecretLeaseManager::dueCount)
+                .description("Expired secrets waiting to be deleted or rotated")
+                .register(registry);
+    }
+
+    private int dueCount() {
+        lock.lock();
+        try {
+            return due.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
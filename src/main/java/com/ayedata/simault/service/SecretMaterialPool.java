@@ -0,0 +1,173 @@
+package com.ayedata.simault.service;
+
+import com.ayedata.simault.crypto.CryptoEngine;
+import com.ayedata.simault.metrics.VaultMetrics;
+import com.ayedata.simault.util.SecretUtils;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.types.Binary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rotation material made ahead of time: a background thread keeps a bounded queue
+ * of random secrets that are already encrypted, so a rotation only has to pop one
+ * and write it. When the queue runs dry the caller generates and encrypts inline.
+ *
+ * Material is tagged with the data key it was encrypted under and is thrown away
+ * once that key is no longer the active one. Only secrets of the default length are
+ * pooled; apps registered with another length get theirs generated on the spot.
+ */
+@Component
+public class SecretMaterialPool implements MeterBinder {
+
+    private static final Logger logger = LogManager.getLogger(SecretMaterialPool.class);
+
+    // --- Configuration ---
+    @Value("${vault.rotation.pool.enabled:true}") private boolean enabled;
+    @Value("${vault.rotation.pool.depth:64}") private int depth;
+    @Value("${vault.secrets.default-length-bytes:32}") private int defaultLength;
+
+    public record Material(String raw, Binary encrypted, UUID keyId) {}
+
+    // --- Dependencies ---
+    private final CryptoEngine cryptoEngine;
+    private final VaultMetrics metrics;
+
+    private BlockingQueue<Material> ready;
+    private volatile boolean running = true;
+    private Thread producer;
+
+    // --- Counters ---
+    private final LongAdder produced = new LongAdder();
+    private final LongAdder served = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+
+    public SecretMaterialPool(CryptoEngine cryptoEngine, VaultMetrics metrics) {
+        this.cryptoEngine = cryptoEngine;
+        this.metrics = metrics;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) return;
+        ready = new ArrayBlockingQueue<>(depth);
+        producer = Thread.ofPlatform().daemon().name("secret-pool-refill").start(this::refill);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (producer != null) producer.interrupt();
+        // Never-issued plaintexts should not outlive the pool
+        if (ready != null) ready.clear();
+    }
+
+    /**
+     * A fresh secret of length random bytes, encrypted under the active data key: from the
+     * pool if one is ready, otherwise generated and encrypted on the calling thread.
+     */
+    public Material take(int length) {
+        return poll(length).orElseGet(() -> generate(length));
+    }
+
+    /**
+     * Pool only, never encrypts on the calling thread (for event-loop callers that
+     * have their own non-blocking fallback). Empty counts as a miss, except for
+     * non-default lengths, which are never pooled.
+     */
+    public Optional<Material> poll(int length) {
+        if (length != defaultLength) return Optional.empty();
+        if (enabled) {
+            UUID activeKeyId = cryptoEngine.activeKeyId();
+            Material material;
+            while ((material = ready.poll()) != null) {
+                if (material.keyId().equals(activeKeyId)) {
+                    served.increment();
+                    return Optional.of(material);
+                }
+                discarded.increment();
+            }
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    public int depth() {
+        return ready == null ? 0 : ready.size();
+    }
+
+    private Material generate(int length) {
+        String raw = SecretUtils.generateRandomString(length);
+        // Read before encrypting: if the key switches in between, the material is discarded, never mislabelled
+        UUID keyId = cryptoEngine.activeKeyId();
+        Timer.Sample stage = metrics.start();
+        try {
+            return new Material(raw, cryptoEngine.encrypt(raw), keyId);
+        } finally {
+            metrics.stop(stage, VaultMetrics.ROTATE, "encrypt");
+        }
+    }
+
+    private void refill() {
+        logger.info("Rotation material pool started (depth {}).", depth);
+        while (running) {
+            try {
+                // put() parks the producer while the pool is full
+                ready.put(generate(defaultLength));
+                produced.increment();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                if (!running) return;
+                logger.warn("Could not refill rotation material pool: {}", e.getMessage());
+                backOff();
+            }
+        }
+    }
+
+    private void backOff() {
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("simault.rotation.pool.depth", this, SecretMaterialPool::depth)
+                .description("Encrypted rotation secrets ready to be issued")
+                .register(registry);
+        FunctionCounter.builder("simault.rotation.pool.produced", produced, LongAdder::sum)
+                .description("Rotation secrets generated and encrypted by the refill thread")
+                .register(registry);
+        FunctionCounter.builder("simault.rotation.pool.discarded", discarded, LongAdder::sum)
+                .description("Pooled secrets dropped because the active data key changed")
+                .register(registry);
+        bindCounter(registry, "simault.rotation.pool.takes", served, "result", "hit");
+        bindCounter(registry, "simault.rotation.pool.takes", misses, "result", "miss");
+    }
+
+    private static void bindCounter(MeterRegistry registry, String name, LongAdder adder, String tag, String value) {
+        FunctionCounter.builder(name, adder, LongAdder::sum)
+                .tag(tag, value)
+                .register(registry);
+    }
+}
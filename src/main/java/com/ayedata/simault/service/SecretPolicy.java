@@ -0,0 +1,74 @@
+package com.ayedata.simault.service;
+
+import com.ayedata.simault.model.AllowedApp;
+import com.ayedata.simault.repository.AppRegistryRepository;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.Optional;
+
+/**
+ * Lifetime and strength of each app's secrets: the values on its registry entry, or the
+ * vault defaults for apps registered without them.
+ *
+ * The lifetime is fixed when a secret is issued: every secret document carries its own
+ * expireAt, so changing an app's TTL affects its next secret, not the current one.
+ */
+@Component
+public class SecretPolicy {
+
+    // --- Configuration ---
+    @Value("${vault.secrets.default-ttl-seconds:3600}") private long defaultTtlSeconds;
+    @Value("${vault.secrets.default-length-bytes:32}") private int defaultLengthBytes;
+
+    /** What a new secret for one app looks like. */
+    public record Settings(long ttlSeconds, int secretLength) {}
+
+    private final AppRegistryRepository registry;
+
+    public SecretPolicy(AppRegistryRepository registry) {
+        this.registry = registry;
+    }
+
+    /** Settings for appId's next secret. May read MongoDB when the allowlist snapshot is stale. */
+    public Settings forApp(String appId) {
+        return settings(registry.findApp(appId));
+    }
+
+    /**
+     * Non-blocking form of forApp() for the reactive stack.
+     * @return the settings, or empty if the allowlist snapshot cannot answer
+     */
+    public Optional<Settings> forAppFromSnapshot(String appId) {
+        return registry.findAppFromSnapshot(appId).map(app -> settings(Optional.of(app)));
+    }
+
+    /**
+     * When a stored secret expires: its expireAt, or createdAt + the default TTL for
+     * documents written before secrets carried their own expiry.
+     */
+    public Instant expiresAt(Document secretDoc) {
+        return expiresAt(secretDoc.getDate("createdAt").toInstant(), secretDoc.getDate("expireAt"));
+    }
+
+    public Instant expiresAt(Instant createdAt, Date storedExpireAt) {
+        return storedExpireAt != null ? storedExpireAt.toInstant() : createdAt.plusSeconds(defaultTtlSeconds);
+    }
+
+    public long defaultTtlSeconds() {
+        return defaultTtlSeconds;
+    }
+
+    public int defaultSecretLength() {
+        return defaultLengthBytes;
+    }
+
+    private Settings settings(Optional<AllowedApp> app) {
+        return new Settings(
+            app.map(AllowedApp::ttlSeconds).orElse(defaultTtlSeconds),
+            app.map(AllowedApp::secretLength).orElse(defaultLengthBytes));
+    }
+}
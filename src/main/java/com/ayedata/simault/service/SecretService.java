@@ -2,12 +2,9 @@ package com.ayedata.simault.service;
 
 import com.ayedata.simault.model.AppSecret;
 import com.ayedata.simault.repository.SecretRepository;
+import com.ayedata.simault.util.SecretUtils;
 import org.springframework.stereotype.Service;
 
-import java.security.SecureRandom;
-import java.time.Instant;
-import java.util.Base64;
-
 @Service
 public class SecretService {
 
@@ -28,14 +25,7 @@ public class SecretService {
     }
 
     public AppSecret rotateSecret(String appId) {
-        String newSecret = generateRandomString();
-        secretRepository.save(appId, newSecret);
-        return new AppSecret(appId, newSecret, Instant.now());
-    }
-
-    private String generateRandomString() {
-        byte[] bytes = new byte[32];
-        new SecureRandom().nextBytes(bytes);
-        return Base64.getEncoder().encodeToString(bytes);
+        String newSecret = SecretUtils.generateRandomString();
+        return secretRepository.save(appId, newSecret);
     }
 }
\ No newline at end of file
@@ -1,175 +1,660 @@
 package com.ayedata.simault.service;
 
+import com.ayedata.simault.audit.AuditLog;
+import com.ayedata.simault.config.ReadRouting;
+import com.ayedata.simault.crypto.CorruptCiphertextException;
+import com.ayedata.simault.crypto.CryptoEngine;
+import com.ayedata.simault.metrics.VaultMetrics;
 import com.ayedata.simault.model.AppSecret;
+import com.ayedata.simault.model.AuditEvent;
+import com.ayedata.simault.model.BatchSecretResponse;
+import com.ayedata.simault.model.SecretVersion;
 import com.ayedata.simault.repository.AppRegistryRepository;
-import com.mongodb.ClientEncryptionSettings;
-import com.mongodb.ConnectionString;
-import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoCommandException;
+import com.mongodb.ReadPreference;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.ClientSession;
 import com.mongodb.client.MongoClient;
-import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.Filters;
-import com.mongodb.client.model.IndexOptions;
-import com.mongodb.client.model.Indexes;
-import com.mongodb.client.model.vault.DataKeyOptions;
-import com.mongodb.client.model.vault.EncryptOptions;
-import com.mongodb.client.vault.ClientEncryption;
-import com.mongodb.client.vault.ClientEncryptions;
+import com.mongodb.client.model.FindOneAndReplaceOptions;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
-import org.bson.BsonBinary;
-import org.bson.BsonString;
 import org.bson.Document;
 import org.bson.types.Binary;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.security.SecureRandom;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Service
 public class SecretVaultService {
 
     // --- Configuration ---
-    @Value("${vault.mongodb.uri}") private String uri;
     @Value("${vault.mongodb.database}") private String dbName;
     @Value("${vault.mongodb.collection}") private String collName;
-    @Value("${vault.security.kms-provider}") private String kmsProviderName;
-    @Value("${vault.security.master-key-path}") private String masterKeyPath;
-    @Value("${vault.security.key-alt-name}") private String keyAltName;
+    @Value("${vault.batch.parallelism:8}") private int batchParallelism;
+    @Value("${spring.threads.virtual.enabled:false}") private boolean virtualThreads;
 
     // --- Dependencies ---
     private final AppRegistryRepository appRegistry;
-    private MongoClient regularClient;
-    private ClientEncryption clientEncryption;
-    private UUID dataKeyId;
+    private final SecretCache secretCache;
+    private final CryptoEngine cryptoEngine;
+    private final SecretMaterialPool materialPool;
+    private final VaultMetrics metrics;
+    private final AuditLog audit;
+    private final ReadRouting readRouting;
+    private final SecretLeaseManager leaseManager;
+    private final SecretPolicy policy;
+    private final MongoClient mongoClient;
+    private ExecutorService batchExecutor;
 
-    public SecretVaultService(AppRegistryRepository appRegistry) {
+    // appId -> rotation currently running on this node
+    private final ConcurrentHashMap<String, CompletableFuture<AppSecret>> inFlight = new ConcurrentHashMap<>();
+    private static final int DUPLICATE_KEY = 11000;
+
+    public SecretVaultService(MongoClient mongoClient, AppRegistryRepository appRegistry, SecretCache secretCache,
+                              CryptoEngine cryptoEngine, SecretMaterialPool materialPool, VaultMetrics metrics,
+                              AuditLog audit, ReadRouting readRouting, SecretLeaseManager leaseManager,
+                              SecretPolicy policy) {
+        this.mongoClient = mongoClient;
         this.appRegistry = appRegistry;
+        this.secretCache = secretCache;
+        this.cryptoEngine = cryptoEngine;
+        this.materialPool = materialPool;
+        this.metrics = metrics;
+        this.audit = audit;
+        this.readRouting = readRouting;
+        this.leaseManager = leaseManager;
+        this.policy = policy;
     }
 
     @PostConstruct
     public void init() {
         System.out.println("⚙️ Initializing SecretVaultService...");
-        this.regularClient = MongoClients.create(uri);
-
-        // Ensure Indexes
-        MongoCollection<Document> keyVaultColl = regularClient.getDatabase("encryption").getCollection("__keyVault");
-        keyVaultColl.createIndex(Indexes.ascending("keyAltNames"), 
-            new IndexOptions().unique(true).partialFilterExpression(Filters.exists("keyAltNames")));
-
-        MongoCollection<Document> secretColl = regularClient.getDatabase(dbName).getCollection(collName);
-        secretColl.createIndex(Indexes.ascending("createdAt"), 
-            new IndexOptions().expireAfter(3600L, TimeUnit.SECONDS));
-
-        // Setup Encryption
-        Map<String, Map<String, Object>> kmsProviders = loadMasterKey(masterKeyPath);
-        ClientEncryptionSettings encryptionSettings = ClientEncryptionSettings.builder()
-                .keyVaultMongoClientSettings(MongoClientSettings.builder().applyConnectionString(new ConnectionString(uri)).build())
-                .keyVaultNamespace("encryption.__keyVault")
-                .kmsProviders(kmsProviders)
-                .build();
-        this.clientEncryption = ClientEncryptions.create(encryptionSettings);
-
-        this.dataKeyId = ensureDataKeyExists();
+        // Indexes (TTL on createdAt, unique appId) are owned by MongoConfig
+        // Parallelism stays bounded either way; only the kind of thread changes
+        ThreadFactory threads = virtualThreads
+                ? Thread.ofVirtual().name("vault-batch-", 0).factory()
+                : Thread.ofPlatform().name("vault-batch-", 0).factory();
+        this.batchExecutor = Executors.newFixedThreadPool(batchParallelism, threads);
+
         System.out.println("✅ SecretVaultService Ready.");
     }
 
-    public AppSecret getAppSecret(String appId) {
-        // 🛑 STRICT DATABASE CHECK
-        // We do NOT check properties files. We ONLY check MongoDB via the Repository.
-        if (!appRegistry.isAppAllowed(appId)) {
-            System.out.println("⛔ BLOCKING request for unregistered app: " + appId);
+    /**
+     * @param entryPoint VaultMetrics.REST or VaultMetrics.MCP; tags any rotation this read triggers
+     */
+    public AppSecret getAppSecret(String appId, String entryPoint) {
+        Timer.Sample total = metrics.start();
+        try {
+            // 🛑 STRICT DATABASE CHECK
+            // We do NOT check properties files. We ONLY check MongoDB via the Repository.
+            Timer.Sample stage = metrics.start();
+            boolean allowed = appRegistry.isAppAllowed(appId);
+            metrics.stop(stage, VaultMetrics.GET, "registry_check");
+
+            if (!allowed) {
+                System.out.println("⛔ BLOCKING request for unregistered app: " + appId);
+                throw new IllegalArgumentException("❌ Access Denied: Application '" + appId + "' is not registered. Please contact Admin.");
+            }
+
+            AppSecret cached = secretCache.get(appId);
+            if (cached != null) {
+                return cached;
+            }
+
+            stage = metrics.start();
+            Document doc = readRouting.read(appId, session ->
+                    ReadRouting.find(readRouting.forReads(secretsCollection()), session, Filters.eq("appId", appId)).first());
+            if (doc == null && readRouting.isSecondary()) {
+                // A lagging secondary may not have it yet; only the primary can say it is missing
+                doc = secretsCollection().find(Filters.eq("appId", appId)).first();
+            }
+            metrics.stop(stage, VaultMetrics.GET, "find");
+
+            if (doc == null) {
+                // Expired or never issued: one lazy rotation per app, shared by every waiter
+                stage = metrics.start();
+                try {
+                    return singleFlight(appId, () -> createIfAbsent(appId, entryPoint));
+                } finally {
+                    metrics.stop(stage, VaultMetrics.GET, "lazy_rotation");
+                }
+            }
+
+            Instant createdAt = doc.getDate("createdAt").toInstant();
+            if (leaseManager.isExpired(policy.expiresAt(doc))) {
+                // Past its lifetime but not removed yet: never handed out
+                stage = metrics.start();
+                try {
+                    return singleFlight(appId, () -> replaceExpired(appId, createdAt, entryPoint));
+                } finally {
+                    metrics.stop(stage, VaultMetrics.GET, "lazy_rotation");
+                }
+            }
+
+            try {
+                return decryptAndCache(appId, doc);
+            } catch (CorruptCiphertextException e) {
+                // Only a value that can never decrypt is replaced. Key vault or master key
+                // trouble propagates (and feeds the crypto circuit breaker) instead of
+                // overwriting secrets that are fine.
+                Binary unreadable = doc.get("secret", Binary.class);
+                return singleFlight(appId, () -> replaceUnreadable(appId, unreadable, entryPoint));
+            }
+        } finally {
+            metrics.stop(total, VaultMetrics.GET, "total");
+        }
+    }
+
+    /**
+     * Metadata-only lookup for conditional GETs: the createdAt of the current secret,
+     * from the cache or from a createdAt + expireAt projection the { appId, createdAt,
+     * expireAt } index covers. Never decrypts. Empty if the app has no secret yet or it
+     * has expired (the caller falls back to getAppSecret()).
+     */
+    public Optional<Instant> findSecretVersion(String appId) {
+        return findSecretLifetime(appId).map(SecretVersion::createdAt);
+    }
+
+    /**
+     * As findSecretVersion(), with the secret's expiry. Empty if the app has no secret
+     * yet or it has expired.
+     */
+    public Optional<SecretVersion> findSecretLifetime(String appId) {
+        Timer.Sample stage = metrics.start();
+        boolean allowed = appRegistry.isAppAllowed(appId);
+        metrics.stop(stage, VaultMetrics.GET, "registry_check");
+
+        if (!allowed) {
             throw new IllegalArgumentException("❌ Access Denied: Application '" + appId + "' is not registered. Please contact Admin.");
         }
 
-        MongoCollection<Document> coll = regularClient.getDatabase(dbName).getCollection(collName);
-        Document doc = coll.find(new Document("appId", appId)).first();
+        AppSecret cached = secretCache.get(appId);
+        if (cached != null) {
+            return Optional.of(new SecretVersion(cached.createdAt(), cached.expiresAt()));
+        }
+
+        stage = metrics.start();
+        // Answered from the { appId, createdAt, expireAt } index alone. A miss on a secondary
+        // is settled by the caller's getAppSecret(), which confirms on the primary.
+        Document meta = readRouting.read(appId, session -> ReadRouting.find(readRouting.forReads(secretsCollection()),
+                        session, Filters.eq("appId", appId))
+                .projection(Projections.fields(Projections.include("createdAt", "expireAt"), Projections.excludeId()))
+                .first());
+        metrics.stop(stage, VaultMetrics.GET, "version_lookup");
+
+        if (meta == null || meta.getDate("createdAt") == null) return Optional.empty();
+        SecretVersion version = new SecretVersion(meta.getDate("createdAt").toInstant(), policy.expiresAt(meta));
+        // An expired secret has no current version; getAppSecret() replaces it
+        return leaseManager.isExpired(version.expiresAt()) ? Optional.empty() : Optional.of(version);
+    }
+
+    /**
+     * Batch retrieval: one authorization pass, one $in find, parallel decryption, and a
+     * single unordered bulk write for the apps that have no secret yet.
+     * Never throws for an individual app; failures are reported per appId.
+     */
+    public BatchSecretResponse getAppSecrets(Collection<String> requestedIds, String entryPoint) {
+        Timer.Sample total = metrics.start();
+        Set<String> appIds = new LinkedHashSet<>(requestedIds);
+        Map<String, AppSecret> found = new ConcurrentHashMap<>();
+        Map<String, String> errors = new ConcurrentHashMap<>();
+
+        Set<String> allowed = appRegistry.findAllowed(appIds);
+        List<String> toFetch = new ArrayList<>();
+        for (String appId : appIds) {
+            if (!allowed.contains(appId)) {
+                errors.put(appId, "❌ Access Denied: Application '" + appId + "' is not registered.");
+                continue;
+            }
+            AppSecret cached = secretCache.get(appId);
+            if (cached != null) found.put(appId, cached);
+            else toFetch.add(appId);
+        }
+
+        if (!toFetch.isEmpty()) {
+            Map<String, Document> docs = readRouting.read(toFetch, session -> {
+                Map<String, Document> byAppId = new HashMap<>();
+                for (Document doc : ReadRouting.find(readRouting.forReads(secretsCollection()), session, Filters.in("appId", toFetch))) {
+                    byAppId.put(doc.getString("appId"), doc);
+                }
+                return byAppId;
+            });
+            if (readRouting.isSecondary() && docs.size() < toFetch.size()) {
+                // Confirm the misses on the primary before rotating any of them
+                List<String> unseen = toFetch.stream().filter(appId -> !docs.containsKey(appId)).toList();
+                for (Document doc : secretsCollection().find(Filters.in("appId", unseen))) {
+                    docs.put(doc.getString("appId"), doc);
+                }
+            }
+
+            runInParallel(docs.keySet(), appId -> {
+                Document doc = docs.get(appId);
+                Instant createdAt = doc.getDate("createdAt").toInstant();
+                if (leaseManager.isExpired(policy.expiresAt(doc))) {
+                    found.put(appId, singleFlight(appId, () -> replaceExpired(appId, createdAt, entryPoint)));
+                    return;
+                }
+                try {
+                    found.put(appId, decryptAndCache(appId, doc));
+                } catch (CorruptCiphertextException e) {
+                    Binary unreadable = doc.get("secret", Binary.class);
+                    found.put(appId, singleFlight(appId, () -> replaceUnreadable(appId, unreadable, entryPoint)));
+                }
+            }, errors);
+
+            List<String> missing = toFetch.stream().filter(appId -> !docs.containsKey(appId)).toList();
+            if (!missing.isEmpty()) createAllIfAbsent(missing, found, errors, entryPoint);
+        }
 
-        if (doc == null) {
-            return rotateSecret(appId);
+        // Report in the order the caller asked
+        Map<String, AppSecret> secrets = new LinkedHashMap<>();
+        Map<String, String> failures = new LinkedHashMap<>();
+        for (String appId : appIds) {
+            if (found.containsKey(appId)) secrets.put(appId, found.get(appId));
+            else failures.put(appId, errors.getOrDefault(appId, "Secret could not be retrieved"));
         }
+        metrics.stop(total, VaultMetrics.BATCH_GET, "total");
+        return new BatchSecretResponse(secrets, failures);
+    }
 
+    public AppSecret rotateSecret(String appId, String entryPoint) {
+        Timer.Sample total = metrics.start();
         try {
-            Binary encryptedData = doc.get("secret", Binary.class);
-            String decryptedSecret = clientEncryption.decrypt(
-                new BsonBinary(encryptedData.getType(), encryptedData.getData())
-            ).asString().getValue();
-            return new AppSecret(appId, decryptedSecret, doc.getDate("createdAt").toInstant());
-        } catch (Exception e) {
-            return rotateSecret(appId);
+            // 🛑 STRICT DATABASE CHECK
+            Timer.Sample stage = metrics.start();
+            boolean allowed = appRegistry.isAppAllowed(appId);
+            metrics.stop(stage, VaultMetrics.ROTATE, "registry_check");
+
+            if (!allowed) {
+                throw new IllegalArgumentException("❌ Access Denied: Application '" + appId + "' is not registered.");
+            }
+
+            secretCache.invalidate(appId);
+            SecretPolicy.Settings settings = policy.forApp(appId);
+            // Usually already encrypted by the pool, leaving the write as the only real work
+            stage = metrics.start();
+            SecretMaterialPool.Material material = materialPool.take(settings.secretLength());
+            metrics.stop(stage, VaultMetrics.ROTATE, "material");
+
+            // BSON dates hold milliseconds; keep the in-memory copy identical to the stored one
+            Instant createdAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+            Instant expiresAt = createdAt.plusSeconds(settings.ttlSeconds());
+            Document secretDoc = new Document()
+                    .append("appId", appId)
+                    .append("secret", material.encrypted())
+                    .append("createdAt", Date.from(createdAt))
+                    .append("expireAt", Date.from(expiresAt));
+
+            // One atomic round trip: there is never a moment without a secret for this app
+            stage = metrics.start();
+            Document stored = readRouting.write(appId, session -> replaceSecret(session, appId, secretDoc));
+            metrics.stop(stage, VaultMetrics.ROTATE, "write");
+            metrics.rotation("manual", entryPoint);
+
+            AppSecret rotated = new AppSecret(appId, material.raw(), stored.getDate("createdAt").toInstant(), expiresAt);
+            remember(rotated);
+            return rotated;
+        } finally {
+            metrics.stop(total, VaultMetrics.ROTATE, "total");
         }
     }
 
-    public AppSecret rotateSecret(String appId) {
-        // 🛑 STRICT DATABASE CHECK
-        if (!appRegistry.isAppAllowed(appId)) {
-            throw new IllegalArgumentException("❌ Access Denied: Application '" + appId + "' is not registered.");
+    /**
+     * Bulk rotation of apps the caller has already authorized (admin jobs): new secrets
+     * are taken from the material pool in parallel and written as one unordered bulk of
+     * upserting replacements. Failures are recorded per appId in errors.
+     * @return the apps that were rotated
+     */
+    public List<String> rotateAll(Collection<String> appIds, Map<String, String> errors) {
+        Instant createdAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        Map<String, SecretMaterialPool.Material> materials = new ConcurrentHashMap<>();
+        Map<String, Instant> expiries = new ConcurrentHashMap<>();
+
+        Timer.Sample stage = metrics.start();
+        runInParallel(appIds, appId -> {
+            SecretPolicy.Settings settings = policy.forApp(appId);
+            expiries.put(appId, createdAt.plusSeconds(settings.ttlSeconds()));
+            materials.put(appId, materialPool.take(settings.secretLength()));
+        }, errors);
+        metrics.stop(stage, VaultMetrics.BULK_ROTATE, "material");
+        if (materials.isEmpty()) return List.of();
+
+        List<String> writeOrder = new ArrayList<>(materials.keySet());
+        List<WriteModel<Document>> writes = new ArrayList<>();
+        for (String appId : writeOrder) {
+            secretCache.invalidate(appId);
+            writes.add(new ReplaceOneModel<>(
+                Filters.eq("appId", appId),
+                new Document()
+                    .append("appId", appId)
+                    .append("secret", materials.get(appId).encrypted())
+                    .append("createdAt", Date.from(createdAt))
+                    .append("expireAt", Date.from(expiries.get(appId))),
+                new ReplaceOptions().upsert(true)));
+        }
+
+        Set<String> failed = new HashSet<>();
+        stage = metrics.start();
+        try {
+            secretsCollection().bulkWrite(writes, new BulkWriteOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            // The other writes of an unordered bulk still went through
+            for (BulkWriteError error : e.getWriteErrors()) {
+                String appId = writeOrder.get(error.getIndex());
+                failed.add(appId);
+                errors.put(appId, error.getMessage());
+            }
+        } finally {
+            metrics.stop(stage, VaultMetrics.BULK_ROTATE, "write");
         }
 
-        String newSecretRaw = generateRandomString();
+        List<String> rotated = new ArrayList<>();
+        for (String appId : writeOrder) {
+            if (failed.contains(appId)) continue;
+            systemRotation(appId, "bulk", VaultMetrics.SYSTEM);
+            remember(new AppSecret(appId, materials.get(appId).raw(), createdAt, expiries.get(appId)));
+            rotated.add(appId);
+        }
+        return rotated;
+    }
 
-        BsonBinary encryptedBson = clientEncryption.encrypt(
-            new BsonString(newSecretRaw),
-            new EncryptOptions("AEAD_AES_256_CBC_HMAC_SHA_512-Deterministic")
-                .keyId(new BsonBinary(dataKeyId))
-        );
-        Binary encryptedStandard = new Binary(encryptedBson.getType(), encryptedBson.getData());
+    /**
+     * Background rotation: replaces the secret only if it is still the one created at
+     * observedCreatedAt, so a rotation that already happened elsewhere is not repeated.
+     * @return the new secret, or null if the stored secret had already changed
+     */
+    public AppSecret rotateIfUnchanged(String appId, Instant observedCreatedAt) {
+        return replaceIfUnchanged(appId, observedCreatedAt, "proactive", VaultMetrics.SYSTEM);
+    }
 
+    private AppSecret replaceIfUnchanged(String appId, Instant observedCreatedAt, String trigger, String entryPoint) {
+        SecretPolicy.Settings settings = policy.forApp(appId);
+        SecretMaterialPool.Material material = materialPool.take(settings.secretLength());
+        Instant createdAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        Instant expiresAt = createdAt.plusSeconds(settings.ttlSeconds());
         Document secretDoc = new Document()
                 .append("appId", appId)
-                .append("secret", encryptedStandard)
-                .append("createdAt", Date.from(Instant.now()));
+                .append("secret", material.encrypted())
+                .append("createdAt", Date.from(createdAt))
+                .append("expireAt", Date.from(expiresAt));
 
-        MongoCollection<Document> coll = regularClient.getDatabase(dbName).getCollection(collName);
-        coll.deleteOne(new Document("appId", appId)); 
-        coll.insertOne(secretDoc);
+        Document stored = readRouting.write(appId, session -> ReadRouting.findOneAndReplace(secretsCollection(), session,
+            Filters.and(Filters.eq("appId", appId), Filters.eq("createdAt", Date.from(observedCreatedAt))),
+            secretDoc,
+            new FindOneAndReplaceOptions().returnDocument(ReturnDocument.AFTER)));
+        if (stored == null) return null;
+        systemRotation(appId, trigger, entryPoint);
 
-        return new AppSecret(appId, newSecretRaw, Instant.now());
+        AppSecret rotated = new AppSecret(appId, material.raw(), createdAt, expiresAt);
+        remember(rotated);
+        return rotated;
     }
 
-    private UUID ensureDataKeyExists() {
-        Document query = new Document("keyAltNames", keyAltName);
-        Document keyDoc = regularClient.getDatabase("encryption").getCollection("__keyVault").find(query).first();
+    /**
+     * Replaces a secret found past its lifetime before the expiry scheduler removed it.
+     * If it was replaced or removed meanwhile, returns (or issues) the current one.
+     */
+    private AppSecret replaceExpired(String appId, Instant expiredCreatedAt, String entryPoint) {
+        AppSecret rotated = replaceIfUnchanged(appId, expiredCreatedAt, "lazy", entryPoint);
+        if (rotated != null) return rotated;
 
-        if (keyDoc != null) {
-            Binary bsonBinary = keyDoc.get("_id", Binary.class);
-            ByteBuffer buffer = ByteBuffer.wrap(bsonBinary.getData());
-            return new UUID(buffer.getLong(), buffer.getLong());
+        Document current = secretsCollection().find(Filters.eq("appId", appId)).first();
+        if (current == null) return createIfAbsent(appId, entryPoint);
+        return decryptAndCache(appId, current);
+    }
+
+    /**
+     * Rotations nobody asked for directly are audited here; manual ones by the entry point.
+     * The metric still names the entry point whose request set the rotation off.
+     */
+    private void systemRotation(String appId, String trigger, String entryPoint) {
+        metrics.rotation(trigger, entryPoint);
+        audit.record(AuditEvent.SECRET_ROTATE, AuditEvent.SYSTEM, appId, AuditEvent.SUCCESS, trigger);
+    }
+
+    private Document replaceSecret(ClientSession session, String appId, Document secretDoc) {
+        FindOneAndReplaceOptions options = new FindOneAndReplaceOptions().upsert(true).returnDocument(ReturnDocument.AFTER);
+        try {
+            return ReadRouting.findOneAndReplace(secretsCollection(), session, Filters.eq("appId", appId), secretDoc, options);
+        } catch (MongoCommandException e) {
+            // Two upserts raced to create the document; the retry matches the winner and replaces it
+            if (e.getErrorCode() != DUPLICATE_KEY) throw e;
+            return ReadRouting.findOneAndReplace(secretsCollection(), session, Filters.eq("appId", appId), secretDoc, options);
+        }
+    }
+
+    // --- Coalesced lazy rotation ---
+
+    /**
+     * Runs the rotation once per appId on this node. Callers arriving while it is
+     * in flight wait for, and receive, the same result.
+     */
+    private AppSecret singleFlight(String appId, Supplier<AppSecret> rotation) {
+        CompletableFuture<AppSecret> mine = new CompletableFuture<>();
+        CompletableFuture<AppSecret> running = inFlight.putIfAbsent(appId, mine);
+
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException re) throw re;
+                throw e;
+            }
+        }
+
+        try {
+            AppSecret result = rotation.get();
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(appId, mine);
+        }
+    }
+
+    /**
+     * Conditional upsert: only inserts if no secret exists yet. When several nodes
+     * race, exactly one document survives and every node returns that one.
+     */
+    private AppSecret createIfAbsent(String appId, String entryPoint) {
+        SecretPolicy.Settings settings = policy.forApp(appId);
+        SecretMaterialPool.Material material = materialPool.take(settings.secretLength());
+        Binary encrypted = material.encrypted();
+        Instant createdAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        Instant expiresAt = createdAt.plusSeconds(settings.ttlSeconds());
+
+        Document stored;
+        try {
+            stored = readRouting.write(appId, session -> ReadRouting.findOneAndUpdate(secretsCollection(), session,
+                Filters.eq("appId", appId),
+                Updates.combine(
+                    Updates.setOnInsert("secret", encrypted),
+                    Updates.setOnInsert("createdAt", Date.from(createdAt)),
+                    Updates.setOnInsert("expireAt", Date.from(expiresAt))),
+                new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.AFTER)));
+        } catch (MongoCommandException e) {
+            // Two upserts raced on the unique appId index; the other one won
+            if (e.getErrorCode() != DUPLICATE_KEY) throw e;
+            stored = secretsCollection().find(Filters.eq("appId", appId)).first();
+            if (stored == null) return createIfAbsent(appId, entryPoint);
+        }
+
+        if (encrypted.equals(stored.get("secret", Binary.class))) {
+            systemRotation(appId, "lazy", entryPoint);
+            AppSecret created = new AppSecret(appId, material.raw(), createdAt, expiresAt);
+            remember(created);
+            return created;
         }
-        
-        System.out.println("⚠️ Creating new Data Key...");
-        return clientEncryption.createDataKey(kmsProviderName, 
-                new DataKeyOptions().keyAltNames(List.of(keyAltName))).asUuid();
+        // Another node issued the secret first: hand out theirs, not ours
+        return decryptAndCache(appId, stored);
     }
 
-    private Map<String, Map<String, Object>> loadMasterKey(String path) {
-        byte[] localMasterKey = new byte[96];
-        try (FileInputStream fis = new FileInputStream(new File(path))) {
-            if (fis.read(localMasterKey) < 96) throw new RuntimeException("Key too short!");
-        } catch (IOException e) {
-            throw new RuntimeException("Cannot load master key from: " + path, e);
+    /**
+     * Batch form of createIfAbsent(): candidates are encrypted in parallel and written
+     * as one unordered bulk of conditional upserts, then read back so that apps another
+     * node created in the meantime get that node's secret.
+     */
+    private void createAllIfAbsent(List<String> appIds, Map<String, AppSecret> found, Map<String, String> errors,
+                                   String entryPoint) {
+        Instant createdAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        Map<String, String> raws = new ConcurrentHashMap<>();
+        Map<String, Binary> candidates = new ConcurrentHashMap<>();
+        Map<String, Instant> expiries = new ConcurrentHashMap<>();
+
+        runInParallel(appIds, appId -> {
+            SecretPolicy.Settings settings = policy.forApp(appId);
+            SecretMaterialPool.Material material = materialPool.take(settings.secretLength());
+            expiries.put(appId, createdAt.plusSeconds(settings.ttlSeconds()));
+            candidates.put(appId, material.encrypted());
+            raws.put(appId, material.raw());
+        }, errors);
+        if (candidates.isEmpty()) return;
+
+        List<String> writeOrder = new ArrayList<>(candidates.keySet());
+        List<WriteModel<Document>> writes = new ArrayList<>();
+        for (String appId : writeOrder) {
+            writes.add(new UpdateOneModel<>(
+                Filters.eq("appId", appId),
+                Updates.combine(
+                    Updates.setOnInsert("secret", candidates.get(appId)),
+                    Updates.setOnInsert("createdAt", Date.from(createdAt)),
+                    Updates.setOnInsert("expireAt", Date.from(expiries.get(appId)))),
+                new UpdateOptions().upsert(true)));
+        }
+
+        try {
+            secretsCollection().bulkWrite(writes, new BulkWriteOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            for (BulkWriteError error : e.getWriteErrors()) {
+                // A duplicate key means another node won the race; its secret is read below
+                if (error.getCode() == DUPLICATE_KEY) continue;
+                String appId = writeOrder.get(error.getIndex());
+                candidates.remove(appId);
+                errors.put(appId, error.getMessage());
+            }
+        }
+
+        for (Document stored : secretsCollection().find(Filters.in("appId", candidates.keySet()))) {
+            String appId = stored.getString("appId");
+            try {
+                if (candidates.get(appId).equals(stored.get("secret", Binary.class))) {
+                    systemRotation(appId, "lazy", entryPoint);
+                    AppSecret created = new AppSecret(appId, raws.get(appId), createdAt, expiries.get(appId));
+                    remember(created);
+                    found.put(appId, created);
+                } else {
+                    found.put(appId, decryptAndCache(appId, stored));
+                }
+            } catch (Exception e) {
+                errors.put(appId, String.valueOf(e.getMessage()));
+            }
+        }
+    }
+
+    /**
+     * Runs task for every appId on the batch pool and waits for all of them.
+     * A failing task is recorded in errors instead of failing the batch.
+     */
+    private void runInParallel(Collection<String> appIds, Consumer<String> task, Map<String, String> errors) {
+        Map<String, Future<?>> futures = new HashMap<>();
+        for (String appId : appIds) {
+            futures.put(appId, batchExecutor.submit(() -> task.accept(appId)));
         }
-        Map<String, Map<String, Object>> kms = new HashMap<>();
-        kms.put(kmsProviderName, Map.of("key", localMasterKey));
-        return kms;
+        futures.forEach((appId, future) -> {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                errors.put(appId, String.valueOf(e.getCause().getMessage()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                errors.put(appId, "Interrupted");
+            }
+        });
+    }
+
+    /**
+     * Replaces a secret that could not be decrypted, but only if it is still the same
+     * ciphertext we failed on. If someone already replaced it, return their secret.
+     */
+    private AppSecret replaceUnreadable(String appId, Binary unreadable, String entryPoint) {
+        SecretPolicy.Settings settings = policy.forApp(appId);
+        SecretMaterialPool.Material material = materialPool.take(settings.secretLength());
+        Binary encrypted = material.encrypted();
+        Instant createdAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        Instant expiresAt = createdAt.plusSeconds(settings.ttlSeconds());
+
+        Document replaced = readRouting.write(appId, session -> ReadRouting.findOneAndUpdate(secretsCollection(), session,
+            Filters.and(Filters.eq("appId", appId), Filters.eq("secret", unreadable)),
+            Updates.combine(
+                Updates.set("secret", encrypted),
+                Updates.set("createdAt", Date.from(createdAt)),
+                Updates.set("expireAt", Date.from(expiresAt))),
+            new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER)));
+
+        if (replaced != null) {
+            systemRotation(appId, "decrypt_failure", entryPoint);
+            AppSecret rotated = new AppSecret(appId, material.raw(), createdAt, expiresAt);
+            remember(rotated);
+            return rotated;
+        }
+
+        Document current = secretsCollection().find(Filters.eq("appId", appId)).first();
+        if (current == null) return createIfAbsent(appId, entryPoint);
+        return decryptAndCache(appId, current);
+    }
+
+    // Every secret this node issues or reads is cached and has its expiry scheduled
+    private void remember(AppSecret secret) {
+        secretCache.put(secret);
+        leaseManager.track(secret.appId(), secret.createdAt(), secret.expiresAt());
+    }
+
+    private AppSecret decryptAndCache(String appId, Document doc) {
+        Timer.Sample stage = metrics.start();
+        String decryptedSecret = cryptoEngine.decrypt(doc.get("secret", Binary.class));
+        metrics.stop(stage, VaultMetrics.GET, "decrypt");
+        AppSecret secret = new AppSecret(appId, decryptedSecret, doc.getDate("createdAt").toInstant(), policy.expiresAt(doc));
+        remember(secret);
+        return secret;
     }
 
-    private String generateRandomString() {
-        byte[] bytes = new byte[32];
-        new SecureRandom().nextBytes(bytes);
-        return Base64.getEncoder().encodeToString(bytes);
+    // Primary: writes, and reads that must not be stale. Routed reads go through readRouting.forReads()
+    private MongoCollection<Document> secretsCollection() {
+        return mongoClient.getDatabase(dbName).getCollection(collName).withReadPreference(ReadPreference.primary());
     }
 
     @PreDestroy
     public void close() {
-        if (clientEncryption != null) clientEncryption.close();
-        if (regularClient != null) regularClient.close();
+        // The shared MongoClient is closed by Spring
+        if (batchExecutor != null) batchExecutor.shutdown();
     }
 }
\ No newline at end of file
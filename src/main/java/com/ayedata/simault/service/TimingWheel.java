@@ -0,0 +1,131 @@
+package com.ayedata.simault.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel, the layout Kafka uses for its request purgatory.
+ *
+ * The finest level has wheelSize buckets of tickMillis each. A deadline beyond its span goes
+ * to an overflow level whose tick is the whole span of the level below, and so on, so an hour
+ * of 1-second ticks needs two levels of 64 buckets instead of 3600. The non-empty buckets of
+ * every level sit in one queue ordered by expiration, so advancing the clock visits only the
+ * buckets that are due, never the empty ticks in between. When a coarse bucket comes due its
+ * entries are added again and fall to a finer level.
+ *
+ * An entry is handed out on the first advance at or after its deadline, and at most one tick
+ * after it; never before. Not thread-safe: the owner serializes add and advance.
+ */
+final class TimingWheel<K> {
+
+    record Entry<K>(K key, long deadline) {}
+
+    private static final class Bucket<K> {
+        private final List<Entry<K>> entries = new ArrayList<>();
+        private final boolean finest;
+        private long expiration = -1;
+
+        private Bucket(boolean finest) {
+            this.finest = finest;
+        }
+    }
+
+    // Earliest first; on a tie the finest bucket goes first, so a coarse bucket handing its
+    // entries down never finds the finest level holding a bucket that is already due
+    private static final Comparator<Bucket<?>> BY_EXPIRATION =
+            Comparator.<Bucket<?>>comparingLong(b -> b.expiration).thenComparing(b -> !b.finest);
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final long span;
+    private final boolean finest;
+    private final Bucket<K>[] buckets;
+    // Non-empty buckets of every level
+    private final PriorityQueue<Bucket<K>> queue;
+
+    private long currentTime;
+    private TimingWheel<K> overflow;
+    private int size;
+
+    TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        this(tickMillis, wheelSize, startMillis, true, new PriorityQueue<>(BY_EXPIRATION));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private TimingWheel(long tickMillis, int wheelSize, long startMillis, boolean finest, PriorityQueue<Bucket<K>> queue) {
+        if (tickMillis < 1 || wheelSize < 2) throw new IllegalArgumentException("tick must be >= 1 ms and wheel size >= 2");
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.span = tickMillis * wheelSize;
+        this.finest = finest;
+        this.queue = queue;
+        this.currentTime = startMillis - Math.floorMod(startMillis, tickMillis);
+        this.buckets = new Bucket[wheelSize];
+        for (int i = 0; i < wheelSize; i++) buckets[i] = new Bucket<>(finest);
+    }
+
+    /**
+     * Schedules key for deadline.
+     * @return false if the deadline has already passed; nothing is scheduled then
+     */
+    boolean add(K key, long deadline) {
+        if (!place(new Entry<>(key, deadline))) return false;
+        size++;
+        return true;
+    }
+
+    /** Moves the clock to now and hands every entry whose deadline has passed to expired. */
+    void advance(long now, Consumer<Entry<K>> expired) {
+        Bucket<K> bucket;
+        while ((bucket = queue.peek()) != null && bucket.expiration <= now) {
+            queue.poll();
+            advanceClock(bucket.expiration);
+            List<Entry<K>> entries = new ArrayList<>(bucket.entries);
+            bucket.entries.clear();
+            bucket.expiration = -1;
+            for (Entry<K> entry : entries) {
+                if (!place(entry)) {
+                    size--;
+                    expired.accept(entry);
+                }
+            }
+        }
+        advanceClock(now);
+    }
+
+    /** Entries scheduled and not yet handed out. */
+    int size() {
+        return size;
+    }
+
+    private boolean place(Entry<K> entry) {
+        if (entry.deadline() <= currentTime) return false;
+
+        if (entry.deadline() < currentTime + span) {
+            long virtualId = entry.deadline() / tickMillis;
+            Bucket<K> bucket = buckets[(int) (virtualId % wheelSize)];
+            bucket.entries.add(entry);
+            // The finest level fires once its whole tick has passed, so never early; coarser
+            // levels fire when their range starts, to hand the entries down in time
+            long expiration = (finest ? virtualId + 1 : virtualId) * tickMillis;
+            if (bucket.expiration != expiration) {
+                bucket.expiration = expiration;
+                queue.offer(bucket);
+            }
+            return true;
+        }
+
+        if (overflow == null) overflow = new TimingWheel<>(span, wheelSize, currentTime, false, queue);
+        return overflow.place(entry);
+    }
+
+    private void advanceClock(long time) {
+        if (time >= currentTime + tickMillis) {
+            currentTime = time - Math.floorMod(time, tickMillis);
+            if (overflow != null) overflow.advanceClock(currentTime);
+        }
+    }
+}
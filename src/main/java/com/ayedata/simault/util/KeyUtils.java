@@ -1,9 +1,13 @@
 package com.ayedata.simault.util;
 
+import org.bson.types.Binary;
+
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 public class KeyUtils {
     public static Map<String, Map<String, Object>> loadMasterKey(String path, String providerName) {
@@ -17,4 +21,10 @@ public class KeyUtils {
         kms.put(providerName, Map.of("key", localMasterKey));
         return kms;
     }
-}
\ No newline at end of file
+
+    // Key ids are stored as BSON Binary subtype 4 (standard UUID byte order)
+    public static UUID toUuid(Binary binary) {
+        ByteBuffer buffer = ByteBuffer.wrap(binary.getData());
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
@@ -0,0 +1,42 @@
+package com.ayedata.simault.util;
+
+import java.security.DrbgParameters;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+
+public class SecretUtils {
+
+    // One DRBG for the whole process: seeded once from the OS, then reseeded by the JDK.
+    // A new SecureRandom per call paid for seeding (and a trip to the entropy source) every time
+    private static final SecureRandom RANDOM = createRandom();
+
+    // 32 random bytes, Base64-encoded (44 characters)
+    public static String generateRandomString() {
+        return generateRandomString(32);
+    }
+
+    // length random bytes, Base64-encoded
+    public static String generateRandomString(int length) {
+        byte[] bytes = new byte[length];
+        RANDOM.nextBytes(bytes);
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+
+    // Version of a secret for ETag / If-None-Match: createdAt changes on every rotation
+    // and is stored with millisecond precision, so it identifies the value without revealing it
+    public static String versionTag(Instant createdAt) {
+        return "\"" + Long.toString(createdAt.toEpochMilli(), 36) + "\"";
+    }
+
+    private static SecureRandom createRandom() {
+        try {
+            // 256-bit strength to match the secrets; no prediction resistance, which would reseed on every call
+            return SecureRandom.getInstance("DRBG",
+                    DrbgParameters.instantiation(256, DrbgParameters.Capability.RESEED_ONLY, null));
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.ayedata.simault.reactive;
+
+import com.ayedata.simault.util.KeyUtils;
+import com.mongodb.ClientEncryptionSettings;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import com.mongodb.reactivestreams.client.vault.ClientEncryption;
+import com.mongodb.reactivestreams.client.vault.ClientEncryptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.web.reactive.config.BlockingExecutionConfigurer;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+/**
+ * Wiring for the reactive stack (built with -Dsimault.stack=reactive).
+ *
+ * The reactive MongoClient and ClientEncryption are built from the same
+ * vaultMongoClientSettings as the sync client, so pool sizing, concerns and pool metrics
+ * stay in one place. The sync client remains for the registry, leases and background jobs.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveMongoConfig implements WebFluxConfigurer {
+
+    @Value("${vault.security.kms-provider}")
+    private String kmsProviderName;
+    @Value("${vault.security.master-key-path}")
+    private String masterKeyPath;
+
+    // Blocking controller methods (AdminController) are moved off the event loop onto these
+    @Value("${vault.reactive.blocking.max-threads:64}")
+    private int blockingMaxThreads;
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Bean(destroyMethod = "close")
+    public MongoClient reactiveMongoClient(MongoClientSettings vaultMongoClientSettings) {
+        return MongoClients.create(vaultMongoClientSettings);
+    }
+
+    @Bean(destroyMethod = "close")
+    public ClientEncryption reactiveClientEncryption(MongoClientSettings vaultMongoClientSettings) {
+        return ClientEncryptions.create(ClientEncryptionSettings.builder()
+                .keyVaultMongoClientSettings(vaultMongoClientSettings)
+                .keyVaultNamespace("encryption.__keyVault")
+                .kmsProviders(KeyUtils.loadMasterKey(masterKeyPath, kmsProviderName))
+                .build());
+    }
+
+    @Override
+    public void configureBlockingExecution(BlockingExecutionConfigurer configurer) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("blocking-");
+        executor.setVirtualThreads(virtualThreads);
+        executor.setConcurrencyLimit(blockingMaxThreads);
+        configurer.setExecutor(executor);
+    }
+}
@@ -0,0 +1,178 @@
+package com.ayedata.simault.reactive;
+
+import com.ayedata.simault.audit.AuditLog;
+import com.ayedata.simault.metrics.VaultMetrics;
+import com.ayedata.simault.model.AppSecret;
+import com.ayedata.simault.model.AuditEvent;
+import com.ayedata.simault.model.BatchSecretRequest;
+import com.ayedata.simault.model.BatchSecretResponse;
+import com.ayedata.simault.model.SecretChangeEvent;
+import com.ayedata.simault.service.SecretChangeNotifier;
+import com.ayedata.simault.service.SecretChangeSink;
+import com.ayedata.simault.util.SecretUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+/**
+ * WebFlux version of SecretController: same paths, same responses, same 403 for
+ * unregistered apps (via GlobalExceptionHandler).
+ */
+@RestController
+@RequestMapping("/api/secrets")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveSecretController {
+
+    private static final Logger logger = LogManager.getLogger(ReactiveSecretController.class);
+
+    private final ReactiveSecretVaultService vaultService;
+    private final SecretChangeNotifier notifier;
+    private final VaultMetrics metrics;
+    private final AuditLog audit;
+
+    @Value("${vault.batch.max-size:100}")
+    private int maxBatchSize;
+
+    public ReactiveSecretController(ReactiveSecretVaultService vaultService, SecretChangeNotifier notifier,
+                                    VaultMetrics metrics, AuditLog audit) {
+        this.vaultService = vaultService;
+        this.notifier = notifier;
+        this.metrics = metrics;
+        this.audit = audit;
+    }
+
+    /**
+     * Same conditional GET as SecretController: a matching If-None-Match gets a 304
+     * from the version lookup alone.
+     */
+    @GetMapping("/{appId}")
+    public Mono<ResponseEntity<AppSecret>> getSecret(@PathVariable String appId, ServerWebExchange exchange) {
+        logger.info("Request received to retrieve secret for appId: {}", appId);
+
+        Mono<ResponseEntity<AppSecret>> full = Mono.defer(() -> vaultService.getAppSecret(appId))
+            .doOnNext(secret -> {
+                logger.info("Secret successfully retrieved for appId: {}", appId);
+                audit.record(AuditEvent.SECRET_READ, AuditEvent.REST, appId, AuditEvent.SUCCESS);
+            })
+            .map(secret -> ResponseEntity.ok()
+                .eTag(SecretUtils.versionTag(secret.createdAt()))
+                .cacheControl(CacheControl.noStore())
+                .body(secret));
+
+        Mono<ResponseEntity<AppSecret>> response = exchange.getRequest().getHeaders().getIfNoneMatch().isEmpty()
+            ? full
+            : vaultService.findSecretVersion(appId)
+                .map(SecretUtils::versionTag)
+                .filter(exchange::checkNotModified)
+                .map(etag -> {
+                    logger.info("Secret unchanged for appId: {}", appId);
+                    audit.record(AuditEvent.SECRET_READ, AuditEvent.REST, appId, AuditEvent.SUCCESS, "not_modified");
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).<AppSecret>build();
+                })
+                .switchIfEmpty(full);
+
+        return response.doOnError(e -> logFailure(AuditEvent.SECRET_READ, "retrieve", appId, e));
+    }
+
+    @PostMapping("/{appId}/rotate")
+    public Mono<AppSecret> rotateSecret(@PathVariable String appId) {
+        logger.warn("Manual secret rotation requested for appId: {}", appId);
+
+        return vaultService.rotateSecret(appId)
+            .doOnNext(secret -> {
+                logger.info("Secret successfully rotated for appId: {}", appId);
+                audit.record(AuditEvent.SECRET_ROTATE, AuditEvent.REST, appId, AuditEvent.SUCCESS, "manual");
+            })
+            .doOnError(e -> logFailure(AuditEvent.SECRET_ROTATE, "rotate", appId, e));
+    }
+
+    @PostMapping("/batch")
+    public Mono<ResponseEntity<BatchSecretResponse>> getSecrets(@RequestBody BatchSecretRequest request) {
+        if (request == null || request.appIds() == null || request.appIds().isEmpty()) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        if (request.appIds().size() > maxBatchSize) {
+            logger.warn("Batch secret request rejected: {} appIds exceeds limit of {}", request.appIds().size(), maxBatchSize);
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+
+        logger.info("Batch request received to retrieve secrets for {} apps", request.appIds().size());
+
+        return vaultService.getAppSecrets(request.appIds())
+            .doOnNext(response -> {
+                logger.info("Batch retrieval complete: {} succeeded, {} failed",
+                    response.secrets().size(), response.errors().size());
+                audit.recordBatch(AuditEvent.REST, response);
+            })
+            .map(ResponseEntity::ok);
+    }
+
+    /**
+     * Same stream as SecretController's watch endpoint. The notifier's bounded queue
+     * already drops the oldest events for slow clients; LATEST keeps Reactor from buffering more.
+     */
+    @GetMapping(value = "/{appId}/watch", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<SecretChangeEvent>> watchSecret(
+            @PathVariable String appId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        logger.info("Watch requested for appId: {}", appId);
+
+        if (!notifier.isEnabled()) return Flux.empty();
+
+        return vaultService.findSecretVersion(appId)
+            .map(Optional::of)
+            .defaultIfEmpty(Optional.empty())
+            .doOnError(e -> logFailure(AuditEvent.SECRET_WATCH, "watch", appId, e))
+            .doOnNext(current -> audit.record(AuditEvent.SECRET_WATCH, AuditEvent.REST, appId, AuditEvent.SUCCESS))
+            .flatMapMany(current -> Flux.<ServerSentEvent<SecretChangeEvent>>create(out -> {
+                SecretChangeNotifier.Subscription subscription = notifier.subscribe(appId, new SecretChangeSink() {
+                    @Override
+                    public void send(SecretChangeEvent event) {
+                        ServerSentEvent.Builder<SecretChangeEvent> sse = ServerSentEvent.builder(event).event(event.type());
+                        if (event.version() != null) sse.id(event.version());
+                        out.next(sse.build());
+                    }
+
+                    @Override
+                    public void keepAlive() {
+                        out.next(ServerSentEvent.<SecretChangeEvent>builder().comment("keep-alive").build());
+                    }
+
+                    @Override
+                    public void close() {
+                        out.complete();
+                    }
+                });
+                out.onDispose(subscription::close);
+
+                current.map(SecretUtils::versionTag)
+                    .filter(version -> !version.equals(lastEventId))
+                    .ifPresent(version -> subscription.offer(
+                        new SecretChangeEvent(appId, SecretChangeEvent.ROTATED, version, current.get())));
+            }, FluxSink.OverflowStrategy.LATEST));
+    }
+
+    private void logFailure(String auditAction, String action, String appId, Throwable e) {
+        if (e instanceof IllegalArgumentException) {
+            metrics.denied(VaultMetrics.REST);
+            audit.record(auditAction, AuditEvent.REST, appId, AuditEvent.DENIED);
+            logger.warn("Access denied for appId: {}", appId);
+        } else {
+            audit.record(auditAction, AuditEvent.REST, appId, AuditEvent.ERROR);
+            logger.error("Failed to {} secret for appId: {}", action, appId, e);
+        }
+    }
+}
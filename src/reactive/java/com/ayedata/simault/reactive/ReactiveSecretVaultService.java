@@ -0,0 +1,464 @@
+package com.ayedata.simault.reactive;
+
+import com.ayedata.simault.audit.AuditLog;
+import com.ayedata.simault.config.ReadRouting;
+import com.ayedata.simault.crypto.CorruptCiphertextException;
+import com.ayedata.simault.crypto.CryptoCircuitBreaker;
+import com.ayedata.simault.crypto.CryptoEngine;
+import com.ayedata.simault.crypto.CryptoUnavailableException;
+import com.ayedata.simault.metrics.VaultMetrics;
+import com.ayedata.simault.model.AppSecret;
+import com.ayedata.simault.model.AuditEvent;
+import com.ayedata.simault.model.BatchSecretResponse;
+import com.ayedata.simault.repository.AppRegistryRepository;
+import com.ayedata.simault.service.SecretCache;
+import com.ayedata.simault.service.SecretLeaseManager;
+import com.ayedata.simault.service.SecretMaterialPool;
+import com.ayedata.simault.service.SecretPolicy;
+import com.ayedata.simault.util.SecretUtils;
+import com.mongodb.MongoCommandException;
+import com.mongodb.ReadPreference;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndReplaceOptions;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.vault.EncryptOptions;
+import com.mongodb.reactivestreams.client.ClientSession;
+import com.mongodb.reactivestreams.client.FindPublisher;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.vault.ClientEncryption;
+import io.micrometer.core.instrument.Timer;
+import org.bson.BsonBinary;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.Binary;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking twin of SecretVaultService on the reactive-streams driver.
+ * Same documents, same rules: allowlist check, cache, find + decrypt, and a lazy rotation
+ * that is coalesced per app and settled by a conditional upsert. Nothing here blocks an
+ * event-loop thread; crypto runs inline only when the engine is in-process, otherwise
+ * through the reactive ClientEncryption.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveSecretVaultService {
+
+    // --- Configuration ---
+    @Value("${vault.mongodb.database}") private String dbName;
+    @Value("${vault.mongodb.collection}") private String collName;
+    @Value("${vault.batch.parallelism:8}") private int batchParallelism;
+
+    // --- Dependencies ---
+    private final MongoClient mongoClient;
+    private final ClientEncryption clientEncryption;
+    private final CryptoEngine cryptoEngine;
+    private final AppRegistryRepository appRegistry;
+    private final SecretCache secretCache;
+    private final SecretMaterialPool materialPool;
+    private final VaultMetrics metrics;
+    private final AuditLog audit;
+    private final ReadRouting readRouting;
+    private final CryptoCircuitBreaker cryptoBreaker;
+    private final SecretLeaseManager leaseManager;
+    private final SecretPolicy policy;
+
+    // appId -> rotation currently running on this node
+    private final ConcurrentHashMap<String, CompletableFuture<AppSecret>> inFlight = new ConcurrentHashMap<>();
+    private static final int DUPLICATE_KEY = 11000;
+
+    public ReactiveSecretVaultService(MongoClient reactiveMongoClient, ClientEncryption reactiveClientEncryption,
+                                      CryptoEngine cryptoEngine, AppRegistryRepository appRegistry,
+                                      SecretCache secretCache, SecretMaterialPool materialPool, VaultMetrics metrics,
+                                      AuditLog audit, ReadRouting readRouting, CryptoCircuitBreaker cryptoBreaker,
+                                      SecretLeaseManager leaseManager, SecretPolicy policy) {
+        this.mongoClient = reactiveMongoClient;
+        this.clientEncryption = reactiveClientEncryption;
+        this.cryptoEngine = cryptoEngine;
+        this.appRegistry = appRegistry;
+        this.secretCache = secretCache;
+        this.materialPool = materialPool;
+        this.metrics = metrics;
+        this.audit = audit;
+        this.readRouting = readRouting;
+        this.cryptoBreaker = cryptoBreaker;
+        this.leaseManager = leaseManager;
+        this.policy = policy;
+    }
+
+    public Mono<AppSecret> getAppSecret(String appId) {
+        return Mono.defer(() -> {
+            Timer.Sample total = metrics.start();
+            return requireAllowed(appId)
+                .then(Mono.defer(() -> {
+                    AppSecret cached = secretCache.get(appId);
+                    if (cached != null) return Mono.just(cached);
+
+                    return routedRead(appId, session -> find(readSecrets(), session, Filters.eq("appId", appId)).first())
+                        // A lagging secondary may not have it yet; only the primary can say it is missing
+                        .switchIfEmpty(Mono.defer(() -> readRouting.isSecondary()
+                            ? Mono.from(secretsCollection().find(Filters.eq("appId", appId)).first())
+                            : Mono.empty()))
+                        .flatMap(doc -> {
+                            Instant createdAt = doc.getDate("createdAt").toInstant();
+                            // Past its lifetime but not removed yet: never handed out
+                            return leaseManager.isExpired(policy.expiresAt(doc))
+                                ? singleFlight(appId, () -> replaceExpired(appId, createdAt))
+                                : readable(appId, doc);
+                        })
+                        // Expired or never issued: one lazy rotation per app, shared by every waiter
+                        .switchIfEmpty(Mono.defer(() -> singleFlight(appId, () -> createIfAbsent(appId))));
+                }))
+                .doFinally(signal -> metrics.stop(total, VaultMetrics.GET, "total"));
+        });
+    }
+
+    /** Decrypts a stored secret; only a value that can never decrypt is replaced, key vault trouble propagates. */
+    private Mono<AppSecret> readable(String appId, Document doc) {
+        return decryptAndCache(appId, doc)
+            .onErrorResume(CorruptCiphertextException.class, e -> {
+                Binary unreadable = doc.get("secret", Binary.class);
+                return singleFlight(appId, () -> replaceUnreadable(appId, unreadable));
+            });
+    }
+
+    /**
+     * Metadata-only lookup for conditional GETs, as in SecretVaultService: createdAt from
+     * the cache or a createdAt + expireAt projection covered by the { appId, createdAt,
+     * expireAt } index. Empty if no secret exists yet or it has expired.
+     */
+    public Mono<Instant> findSecretVersion(String appId) {
+        return requireAllowed(appId).then(Mono.defer(() -> {
+            AppSecret cached = secretCache.get(appId);
+            if (cached != null) return Mono.just(cached.createdAt());
+
+            return routedRead(appId, session -> find(readSecrets(), session, Filters.eq("appId", appId))
+                    .projection(Projections.fields(Projections.include("createdAt", "expireAt"), Projections.excludeId()))
+                    .first())
+                .filter(meta -> meta.getDate("createdAt") != null)
+                // An expired secret has no current version; getAppSecret() replaces it
+                .filter(meta -> !leaseManager.isExpired(policy.expiresAt(meta)))
+                .map(meta -> meta.getDate("createdAt").toInstant());
+        }));
+    }
+
+    /**
+     * Batch retrieval: each app goes through getAppSecret(), at most
+     * vault.batch.parallelism at a time. Failures are reported per appId.
+     */
+    public Mono<BatchSecretResponse> getAppSecrets(Collection<String> requestedIds) {
+        Map<String, AppSecret> secrets = new ConcurrentHashMap<>();
+        Map<String, String> errors = new ConcurrentHashMap<>();
+
+        return Flux.fromIterable(new LinkedHashSet<>(requestedIds))
+            .flatMap(appId -> getAppSecret(appId)
+                .doOnNext(secret -> secrets.put(appId, secret))
+                .onErrorResume(e -> {
+                    errors.put(appId, e instanceof IllegalArgumentException
+                        ? "Application is not registered" : String.valueOf(e.getMessage()));
+                    return Mono.empty();
+                }), batchParallelism)
+            .then(Mono.fromSupplier(() -> {
+                // Keep the caller's order in the response
+                Map<String, AppSecret> ordered = new LinkedHashMap<>();
+                Map<String, String> failures = new LinkedHashMap<>();
+                for (String appId : new LinkedHashSet<>(requestedIds)) {
+                    if (secrets.containsKey(appId)) ordered.put(appId, secrets.get(appId));
+                    else failures.put(appId, errors.getOrDefault(appId, "Secret could not be retrieved"));
+                }
+                return new BatchSecretResponse(ordered, failures);
+            }));
+    }
+
+    public Mono<AppSecret> rotateSecret(String appId) {
+        return requireAllowed(appId)
+            .then(Mono.defer(() -> {
+                secretCache.invalidate(appId);
+                Instant createdAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+                return settings(appId).flatMap(settings -> material(settings).flatMap(material -> {
+                    Instant expiresAt = createdAt.plusSeconds(settings.ttlSeconds());
+                    return trackedWrite(appId, session -> replaceSecret(session, appId, new Document()
+                            .append("appId", appId)
+                            .append("secret", material.encrypted())
+                            .append("createdAt", Date.from(createdAt))
+                            .append("expireAt", Date.from(expiresAt))))
+                        .map(stored -> {
+                            metrics.rotation("manual", VaultMetrics.REST);
+                            AppSecret rotated = new AppSecret(appId, material.raw(), stored.getDate("createdAt").toInstant(), expiresAt);
+                            remember(rotated);
+                            return rotated;
+                        });
+                }));
+            }));
+    }
+
+    // --- Helpers ---
+
+    /**
+     * Completes empty if the app is registered, errors with IllegalArgumentException
+     * (mapped to 403) if not. Only goes to MongoDB when the allowlist snapshot is stale.
+     */
+    private Mono<Void> requireAllowed(String appId) {
+        Mono<Boolean> allowed = appRegistry.isAppAllowedFromSnapshot(appId)
+            .map(Mono::just)
+            .orElseGet(() -> routedRead(ReadRouting.REGISTRY, session -> {
+                    MongoCollection<Document> apps = mongoClient.getDatabase(dbName).getCollection("allowed_apps")
+                        .withReadPreference(readRouting.readPreference());
+                    return session == null
+                        ? apps.countDocuments(Filters.eq("appId", appId))
+                        : apps.countDocuments(session, Filters.eq("appId", appId));
+                })
+                .map(count -> count > 0));
+
+        return allowed.flatMap(ok -> ok
+            ? Mono.<Void>empty()
+            : Mono.error(new IllegalArgumentException("❌ Access Denied: Application '" + appId + "' is not registered. Please contact Admin.")));
+    }
+
+    /**
+     * Runs the rotation once per appId on this node; subscribers arriving while it is in
+     * flight share the result. A subscriber cancelling does not cancel it for the others.
+     */
+    private Mono<AppSecret> singleFlight(String appId, Supplier<Mono<AppSecret>> rotation) {
+        return Mono.defer(() -> {
+            CompletableFuture<AppSecret> flight = inFlight.computeIfAbsent(appId, id -> rotation.get().toFuture());
+            flight.whenComplete((secret, error) -> inFlight.remove(appId, flight));
+            return Mono.fromFuture(flight, true);
+        });
+    }
+
+    /** Conditional upsert, as in SecretVaultService: exactly one node's secret survives. */
+    private Mono<AppSecret> createIfAbsent(String appId) {
+        Instant createdAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+        return settings(appId).flatMap(settings -> material(settings).flatMap(material -> {
+            Instant expiresAt = createdAt.plusSeconds(settings.ttlSeconds());
+            return trackedWrite(appId, session -> findOneAndUpdate(session,
+                Filters.eq("appId", appId),
+                Updates.combine(
+                    Updates.setOnInsert("secret", material.encrypted()),
+                    Updates.setOnInsert("createdAt", Date.from(createdAt)),
+                    Updates.setOnInsert("expireAt", Date.from(expiresAt))),
+                new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.AFTER)))
+                // Two upserts raced on the unique appId index; the other one won
+                .onErrorResume(MongoCommandException.class, e -> e.getErrorCode() == DUPLICATE_KEY
+                    ? Mono.from(secretsCollection().find(Filters.eq("appId", appId)).first())
+                    : Mono.error(e))
+                .flatMap(stored -> {
+                    if (material.encrypted().equals(stored.get("secret", Binary.class))) {
+                        systemRotation(appId, "lazy");
+                        AppSecret created = new AppSecret(appId, material.raw(), createdAt, expiresAt);
+                        remember(created);
+                        return Mono.just(created);
+                    }
+                    // Another node issued the secret first: hand out theirs, not ours
+                    return decryptAndCache(appId, stored);
+                })
+                .switchIfEmpty(Mono.defer(() -> createIfAbsent(appId)));
+        }));
+    }
+
+    private Mono<AppSecret> replaceUnreadable(String appId, Binary unreadable) {
+        Instant createdAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+        return settings(appId).flatMap(settings -> material(settings).flatMap(material -> {
+            Instant expiresAt = createdAt.plusSeconds(settings.ttlSeconds());
+            return trackedWrite(appId, session -> findOneAndUpdate(session,
+                Filters.and(Filters.eq("appId", appId), Filters.eq("secret", unreadable)),
+                Updates.combine(
+                    Updates.set("secret", material.encrypted()),
+                    Updates.set("createdAt", Date.from(createdAt)),
+                    Updates.set("expireAt", Date.from(expiresAt))),
+                new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER)))
+                .map(replaced -> {
+                    systemRotation(appId, "decrypt_failure");
+                    AppSecret rotated = new AppSecret(appId, material.raw(), createdAt, expiresAt);
+                    remember(rotated);
+                    return rotated;
+                })
+                // Someone replaced it first: return theirs
+                .switchIfEmpty(Mono.defer(() -> Mono.from(secretsCollection().find(Filters.eq("appId", appId)).first())
+                    .flatMap(current -> decryptAndCache(appId, current))
+                    .switchIfEmpty(Mono.defer(() -> createIfAbsent(appId)))));
+        }));
+    }
+
+    /** As in SecretVaultService: replace a secret found past its lifetime, unless someone already did. */
+    private Mono<AppSecret> replaceExpired(String appId, Instant expiredCreatedAt) {
+        Instant createdAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+        return settings(appId).flatMap(settings -> material(settings).flatMap(material -> {
+            Instant expiresAt = createdAt.plusSeconds(settings.ttlSeconds());
+            return trackedWrite(appId, session -> findOneAndReplace(session,
+                Filters.and(Filters.eq("appId", appId), Filters.eq("createdAt", Date.from(expiredCreatedAt))),
+                new Document()
+                    .append("appId", appId)
+                    .append("secret", material.encrypted())
+                    .append("createdAt", Date.from(createdAt))
+                    .append("expireAt", Date.from(expiresAt)),
+                new FindOneAndReplaceOptions().returnDocument(ReturnDocument.AFTER)))
+                .map(replaced -> {
+                    systemRotation(appId, "lazy");
+                    AppSecret rotated = new AppSecret(appId, material.raw(), createdAt, expiresAt);
+                    remember(rotated);
+                    return rotated;
+                })
+                .switchIfEmpty(Mono.defer(() -> Mono.from(secretsCollection().find(Filters.eq("appId", appId)).first())
+                    .flatMap(current -> decryptAndCache(appId, current))
+                    .switchIfEmpty(Mono.defer(() -> createIfAbsent(appId)))));
+        }));
+    }
+
+    // Every secret this node issues or reads is cached and has its expiry scheduled
+    private void remember(AppSecret secret) {
+        secretCache.put(secret);
+        leaseManager.track(secret.appId(), secret.createdAt(), secret.expiresAt());
+    }
+
+    // This stack only serves REST, so every rotation it triggers comes from there
+    private void systemRotation(String appId, String trigger) {
+        metrics.rotation(trigger, VaultMetrics.REST);
+        audit.record(AuditEvent.SECRET_ROTATE, AuditEvent.SYSTEM, appId, AuditEvent.SUCCESS, trigger);
+    }
+
+    private Mono<Document> replaceSecret(ClientSession session, String appId, Document secretDoc) {
+        FindOneAndReplaceOptions options = new FindOneAndReplaceOptions().upsert(true).returnDocument(ReturnDocument.AFTER);
+        Mono<Document> replace = Mono.defer(() ->
+            Mono.from(findOneAndReplace(session, Filters.eq("appId", appId), secretDoc, options)));
+        // Two upserts raced to create the document; the retry matches the winner and replaces it
+        return replace.onErrorResume(MongoCommandException.class,
+            e -> e.getErrorCode() == DUPLICATE_KEY ? replace : Mono.error(e));
+    }
+
+    private Mono<AppSecret> decryptAndCache(String appId, Document doc) {
+        return decrypt(doc.get("secret", Binary.class)).map(decryptedSecret -> {
+            AppSecret secret = new AppSecret(appId, decryptedSecret, doc.getDate("createdAt").toInstant(), policy.expiresAt(doc));
+            remember(secret);
+            return secret;
+        });
+    }
+
+    /**
+     * TTL and secret length for appId's next secret. The registry lookup behind a stale
+     * allowlist snapshot blocks, so it runs off the event loop.
+     */
+    private Mono<SecretPolicy.Settings> settings(String appId) {
+        return Mono.defer(() -> policy.forAppFromSnapshot(appId).map(Mono::just)
+            .orElseGet(() -> Mono.fromCallable(() -> policy.forApp(appId)).subscribeOn(Schedulers.boundedElastic())));
+    }
+
+    /**
+     * A pooled secret if one is ready; otherwise a fresh one, encrypted without blocking
+     * (inline only when the engine is in-process, else through the reactive ClientEncryption).
+     */
+    private Mono<SecretMaterialPool.Material> material(SecretPolicy.Settings settings) {
+        return Mono.defer(() -> materialPool.poll(settings.secretLength()).map(Mono::just).orElseGet(() -> {
+            String raw = SecretUtils.generateRandomString(settings.secretLength());
+            UUID keyId = cryptoEngine.activeKeyId();
+            if (cryptoEngine.isInProcess()) {
+                return Mono.fromCallable(() -> new SecretMaterialPool.Material(raw, cryptoEngine.encrypt(raw), keyId));
+            }
+            return Mono.fromRunnable(cryptoBreaker::acquire)
+                .then(Mono.from(clientEncryption.encrypt(new BsonString(raw),
+                    new EncryptOptions(CryptoEngine.ALGORITHM).keyId(new BsonBinary(keyId)))))
+                .doOnNext(encrypted -> cryptoBreaker.onSuccess())
+                .doOnError(e -> !(e instanceof CryptoUnavailableException), cryptoBreaker::onFailure)
+                .map(encrypted -> new SecretMaterialPool.Material(
+                    raw, new Binary(encrypted.getType(), encrypted.getData()), keyId));
+        }));
+    }
+
+    /**
+     * The reactive ClientEncryption cannot tell corrupt ciphertext from key vault trouble, so
+     * a failure is retried once through the blocking engine (off the event loop), which
+     * classifies it and records the outcome in the breaker.
+     */
+    private Mono<String> decrypt(Binary ciphertext) {
+        if (cryptoEngine.isInProcess()) {
+            return Mono.fromCallable(() -> cryptoEngine.decrypt(ciphertext));
+        }
+        return Mono.fromRunnable(cryptoBreaker::acquire)
+            .then(Mono.from(clientEncryption.decrypt(new BsonBinary(ciphertext.getType(), ciphertext.getData()))))
+            .map(value -> value.asString().getValue())
+            .doOnNext(value -> cryptoBreaker.onSuccess())
+            .onErrorResume(e -> !(e instanceof CryptoUnavailableException),
+                e -> Mono.fromCallable(() -> cryptoEngine.decrypt(ciphertext)).subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    // Primary, as in SecretVaultService; routed lookups use readSecrets()
+    private MongoCollection<Document> secretsCollection() {
+        return mongoClient.getDatabase(dbName).getCollection(collName).withReadPreference(ReadPreference.primary());
+    }
+
+    private MongoCollection<Document> readSecrets() {
+        return secretsCollection().withReadPreference(readRouting.readPreference());
+    }
+
+    /**
+     * A read in a causally consistent session that starts after the writes marked for key
+     * (see ReadRouting). On the primary no session is opened and query gets null.
+     */
+    private <T> Mono<T> routedRead(String key, Function<ClientSession, Publisher<T>> query) {
+        if (!readRouting.isSecondary()) return Mono.defer(() -> Mono.from(query.apply(null)));
+        return Mono.usingWhen(mongoClient.startSession(ReadRouting.CAUSAL),
+            session -> {
+                readRouting.advance(session, List.of(key));
+                return Mono.from(query.apply(session));
+            },
+            session -> Mono.fromRunnable(session::close));
+    }
+
+    /** A write whose point in time is recorded under key for later routed reads; sessionless on the primary. */
+    private <T> Mono<T> trackedWrite(String key, Function<ClientSession, Publisher<T>> command) {
+        if (!readRouting.isSecondary()) return Mono.defer(() -> Mono.from(command.apply(null)));
+        return Mono.usingWhen(mongoClient.startSession(ReadRouting.CAUSAL),
+            session -> Mono.from(command.apply(session)).doOnSuccess(result -> readRouting.remember(key, session)),
+            session -> Mono.fromRunnable(session::close));
+    }
+
+    // --- Operations with an optional session, as in ReadRouting ---
+
+    private static FindPublisher<Document> find(MongoCollection<Document> collection, ClientSession session, Bson filter) {
+        return session == null ? collection.find(filter) : collection.find(session, filter);
+    }
+
+    private Publisher<Document> findOneAndUpdate(ClientSession session, Bson filter, Bson update,
+                                                 FindOneAndUpdateOptions options) {
+        return session == null
+            ? secretsCollection().findOneAndUpdate(filter, update, options)
+            : secretsCollection().findOneAndUpdate(session, filter, update, options);
+    }
+
+    private Publisher<Document> findOneAndReplace(ClientSession session, Bson filter, Document replacement,
+                                                  FindOneAndReplaceOptions options) {
+        return session == null
+            ? secretsCollection().findOneAndReplace(filter, replacement, options)
+            : secretsCollection().findOneAndReplace(session, filter, replacement, options);
+    }
+}
@@ -0,0 +1,71 @@
+package com.ayedata.simault.crypto;
+
+import com.mongodb.MongoClientException;
+import com.mongodb.client.model.vault.EncryptOptions;
+import com.mongodb.client.vault.ClientEncryption;
+import org.bson.BsonBinary;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.types.Binary;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ClientEncryptionCryptoEngineTest {
+
+    private final UUID keyId = UUID.randomUUID();
+    private final ClientEncryption clientEncryption = mock(ClientEncryption.class);
+    private final ClientEncryptionCryptoEngine engine = new ClientEncryptionCryptoEngine(clientEncryption, keyId);
+
+    @Test
+    void rejectsMalformedCiphertextWithoutTouchingTheKeyVault() {
+        // Wrong subtype marker, then an AEAD part that is not IV | blocks | tag
+        assertThrows(CorruptCiphertextException.class, () -> engine.decrypt(ciphertext((byte) 9, 64)));
+        assertThrows(CorruptCiphertextException.class, () -> engine.decrypt(ciphertext((byte) 1, 63)));
+        assertThrows(CorruptCiphertextException.class, () -> engine.decrypt(ciphertext((byte) 1, 70)));
+
+        verifyNoInteractions(clientEncryption);
+    }
+
+    @Test
+    void probesTheKeyOnceForABurstOfFailures() {
+        BsonBinary probe = new BsonBinary((byte) 6, new byte[] {1});
+        when(clientEncryption.decrypt(any(BsonBinary.class))).thenAnswer(call -> {
+            if (call.getArgument(0) == probe) return new BsonString("simault-key-probe");
+            throw new MongoClientException("HMAC validation failure");
+        });
+        when(clientEncryption.encrypt(any(BsonValue.class), any(EncryptOptions.class))).thenReturn(probe);
+
+        for (int i = 0; i < 5; i++) {
+            assertThrows(CorruptCiphertextException.class, () -> engine.decrypt(ciphertext((byte) 1, 80)));
+        }
+
+        verify(clientEncryption, times(1)).encrypt(any(BsonValue.class), any(EncryptOptions.class));
+    }
+
+    @Test
+    void keyVaultTroubleIsNotCorruption() {
+        when(clientEncryption.decrypt(any(BsonBinary.class))).thenThrow(new MongoClientException("key vault unreachable"));
+        when(clientEncryption.encrypt(any(BsonValue.class), any(EncryptOptions.class)))
+            .thenThrow(new MongoClientException("key vault unreachable"));
+
+        // Propagated as is, so nothing rotates over a secret that is fine
+        MongoClientException e = assertThrows(MongoClientException.class, () -> engine.decrypt(ciphertext((byte) 1, 80)));
+        assertEquals("key vault unreachable", e.getMessage());
+    }
+
+    /** subtype | key UUID | string type | aeadLength bytes of AEAD output */
+    private Binary ciphertext(byte subtype, int aeadLength) {
+        ByteBuffer data = ByteBuffer.allocate(18 + aeadLength)
+            .put(subtype)
+            .putLong(keyId.getMostSignificantBits())
+            .putLong(keyId.getLeastSignificantBits())
+            .put((byte) 0x02);
+        return new Binary((byte) 6, data.array());
+    }
+}
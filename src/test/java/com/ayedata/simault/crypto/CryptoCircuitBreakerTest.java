@@ -0,0 +1,109 @@
+package com.ayedata.simault.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CryptoCircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    // Window of 10, opens at 50% once 4 outcomes are in, 30 s open, 2 probes
+    private final CryptoCircuitBreaker breaker = new CryptoCircuitBreaker(10, 4, 50, 30_000, 2, now::get);
+
+    @Test
+    void opensAtTheFailureRateAndFailsFast() {
+        breaker.call(() -> "ok");
+        breaker.call(() -> "ok");
+        fail(1);
+        assertEquals(CryptoCircuitBreaker.State.CLOSED, breaker.state());
+
+        fail(1);
+        assertEquals(CryptoCircuitBreaker.State.OPEN, breaker.state());
+
+        CryptoUnavailableException rejected = assertThrows(CryptoUnavailableException.class,
+            () -> breaker.call(() -> "never runs"));
+        assertEquals(30, rejected.retryAfterSeconds());
+        assertEquals(1, breaker.rejectedCalls());
+    }
+
+    @Test
+    void corruptCiphertextDoesNotCountAsAFailure() {
+        for (int i = 0; i < 10; i++) {
+            assertThrows(CorruptCiphertextException.class, () -> breaker.call(() -> {
+                throw new CorruptCiphertextException("HMAC validation failure");
+            }));
+        }
+
+        assertEquals(CryptoCircuitBreaker.State.CLOSED, breaker.state());
+        assertEquals(0, breaker.failureRate());
+    }
+
+    @Test
+    void closesAfterTheHalfOpenProbesSucceed() {
+        fail(4);
+        now.addAndGet(30_000);
+
+        breaker.call(() -> "probe");
+        assertEquals(CryptoCircuitBreaker.State.HALF_OPEN, breaker.state());
+        breaker.call(() -> "probe");
+
+        assertEquals(CryptoCircuitBreaker.State.CLOSED, breaker.state());
+        assertEquals(0, breaker.failureRate());
+    }
+
+    @Test
+    void reopensWhenAProbeFails() {
+        fail(4);
+        now.addAndGet(30_000);
+
+        fail(1);
+
+        assertEquals(CryptoCircuitBreaker.State.OPEN, breaker.state());
+        assertThrows(CryptoUnavailableException.class, () -> breaker.call(() -> "too early"));
+    }
+
+    @Test
+    void limitsHalfOpenToTheProbeCount() {
+        fail(4);
+        now.addAndGet(30_000);
+
+        breaker.acquire();
+        breaker.acquire();
+
+        assertThrows(CryptoUnavailableException.class, breaker::acquire);
+        // Outcomes that never came back do not hold it half-open forever
+        now.addAndGet(30_000);
+        assertDoesNotThrow(breaker::acquire);
+    }
+
+    @Test
+    void notifiesTheListenerWithTheBreakerUnlocked() {
+        List<CryptoCircuitBreaker.State> seen = new ArrayList<>();
+        breaker.onTransition(state -> {
+            // Another thread must get through while the listener runs
+            seen.add(state);
+            assertTimeoutPreemptively(Duration.ofSeconds(1), () -> breaker.failureRate());
+        });
+
+        fail(4);
+        now.addAndGet(30_000);
+        breaker.call(() -> "probe");
+        breaker.call(() -> "probe");
+
+        assertEquals(List.of(CryptoCircuitBreaker.State.OPEN, CryptoCircuitBreaker.State.HALF_OPEN,
+            CryptoCircuitBreaker.State.CLOSED), seen);
+    }
+
+    private void fail(int times) {
+        for (int i = 0; i < times; i++) {
+            assertThrows(IllegalStateException.class, () -> breaker.call(() -> {
+                throw new IllegalStateException("key vault unreachable");
+            }));
+        }
+    }
+}
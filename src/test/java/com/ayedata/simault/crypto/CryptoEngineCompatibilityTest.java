@@ -0,0 +1,99 @@
+package com.ayedata.simault.crypto;
+
+import com.mongodb.ClientEncryptionSettings;
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.vault.DataKeyOptions;
+import com.mongodb.client.vault.ClientEncryption;
+import com.mongodb.client.vault.ClientEncryptions;
+import org.bson.BsonBinary;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * End-to-end check of both engines through ClientEncryption and a real key vault.
+ * LibmongocryptCompatibilityTest covers the byte compatibility in every build; this one
+ * needs a running mongod: mvn test -Dsimault.test.mongodb.uri=mongodb://localhost:27017
+ */
+class CryptoEngineCompatibilityTest {
+
+    private static final String KEY_VAULT_DB = "simault_test_encryption";
+    private static final String KEY_VAULT_COLL = "__keyVault";
+
+    private static MongoClient client;
+    private static ClientEncryption clientEncryption;
+    private static CryptoEngine reference;
+    private static CryptoEngine local;
+
+    @BeforeAll
+    static void setUp() {
+        String uri = System.getProperty("simault.test.mongodb.uri");
+        assumeTrue(uri != null && !uri.isBlank(), "simault.test.mongodb.uri not set; skipping CSFLE compatibility suite");
+
+        byte[] masterKey = new byte[96];
+        new SecureRandom().nextBytes(masterKey);
+
+        client = MongoClients.create(uri);
+        clientEncryption = ClientEncryptions.create(ClientEncryptionSettings.builder()
+                .keyVaultMongoClientSettings(MongoClientSettings.builder().applyConnectionString(new ConnectionString(uri)).build())
+                .keyVaultNamespace(KEY_VAULT_DB + "." + KEY_VAULT_COLL)
+                .kmsProviders(Map.of("local", Map.of("key", masterKey.clone())))
+                .build());
+        UUID dataKeyId = clientEncryption.createDataKey("local", new DataKeyOptions()).asUuid();
+
+        MongoCollection<Document> keyVault = client.getDatabase(KEY_VAULT_DB).getCollection(KEY_VAULT_COLL);
+        reference = new ClientEncryptionCryptoEngine(clientEncryption, dataKeyId);
+        local = new LocalAeadCryptoEngine(
+            id -> keyVault.find(Filters.eq("_id", new BsonBinary(id))).first().get("keyMaterial", Binary.class).getData(),
+            masterKey, dataKeyId);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (clientEncryption != null) clientEncryption.close();
+        if (client != null) {
+            client.getDatabase(KEY_VAULT_DB).drop();
+            client.close();
+        }
+    }
+
+    @Test
+    void localEngineReadsClientEncryptionCiphertext() {
+        String secret = newSecret();
+        assertEquals(secret, local.decrypt(reference.encrypt(secret)));
+    }
+
+    @Test
+    void clientEncryptionReadsLocalEngineCiphertext() {
+        String secret = newSecret();
+        assertEquals(secret, reference.decrypt(local.encrypt(secret)));
+    }
+
+    @Test
+    void bothEnginesProduceIdenticalDeterministicCiphertext() {
+        String secret = newSecret();
+        assertArrayEquals(reference.encrypt(secret).getData(), local.encrypt(secret).getData());
+    }
+
+    private static String newSecret() {
+        byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+}
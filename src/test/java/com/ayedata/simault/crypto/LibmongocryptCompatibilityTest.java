@@ -0,0 +1,85 @@
+package com.ayedata.simault.crypto;
+
+import org.bson.types.Binary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Proves the local engine is byte-compatible with libmongocrypt, using the native library
+ * shipped in mongodb-crypt with a local KMS; no mongod needed. CryptoEngineCompatibilityTest
+ * repeats this through ClientEncryption against a live key vault.
+ */
+class LibmongocryptCompatibilityTest {
+
+    private final SecureRandom random = new SecureRandom();
+    private byte[] masterKey;
+    private LibmongocryptKeyVault reference;
+    private UUID dataKeyId;
+
+    @BeforeEach
+    void setUp() {
+        masterKey = new byte[96];
+        random.nextBytes(masterKey);
+        reference = new LibmongocryptKeyVault(masterKey);
+        dataKeyId = reference.createDataKey();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reference.close();
+    }
+
+    @Test
+    void unwrapsDataKeysCreatedByLibmongocrypt() {
+        assertDoesNotThrow(() -> new LocalAeadCryptoEngine(reference::wrappedKey, masterKey, dataKeyId));
+    }
+
+    @Test
+    void readsLibmongocryptDeterministicCiphertext() {
+        LocalAeadCryptoEngine local = new LocalAeadCryptoEngine(reference::wrappedKey, masterKey, dataKeyId);
+        String secret = newSecret();
+
+        assertEquals(secret, local.decrypt(reference.encrypt(secret, dataKeyId, LibmongocryptKeyVault.DETERMINISTIC)));
+    }
+
+    @Test
+    void readsLibmongocryptRandomCiphertext() {
+        LocalAeadCryptoEngine local = new LocalAeadCryptoEngine(reference::wrappedKey, masterKey, dataKeyId);
+        String secret = newSecret();
+
+        assertEquals(secret, local.decrypt(reference.encrypt(secret, dataKeyId, LibmongocryptKeyVault.RANDOM)));
+    }
+
+    @Test
+    void libmongocryptReadsLocalEngineCiphertext() {
+        LocalAeadCryptoEngine local = new LocalAeadCryptoEngine(reference::wrappedKey, masterKey, dataKeyId);
+        String secret = newSecret();
+
+        assertEquals(secret, reference.decrypt(local.encrypt(secret)));
+    }
+
+    @Test
+    void producesTheSameDeterministicCiphertextAsLibmongocrypt() {
+        LocalAeadCryptoEngine local = new LocalAeadCryptoEngine(reference::wrappedKey, masterKey, dataKeyId);
+        String secret = newSecret();
+
+        Binary expected = reference.encrypt(secret, dataKeyId, LibmongocryptKeyVault.DETERMINISTIC);
+
+        assertArrayEquals(expected.getData(), local.encrypt(secret).getData());
+    }
+
+    private String newSecret() {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,95 @@
+package com.ayedata.simault.crypto;
+
+import com.mongodb.internal.crypt.capi.MongoCrypt;
+import com.mongodb.internal.crypt.capi.MongoCryptContext;
+import com.mongodb.internal.crypt.capi.MongoCryptOptions;
+import com.mongodb.internal.crypt.capi.MongoCrypts;
+import com.mongodb.internal.crypt.capi.MongoDataKeyOptions;
+import com.mongodb.internal.crypt.capi.MongoExplicitEncryptOptions;
+import org.bson.BsonBinary;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.types.Binary;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * libmongocrypt itself, driven in-process with a local KMS and an in-memory key vault,
+ * so ciphertext and data keys come from the reference implementation without a mongod.
+ * The driver's ClientEncryption runs this same state machine against a real key vault.
+ */
+final class LibmongocryptKeyVault implements AutoCloseable {
+
+    static final String DETERMINISTIC = "AEAD_AES_256_CBC_HMAC_SHA_512-Deterministic";
+    static final String RANDOM = "AEAD_AES_256_CBC_HMAC_SHA_512-Random";
+
+    private final MongoCrypt mongoCrypt;
+    // _id -> key document, as ClientEncryption would store it in encryption.__keyVault
+    private final Map<UUID, BsonDocument> keyVault = new HashMap<>();
+
+    LibmongocryptKeyVault(byte[] localMasterKey) {
+        this.mongoCrypt = MongoCrypts.create(MongoCryptOptions.builder()
+                .kmsProviderOptions(new BsonDocument("local",
+                        new BsonDocument("key", new BsonBinary(localMasterKey.clone()))))
+                .build());
+    }
+
+    /** Creates a data key wrapped under the local master key, like ClientEncryption.createDataKey. */
+    UUID createDataKey() {
+        try (MongoCryptContext context = mongoCrypt.createDataKeyContext("local",
+                MongoDataKeyOptions.builder().masterKey(new BsonDocument()).build())) {
+            BsonDocument keyDoc = run(context);
+            UUID keyId = keyDoc.getBinary("_id").asUuid();
+            keyVault.put(keyId, keyDoc);
+            return keyId;
+        }
+    }
+
+    /** keyMaterial of a data key: the 96-byte key, AEAD-wrapped by the master key. */
+    byte[] wrappedKey(UUID keyId) {
+        BsonDocument keyDoc = keyVault.get(keyId);
+        if (keyDoc == null) throw new IllegalStateException("Data key " + keyId + " not found");
+        return keyDoc.getBinary("keyMaterial").getData();
+    }
+
+    Binary encrypt(String plaintext, UUID keyId, String algorithm) {
+        try (MongoCryptContext context = mongoCrypt.createExplicitEncryptionContext(
+                new BsonDocument("v", new BsonString(plaintext)),
+                MongoExplicitEncryptOptions.builder().keyId(new BsonBinary(keyId)).algorithm(algorithm).build())) {
+            BsonBinary ciphertext = run(context).getBinary("v");
+            return new Binary(ciphertext.getType(), ciphertext.getData());
+        }
+    }
+
+    String decrypt(Binary ciphertext) {
+        try (MongoCryptContext context = mongoCrypt.createExplicitDecryptionContext(
+                new BsonDocument("v", new BsonBinary(ciphertext.getType(), ciphertext.getData())))) {
+            return run(context).getString("v").getValue();
+        }
+    }
+
+    @Override
+    public void close() {
+        mongoCrypt.close();
+    }
+
+    /** The part of the driver's state machine a local KMS needs: key lookups, then finish. */
+    private BsonDocument run(MongoCryptContext context) {
+        while (true) {
+            switch (context.getState()) {
+                case NEED_MONGO_KEYS -> {
+                    keyVault.values().forEach(context::addMongoOperationResult);
+                    context.completeMongoOperation();
+                }
+                // Local keys are unwrapped in-process; there is no KMS request to answer
+                case NEED_KMS -> context.completeKeyDecryptors();
+                case READY -> {
+                    return context.finish();
+                }
+                default -> throw new IllegalStateException("Unexpected libmongocrypt state " + context.getState());
+            }
+        }
+    }
+}
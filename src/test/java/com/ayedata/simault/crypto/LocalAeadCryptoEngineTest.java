@@ -0,0 +1,126 @@
+package com.ayedata.simault.crypto;
+
+import org.bson.types.Binary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalAeadCryptoEngineTest {
+
+    private final SecureRandom random = new SecureRandom();
+    private byte[] masterKey;
+    // Data keys come from libmongocrypt, so the fixtures cannot share a mistake with the engine
+    private LibmongocryptKeyVault keyVault;
+
+    @BeforeEach
+    void setUp() {
+        masterKey = randomBytes(96);
+        keyVault = new LibmongocryptKeyVault(masterKey);
+    }
+
+    @AfterEach
+    void tearDown() {
+        keyVault.close();
+    }
+
+    @Test
+    void roundTripsA44CharacterSecret() {
+        UUID keyId = newWrappedDataKey();
+        LocalAeadCryptoEngine engine = new LocalAeadCryptoEngine(keyVault::wrappedKey, masterKey, keyId);
+        String secret = Base64.getEncoder().encodeToString(randomBytes(32));
+
+        Binary ciphertext = engine.encrypt(secret);
+
+        assertEquals(secret, engine.decrypt(ciphertext));
+    }
+
+    @Test
+    void writesTheCsfleSubtype6Layout() {
+        UUID keyId = newWrappedDataKey();
+        LocalAeadCryptoEngine engine = new LocalAeadCryptoEngine(keyVault::wrappedKey, masterKey, keyId);
+
+        Binary ciphertext = engine.encrypt(Base64.getEncoder().encodeToString(randomBytes(32)));
+        byte[] data = ciphertext.getData();
+        ByteBuffer ids = ByteBuffer.wrap(data, 1, 16);
+
+        assertEquals(6, ciphertext.getType());
+        assertEquals(1, data[0], "deterministic marker");
+        assertEquals(keyId, new UUID(ids.getLong(), ids.getLong()));
+        assertEquals(0x02, data[17], "original BSON type: string");
+        // header 18 + IV 16 + 49-byte BSON string padded to 64 + tag 32
+        assertEquals(130, data.length);
+    }
+
+    @Test
+    void isDeterministic() {
+        UUID keyId = newWrappedDataKey();
+        LocalAeadCryptoEngine engine = new LocalAeadCryptoEngine(keyVault::wrappedKey, masterKey, keyId);
+
+        assertArrayEquals(engine.encrypt("same-value").getData(), engine.encrypt("same-value").getData());
+    }
+
+    @Test
+    void decryptsWithTheKeyNamedInTheCiphertext() {
+        UUID oldKey = newWrappedDataKey();
+        UUID newKey = newWrappedDataKey();
+        Binary underOldKey = new LocalAeadCryptoEngine(keyVault::wrappedKey, masterKey, oldKey).encrypt("legacy");
+
+        LocalAeadCryptoEngine engine = new LocalAeadCryptoEngine(keyVault::wrappedKey, masterKey, newKey);
+
+        assertEquals("legacy", engine.decrypt(underOldKey));
+    }
+
+    @Test
+    void writesUnderTheActivatedKeyAndStillReadsTheOldOne() {
+        UUID oldKey = newWrappedDataKey();
+        UUID newKey = newWrappedDataKey();
+        LocalAeadCryptoEngine engine = new LocalAeadCryptoEngine(keyVault::wrappedKey, masterKey, oldKey);
+        Binary underOldKey = engine.encrypt("before");
+
+        engine.activateKey(newKey);
+        Binary underNewKey = engine.encrypt("after");
+
+        assertEquals(newKey, engine.activeKeyId());
+        assertEquals(oldKey, CryptoEngine.keyIdOf(underOldKey));
+        assertEquals(newKey, CryptoEngine.keyIdOf(underNewKey));
+        assertEquals("before", engine.decrypt(underOldKey));
+        assertEquals("after", engine.decrypt(underNewKey));
+    }
+
+    @Test
+    void rejectsTamperedCiphertext() {
+        UUID keyId = newWrappedDataKey();
+        LocalAeadCryptoEngine engine = new LocalAeadCryptoEngine(keyVault::wrappedKey, masterKey, keyId);
+        byte[] data = engine.encrypt("do-not-touch").getData();
+        data[40] ^= 1;
+
+        assertThrows(CorruptCiphertextException.class, () -> engine.decrypt(new Binary((byte) 6, data)));
+    }
+
+    @Test
+    void rejectsAWrongMasterKey() {
+        UUID keyId = newWrappedDataKey();
+        byte[] otherMasterKey = randomBytes(96);
+
+        // A configuration problem, not corrupt ciphertext: nothing may be rotated over it
+        assertThrows(IllegalStateException.class,
+            () -> new LocalAeadCryptoEngine(keyVault::wrappedKey, otherMasterKey, keyId));
+    }
+
+    private UUID newWrappedDataKey() {
+        return keyVault.createDataKey();
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,52 @@
+package com.ayedata.simault.logging;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedactingConverterTest {
+
+    // The %replace regex that log4j2.xml used before %redact
+    private static final Pattern OLD_REGEX =
+            Pattern.compile("(?i)(Bearer\\s+|token=|key\\s*\":\"?|password=)([\\w\\.-]+)");
+
+    @Test
+    void masksEachMarkerAndKeepsTheMarker() {
+        assertEquals("Authorization: Bearer *****REDACTED*****",
+                redact("Authorization: Bearer eyJhbGciOi.J9-x_y"));
+        assertEquals("GET /cb?token=*****REDACTED*****&x=1", redact("GET /cb?token=abc123&x=1"));
+        assertEquals("{\"key\":\"*****REDACTED*****\"}", redact("{\"key\":\"s3cr3t\"}"));
+        assertEquals("PASSWORD=*****REDACTED***** user=bob", redact("PASSWORD=hunter2 user=bob"));
+    }
+
+    @Test
+    void leavesTextBeforeTheStartOffsetAlone() {
+        StringBuilder line = new StringBuilder("token=header - token=body");
+        RedactingConverter.redact(line, 9);
+
+        assertEquals("token=header - token=" + RedactingConverter.MASK, line.toString());
+    }
+
+    @Test
+    void matchesTheRegexItReplaces() {
+        List<String> lines = List.of(
+                "Request received to retrieve secret for appId: payment-service",
+                "bearer\t\n abc BEARER def Bearer",
+                "apikey  \":42 monkey\":\"x\" key\":\"\" key\": nope",
+                "token= token==x mytoken=a.b-c_d password=p@ss tokentoken=1",
+                "Secret successfully retrieved for appId: Bearer",
+                "");
+        for (String line : lines) {
+            assertEquals(OLD_REGEX.matcher(line).replaceAll("$1" + RedactingConverter.MASK), redact(line), line);
+        }
+    }
+
+    private static String redact(String line) {
+        StringBuilder text = new StringBuilder(line);
+        RedactingConverter.redact(text, 0);
+        return text.toString();
+    }
+}
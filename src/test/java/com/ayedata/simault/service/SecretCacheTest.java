@@ -0,0 +1,61 @@
+package com.ayedata.simault.service;
+
+import com.ayedata.simault.model.AppSecret;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SecretCacheTest {
+
+    private final SecretCache cache = new SecretCache();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxSize", 3);
+        ReflectionTestUtils.setField(cache, "safetyMarginSeconds", 0L);
+        ReflectionTestUtils.setField(cache, "maxAgeSeconds", 3_600L);
+    }
+
+    @Test
+    void evictsTheEntryClosestToExpiryWhenFull() {
+        cache.put(secret("late", 3_000));
+        cache.put(secret("soon", 1_000));
+        cache.put(secret("middle", 2_000));
+
+        cache.put(secret("new", 2_500));
+
+        assertNull(cache.get("soon"));
+        assertNotNull(cache.get("late"));
+        assertNotNull(cache.get("middle"));
+        assertNotNull(cache.get("new"));
+        assertEquals(1L, cache.stats().get("evictions"));
+    }
+
+    @Test
+    void invalidatedEntriesAreNotEvictedAgain() {
+        cache.put(secret("a", 1_000));
+        cache.put(secret("b", 2_000));
+        cache.put(secret("c", 3_000));
+        cache.invalidate("b");
+        // Replaces a's entry, so its old place in the expiry order must go with it
+        cache.put(secret("a", 4_000));
+
+        cache.put(secret("d", 5_000));
+        cache.put(secret("e", 6_000));
+
+        assertNull(cache.get("c"));
+        assertNotNull(cache.get("a"));
+        assertEquals(1L, cache.stats().get("evictions"));
+        assertEquals(3, cache.stats().get("size"));
+    }
+
+    private static AppSecret secret(String appId, long secondsToLive) {
+        Instant now = Instant.now();
+        return new AppSecret(appId, "value-" + appId, now, now.plusSeconds(secondsToLive));
+    }
+}
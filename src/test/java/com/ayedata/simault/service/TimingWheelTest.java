@@ -0,0 +1,65 @@
+package com.ayedata.simault.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    // 1 s ticks, 8 buckets: the finest level spans 8 s, anything later overflows
+    private final TimingWheel<String> wheel = new TimingWheel<>(1_000, 8, 0);
+    private final List<String> expired = new ArrayList<>();
+
+    @Test
+    void neverHandsOutAnEntryBeforeItsDeadline() {
+        wheel.add("a", 2_500);
+
+        advance(2_499);
+        assertTrue(expired.isEmpty());
+
+        advance(3_000);
+        assertEquals(List.of("a"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cascadesFromTheOverflowLevel() {
+        wheel.add("late", 3_600_000);
+        wheel.add("soon", 5_000);
+        assertEquals(2, wheel.size());
+
+        advance(3_599_999);
+        assertEquals(List.of("soon"), expired);
+
+        advance(3_601_000);
+        assertEquals(List.of("soon", "late"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void handsOutInDeadlineOrder() {
+        wheel.add("c", 20_000);
+        wheel.add("a", 1_200);
+        wheel.add("b", 9_000);
+
+        for (long now = 0; now <= 21_000; now += 1_000) advance(now);
+
+        assertEquals(List.of("a", "b", "c"), expired);
+    }
+
+    @Test
+    void rejectsDeadlinesThatHavePassed() {
+        advance(10_000);
+
+        assertFalse(wheel.add("past", 9_000));
+        assertFalse(wheel.add("now", 10_000));
+        assertEquals(0, wheel.size());
+    }
+
+    private void advance(long now) {
+        wheel.advance(now, entry -> expired.add(entry.key()));
+    }
+}